@@ -0,0 +1,68 @@
+package com.tuproyecto.benchmarks;
+
+import com.tuproyecto.darray.DArrayDouble;
+import com.tuproyecto.darray.ResidentDArray;
+import com.tuproyecto.maestro.Maestro;
+import com.tuproyecto.worker.Worker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Trabajos completos contra un Maestro y N workers en el mismo proceso, por loopback. El clúster se
+// levanta una vez por combinación de parámetros, fuera de la medida, en lugar de los 5 s de Main.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Maestro y workers no tienen parada: se deja que JMH termine la JVM en cuanto acaba la medida.
+@Fork(value = 1, jvmArgsAppend = "-Djmh.shutdownTimeout=1")
+public class ClusterBenchmark {
+    private static final String HOST = "localhost";
+    private static final int MAESTRO_UDP_PORT = 28000;
+    private static final int MAESTRO_TCP_PORT = 28001;
+    private static final int FIRST_WORKER_PORT = 29001;
+
+    @Param({"1", "3"})
+    int workers;
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    private DArrayDouble input;
+    private ResidentDArray resident;
+
+    @Setup(Level.Trial)
+    public void startCluster() throws InterruptedException {
+        // Los logs por tarea de Maestro y workers distorsionan la medida; JMH informa por su propio canal.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        new Thread(new Maestro(HOST, MAESTRO_UDP_PORT, MAESTRO_TCP_PORT)::start, "Bench-Maestro").start();
+        for (int i = 0; i < workers; i++) {
+            new Worker(HOST, FIRST_WORKER_PORT + i, HOST, MAESTRO_UDP_PORT).start();
+        }
+        Thread.sleep(1500); // el registro es inmediato; se deja margen para el primer heartbeat
+
+        input = new DArrayDouble(HOST, MAESTRO_TCP_PORT, new Random(42).doubles(size, -100, 100).toArray());
+        resident = input.distribute();
+        if (resident == null) throw new IllegalStateException("No se pudo distribuir el array de prueba");
+    }
+
+    @Benchmark
+    public DArrayDouble map() {
+        return input.map("COMPLEX_OP");
+    }
+
+    @Benchmark
+    public double pipelineSum() {
+        return input.lazy().map("COMPLEX_OP").filter("POSITIVE").sum();
+    }
+
+    // Sobre un array residente sólo viajan el plan y los parciales.
+    @Benchmark
+    public double residentPipelineSum() {
+        return resident.lazy().map("COMPLEX_OP").filter("POSITIVE").sum();
+    }
+}
@@ -0,0 +1,91 @@
+package com.tuproyecto.benchmarks;
+
+import com.tuproyecto.operation.DoubleFilter;
+import com.tuproyecto.operation.DoubleKernel;
+import com.tuproyecto.operation.DoubleReducer;
+import com.tuproyecto.operation.OperationRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Kernels, filtros y reductores integrados sobre un bloque, tal como los recorre el Worker en cada chunk.
+// Cada tipo tiene su propio estado para que sus parámetros no se multipliquen con los de los demás.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+
+    @State(Scope.Thread)
+    public static class Block {
+        @Param({"4096", "262144"})
+        int size;
+
+        double[] in;
+        double[] out;
+
+        @Setup
+        public void setup() {
+            in = new Random(42).doubles(size, -100, 100).toArray();
+            out = new double[size];
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Kernel {
+        @Param({"IDENTITY", "COMPLEX_OP", "CONDITIONAL_OP_INT"})
+        String operation;
+
+        DoubleKernel kernel;
+
+        @Setup
+        public void setup() { kernel = OperationRegistry.getDefault().lookup(operation); }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Filter {
+        @Param({"POSITIVE", "FINITE", "EVEN"})
+        String filterName;
+
+        DoubleFilter filter;
+
+        @Setup
+        public void setup() { filter = OperationRegistry.getDefault().lookupFilter(filterName); }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Reducer {
+        @Param({"SUM", "MAX"})
+        String reducerName;
+
+        DoubleReducer reducer;
+
+        @Setup
+        public void setup() { reducer = OperationRegistry.getDefault().lookupReducer(reducerName); }
+    }
+
+    @Benchmark
+    public double[] map(Block block, Kernel kernel) {
+        kernel.kernel.apply(block.in, block.out, 0, block.size);
+        return block.out;
+    }
+
+    // Mismo bucle de compactación que aplica el Worker en una etapa FILTER.
+    @Benchmark
+    public int filter(Block block, Filter filter) {
+        double[] in = block.in, out = block.out;
+        int w = 0;
+        for (int i = 0; i < block.size; i++) {
+            double x = in[i];
+            if (filter.filter.test(x)) out[w++] = x;
+        }
+        return w;
+    }
+
+    @Benchmark
+    public double reduce(Block block, Reducer reducer) {
+        return reducer.reducer.reduce(block.in, 0, block.size);
+    }
+}
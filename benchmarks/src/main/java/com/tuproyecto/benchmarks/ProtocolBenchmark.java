@@ -0,0 +1,80 @@
+package com.tuproyecto.benchmarks;
+
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.protocol.FrameCodec;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.ProtocolParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Codificación de mensajes: el protocolo de texto original frente a los frames binarios de FrameCodec.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+    @Param({"100", "10000", "1000000"})
+    int size;
+
+    private Map<String, String> headers;
+    private String textMessage;
+    private String textData;
+    private Message binaryMessage;
+    private byte[] frame;
+
+    @Setup
+    public void setup() throws IOException {
+        double[] data = new Random(42).doubles(size).toArray();
+        textData = ProtocolParser.formatData(new DoubleChunk(data));
+        headers = Map.of("TYPE", "DISTRIBUTE_TASK", "JOB_ID", "job-1", "CHUNK_ID", "job-1-c0",
+                "ROLE", "PRIMARY", "OPERATION", "COMPLEX_OP", "DATA", textData);
+        textMessage = ProtocolParser.create(headers);
+        binaryMessage = new Message("DISTRIBUTE_TASK").put("JOB_ID", "job-1").put("CHUNK_ID", "job-1-c0")
+                .put("ROLE", "PRIMARY").put("OPERATION", "COMPLEX_OP").setData(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameCodec.write(out, binaryMessage);
+        frame = out.toByteArray();
+    }
+
+    @Benchmark
+    public Map<String, String> textParse() {
+        return ProtocolParser.parse(textMessage);
+    }
+
+    @Benchmark
+    public String textCreate() {
+        return ProtocolParser.create(headers);
+    }
+
+    @Benchmark
+    public List<Double> textParseData() {
+        return ProtocolParser.parseData(textData);
+    }
+
+    @Benchmark
+    public double[] textParseDataArray() {
+        return ProtocolParser.parseDataArray(textData);
+    }
+
+    @Benchmark
+    public int binaryWrite() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(frame.length);
+        FrameCodec.write(out, binaryMessage);
+        return out.size();
+    }
+
+    @Benchmark
+    public Message binaryRead() throws IOException {
+        return FrameCodec.read(new DataInputStream(new ByteArrayInputStream(frame)));
+    }
+}
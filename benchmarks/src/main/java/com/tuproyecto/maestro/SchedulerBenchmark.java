@@ -0,0 +1,47 @@
+package com.tuproyecto.maestro;
+
+import com.tuproyecto.data.DoubleChunk;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Corte del array en chunks y reparto entre workers (lo que antes hacía Maestro.splitList).
+// Está en el paquete del Maestro porque ChunkScheduler no es público.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    int size;
+
+    @Param({"3", "16"})
+    int workers;
+
+    private DoubleChunk data;
+    private List<int[]> workerLoads;
+    private ChunkScheduler<int[]> scheduler;
+
+    @Setup
+    public void setup() {
+        data = new DoubleChunk(new double[size]);
+        // Cada worker simulado es {capacidad, pendientes}
+        workerLoads = new ArrayList<>();
+        for (int w = 0; w < workers; w++) workerLoads.add(new int[]{1000 + 250 * w, w % 3});
+        scheduler = new ChunkScheduler<>(w -> w[0], w -> w[1]);
+    }
+
+    @Benchmark
+    public List<DoubleChunk> split() {
+        return data.split(ChunkScheduler.chunkCount(size, workers));
+    }
+
+    @Benchmark
+    public List<int[]> assign() {
+        return scheduler.assign(workerLoads, ChunkScheduler.chunkCount(size, workers));
+    }
+}
@@ -3,10 +3,14 @@ package com.tuproyecto;
 import com.tuproyecto.darray.DArrayDouble;
 import com.tuproyecto.darray.DArrayInt;
 import com.tuproyecto.maestro.Maestro;
+import com.tuproyecto.metrics.Log;
 import com.tuproyecto.worker.Worker;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
@@ -19,7 +23,7 @@ public class Main {
     private static List<Worker> workerInstances = new ArrayList<>(); // Para poder "matar" un worker
 
     public static void main(String[] args) throws InterruptedException {
-        System.out.println("--- INICIANDO CLÚSTER DISTRIBUIDO (JAVA) ---");
+        Log.info("--- INICIANDO CLÚSTER DISTRIBUIDO (JAVA) ---");
 
         // 1. Iniciar el Maestro
         Maestro maestro = new Maestro(HOST, MAESTRO_UDP_PORT, MAESTRO_TCP_PORT_CLIENT);
@@ -32,7 +36,7 @@ public class Main {
             workerInstances.add(worker); // Guardar referencia para simular fallo
         }
 
-        System.out.println("[MAIN] Clúster iniciando... Esperando 5 segundos para que los workers se registren.");
+        Log.info("[MAIN] Clúster iniciando... Esperando 5 segundos para que los workers se registren.");
         Thread.sleep(5000);
 
         // 3. Ejecutar todos los ejemplos
@@ -40,72 +44,66 @@ public class Main {
         runExample2();
         runExample3(); // Incluye la simulación de fallo
 
-        System.out.println("\n--- DEMO FINALIZADA ---");
+        Log.info("\n--- DEMO FINALIZADA ---");
         // El programa terminará si todos los hilos no son daemon.
         // En este caso, se usa Ctrl+C para terminar.
         // Para una salida limpia, se necesitaría un método shutdown en Maestro y Workers.
     }
     
     private static void runExample1() {
-        System.out.println("\n=============================================");
-        System.out.println("[MAIN] EJEMPLO 1: Procesamiento Matemático con DArrayDouble");
-        System.out.println("=============================================");
+        Log.info("\n=============================================");
+        Log.info("[MAIN] EJEMPLO 1: Procesamiento Matemático con DArrayDouble");
+        Log.info("=============================================");
         
         List<Double> data = DoubleStream.iterate(1.0, n -> n + 1).limit(10000).boxed().collect(Collectors.toList());
         DArrayDouble dArray = new DArrayDouble(HOST, MAESTRO_TCP_PORT_CLIENT, data);
-        System.out.println("[MAIN] Objeto cliente creado: " + dArray);
+        Log.info("[MAIN] Objeto cliente creado: %s", dArray);
 
         long startTime = System.currentTimeMillis();
         DArrayDouble resultArray = dArray.map("COMPLEX_OP");
         long endTime = System.currentTimeMillis();
         
         if (resultArray != null) {
-            System.out.println("[MAIN] Resultado final: " + resultArray);
-            System.out.printf("[MAIN] Tiempo de ejecución: %d ms\n", (endTime - startTime));
+            Log.info("[MAIN] Resultado final: %s", resultArray);
+            Log.info("[MAIN] Tiempo de ejecución: %d ms", (endTime - startTime));
         } else {
-            System.err.println("[MAIN] El trabajo del Ejemplo 1 falló.");
+            Log.warn("[MAIN] El trabajo del Ejemplo 1 falló.");
         }
     }
     
     private static void runExample2() {
-        System.out.println("\n=============================================");
-        System.out.println("[MAIN] EJEMPLO 2: Evaluación Condicional con DArrayInt");
-        System.out.println("=============================================");
+        Log.info("\n=============================================");
+        Log.info("[MAIN] EJEMPLO 2: Evaluación Condicional con DArrayInt");
+        Log.info("=============================================");
 
         List<Integer> intData = IntStream.rangeClosed(1, 2000).boxed().collect(Collectors.toList());
         DArrayInt dIntArray = new DArrayInt(HOST, MAESTRO_TCP_PORT_CLIENT, intData);
-        System.out.println("[MAIN] Objeto cliente creado: " + dIntArray);
+        Log.info("[MAIN] Objeto cliente creado: %s", dIntArray);
         
         long startTime = System.currentTimeMillis();
         DArrayInt resultIntArray = dIntArray.map("CONDITIONAL_OP_INT");
         long endTime = System.currentTimeMillis();
 
         if (resultIntArray != null) {
-            System.out.println("[MAIN] Resultado final: " + resultIntArray);
-            System.out.printf("[MAIN] Tiempo de ejecución: %d ms\n", (endTime - startTime));
+            Log.info("[MAIN] Resultado final: %s", resultIntArray);
+            Log.info("[MAIN] Tiempo de ejecución: %d ms", (endTime - startTime));
         } else {
-            System.err.println("[MAIN] El trabajo del Ejemplo 2 falló.");
+            Log.warn("[MAIN] El trabajo del Ejemplo 2 falló.");
         }
     }
     
     private static void runExample3() {
-        System.out.println("\n=============================================");
-        System.out.println("[MAIN] EJEMPLO 3: Simulación de Fallo y Recuperación");
-        System.out.println("=============================================");
+        Log.info("\n=============================================");
+        Log.info("[MAIN] EJEMPLO 3: Simulación de Fallo y Recuperación");
+        Log.info("=============================================");
 
         List<Double> data = DoubleStream.iterate(20001.0, n -> n + 1).limit(5000).boxed().collect(Collectors.toList());
         DArrayDouble dArray = new DArrayDouble(HOST, MAESTRO_TCP_PORT_CLIENT, data);
 
-        // Wrapper para el resultado para poder modificarlo desde el lambda
-        final DArrayDouble[] resultWrapper = new DArrayDouble[1];
+        // El trabajo se envía sin bloquear este hilo; el future se completa cuando el Maestro responde.
+        Log.info("[MAIN] Iniciando trabajo que será interrumpido...");
+        CompletableFuture<DArrayDouble> job = dArray.mapAsync("COMPLEX_OP").orTimeout(60, TimeUnit.SECONDS);
 
-        Thread jobThread = new Thread(() -> {
-            System.out.println("[JOB_THREAD] Iniciando trabajo que será interrumpido...");
-            resultWrapper[0] = dArray.map("COMPLEX_OP");
-        }, "Job-Thread-Fault-Tolerant");
-        
-        jobThread.start();
-        
         try {
             // Esperar un poco para que el trabajo se distribuya y empiece a procesar
             Thread.sleep(1000);
@@ -113,7 +111,9 @@ public class Main {
             // Simular el fallo de un worker deteniendo su hilo.
             // Esto hará que deje de enviar heartbeats.
             Worker workerToKill = workerInstances.get(1); // Matamos al segundo worker
-            System.out.printf("\n[MAIN] [SIMULATING FAULT] ---> Deteniendo al worker %s. El watchdog debería detectarlo en ~8 segundos. <--- \n\n", "worker-" + WORKER_PORTS[1]);
+            Log.info("\n[MAIN] [SIMULATING FAULT] ---> Deteniendo al worker %s. El detector phi-accrual (heartbeats cada 500 ms, "
+                    + "umbral darray.failure.phiThreshold) debería detectarlo en menos de un segundo; si falla un envío, "
+                    + "sus chunks se reenvían a una réplica de inmediato. <--- \n", "worker-" + WORKER_PORTS[1]);
             
             // Para simular un crash, simplemente interrumpimos sus hilos.
             // En una app real, el proceso moriría.
@@ -122,15 +122,10 @@ public class Main {
             // Para una simulación más activa, necesitaríamos un método worker.stop().
 
             // Esperar a que el trabajo termine. El maestro debería recuperarse.
-            jobThread.join(); 
-
-            DArrayDouble result = resultWrapper[0];
-            if (result != null) {
-                System.out.println("[MAIN] ¡Trabajo completado a pesar del fallo simulado! Resultado: " + result);
-            } else {
-                System.err.println("[MAIN] El trabajo falló incluso después de la recuperación.");
-            }
-
+            DArrayDouble result = job.join();
+            Log.info("[MAIN] ¡Trabajo completado a pesar del fallo simulado! Resultado: %s", result);
+        } catch (CompletionException e) {
+            Log.warn("[MAIN] El trabajo falló incluso después de la recuperación: %s", e.getCause());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             e.printStackTrace();
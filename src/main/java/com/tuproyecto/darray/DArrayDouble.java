@@ -1,72 +1,230 @@
 package com.tuproyecto.darray;
 
-import com.tuproyecto.protocol.ProtocolParser;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.operation.Aggregation;
+import com.tuproyecto.operation.Pipeline;
+import com.tuproyecto.protocol.ConnectionExecutors;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MessageChannel;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class DArrayDouble {
+    // Por encima de este número de elementos el array se envía como una secuencia de frames.
+    private static final int STREAM_FRAME_SIZE = Integer.getInteger("darray.stream.frameSize", 64 * 1024);
+
     private final String maestroHost;
     private final int maestroTcpPort;
-    private List<Double> localData;
+    private final double[] localData;
 
     public DArrayDouble(String maestroHost, int maestroTcpPort, List<Double> data) {
+        this(data.stream().mapToDouble(Double::doubleValue).toArray(), maestroHost, maestroTcpPort);
+    }
+
+    public DArrayDouble(String maestroHost, int maestroTcpPort, double[] data) {
+        this(data.clone(), maestroHost, maestroTcpPort);
+    }
+
+    // Adopta el array sin copiarlo (resultados recién recibidos del Maestro).
+    private DArrayDouble(double[] data, String maestroHost, int maestroTcpPort) {
         this.maestroHost = maestroHost;
         this.maestroTcpPort = maestroTcpPort;
-        this.localData = new ArrayList<>(data);
+        this.localData = data;
+    }
+
+    static DArrayDouble wrap(String maestroHost, int maestroTcpPort, DoubleChunk chunk) {
+        double[] data = (chunk.offset() == 0 && chunk.length() == chunk.array().length) ? chunk.array() : chunk.toArray();
+        return new DArrayDouble(data, maestroHost, maestroTcpPort);
     }
 
+    // map es inmediato: un viaje de ida y vuelta por llamada. Para encadenar etapas usar lazy().
     public DArrayDouble map(String operationId) {
-        System.out.printf("[DArray] Enviando trabajo al Maestro en %s:%d...\n", maestroHost, maestroTcpPort);
-        try (Socket socket = new Socket(maestroHost, maestroTcpPort);
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-            
-            Map<String, String> jobRequestMap = new HashMap<>();
-            jobRequestMap.put("TYPE", "CLIENT_JOB");
-            jobRequestMap.put("JOB_ID", "job-" + System.currentTimeMillis());
-            jobRequestMap.put("OPERATION", operationId);
-            String dataStr = this.localData.stream().map(String::valueOf).collect(Collectors.joining(","));
-            jobRequestMap.put("DATA", dataStr);
-            out.println(ProtocolParser.create(jobRequestMap));
-
-            String responseLine = in.readLine();
-            if (responseLine == null) {
-                System.err.println("[DArray] Error: El Maestro cerró la conexión sin respuesta.");
+        Message result = submit(Pipeline.of(operationId), null, false);
+        return (result != null) ? wrap(maestroHost, maestroTcpPort, result.getData()) : null;
+    }
+
+    // Igual que map pero sin bloquear al llamante: todos los trabajos asíncronos comparten una conexión
+    // con el Maestro. El future falla si falla el trabajo; cancel() u orTimeout() lo cancelan en el clúster.
+    public CompletableFuture<DArrayDouble> mapAsync(String operationId) {
+        return submitAsync(Pipeline.of(operationId), null, r -> wrap(maestroHost, maestroTcpPort, r.getData()));
+    }
+
+    public CompletableFuture<Double> reduceAsync(String reducerName) {
+        return submitAsync(Pipeline.empty(), Aggregation.reduce(reducerName), r -> r.getData().get(0));
+    }
+
+    // Plan diferido: map/filter/mapToInt se acumulan y se envían como un único trabajo en la operación terminal.
+    public LazyDArray lazy() {
+        return new LazyDArray(this::submit, maestroHost, maestroTcpPort, Pipeline.empty());
+    }
+
+    // Sube el array una vez y lo deja repartido en los workers; devuelve null si falla.
+    public ResidentDArray distribute() {
+        return lazy().persist();
+    }
+
+    // Reducción distribuida con una DoubleReducer registrada (SUM, PRODUCT, MIN, MAX...).
+    public double reduce(String reducerName) { return lazy().reduce(reducerName); }
+
+    // count/sum/min/max en una sola pasada: cada worker devuelve 4 doubles en vez de su chunk.
+    public DoubleSummaryStatistics stats() { return lazy().stats(); }
+
+    public double sum() { return lazy().sum(); }
+
+    public double min() { return lazy().min(); }
+
+    public double max() { return lazy().max(); }
+
+    public long count() { return lazy().count(); }
+
+    public double mean() { return lazy().mean(); }
+
+    public long[] histogram(int bins, double min, double max) { return lazy().histogram(bins, min, max); }
+
+    public long[] histogram(int bins) { return lazy().histogram(bins); }
+
+    // Envía el trabajo (de una vez o en streaming según el tamaño) y devuelve el JOB_COMPLETE, o null si falló.
+    private Message submit(Pipeline plan, Aggregation aggregation, boolean persist) {
+        if (localData.length > STREAM_FRAME_SIZE) {
+            return submitStreaming(plan, aggregation, persist, STREAM_FRAME_SIZE);
+        }
+        Log.info("[DArray] Enviando trabajo al Maestro en %s:%d...", maestroHost, maestroTcpPort);
+        try {
+            Message jobRequest = new Message("CLIENT_JOB")
+                    .setData(this.localData);
+            JobSource.describe(jobRequest, plan, aggregation, persist);
+
+            Message response = MaestroClient.forAddress(maestroHost, maestroTcpPort).request(jobRequest);
+            if (response == null) {
+                Log.error("[DArray] Error: El Maestro cerró la conexión sin respuesta.");
                 return null;
             }
 
-            Map<String, String> response = ProtocolParser.parse(responseLine);
-
-            if ("JOB_COMPLETE".equals(response.get("TYPE")) && "SUCCESS".equals(response.get("STATUS"))) {
-                List<Double> resultData = ProtocolParser.parseData(response.get("DATA"));
-                System.out.println("[DArray] ¡Trabajo completado exitosamente!");
-                return new DArrayDouble(maestroHost, maestroTcpPort, resultData);
+            if ("JOB_COMPLETE".equals(response.type()) && "SUCCESS".equals(response.get("STATUS"))) {
+                Log.info("[DArray] ¡Trabajo completado exitosamente!");
+                return response;
             } else {
-                System.err.println("[DArray] El trabajo falló. Razón: " + response.getOrDefault("REASON", "Desconocida"));
+                Log.warn("[DArray] El trabajo falló. Razón: %s", response.getOrDefault("REASON", "Desconocida"));
                 return null;
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error(e, "[DArray] Error de comunicación con el Maestro");
         }
         return null;
     }
 
+    // Los trabajos asíncronos viajan siempre de una vez: el streaming necesita la conexión para él solo.
+    private <T> CompletableFuture<T> submitAsync(Pipeline plan, Aggregation aggregation, Function<Message, T> convert) {
+        Message jobRequest = new Message("CLIENT_JOB")
+                .setData(this.localData);
+        JobSource.describe(jobRequest, plan, aggregation, false);
+        Log.debug("[DArray] Enviando trabajo asíncrono al Maestro en %s:%d...", maestroHost, maestroTcpPort);
+        return MaestroClient.forAddress(maestroHost, maestroTcpPort).submitAsync(jobRequest, convert);
+    }
+
+    // Envía el array en frames de frameSize elementos desde un hilo aparte mientras este hilo
+    // va recibiendo los resultados, así la transferencia se solapa con el cómputo en los workers.
+    // Con agregación o PERSIST no llegan JOB_RESULT: lo que haya que devolver viene en el propio JOB_COMPLETE.
+    // Si el Maestro cae a mitad, el mismo JOB_START (con su JOB_KEY) se repite en el de reserva.
+    private Message submitStreaming(Pipeline plan, Aggregation aggregation, boolean persist, int frameSize) {
+        int totalFrames = (localData.length + frameSize - 1) / frameSize;
+        Log.info("[DArray] Enviando trabajo en streaming (%d frames) al Maestro en %s:%d...", totalFrames, maestroHost, maestroTcpPort);
+
+        Message start = new Message("JOB_START")
+                .put("TOTAL_SIZE", String.valueOf(localData.length))
+                .put("FRAME_SIZE", String.valueOf(frameSize));
+        JobSource.describe(start, plan, aggregation, persist);
+        MaestroClient.withPriority(start);
+        MaestroClient client = MaestroClient.forAddress(maestroHost, maestroTcpPort);
+        try {
+            Message response;
+            try {
+                response = stream(client, start, frameSize, totalFrames);
+            } catch (IOException e) {
+                response = null;
+                Log.warn("[DArray] Error de comunicación con el Maestro: %s", e.getMessage());
+            }
+            if (response == null) response = client.failOver(standby -> stream(standby, start, frameSize, totalFrames));
+            if (response == null) {
+                Log.error("[DArray] Error: El Maestro cerró la conexión sin respuesta.");
+            } else if ("JOB_COMPLETE".equals(response.type()) && "SUCCESS".equals(response.get("STATUS"))) {
+                Log.info("[DArray] ¡Trabajo completado exitosamente!");
+                return response;
+            } else {
+                Log.warn("[DArray] El trabajo falló. Razón: %s", response.getOrDefault("REASON", "Desconocida"));
+            }
+        } catch (IOException e) {
+            Log.error(e, "[DArray] Error de comunicación con el Maestro");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    // Un intento completo sobre una conexión: la respuesta final con los JOB_RESULT reunidos, o null si el
+    // Maestro cerró la conexión antes de responder.
+    private Message stream(MaestroClient client, Message start, int frameSize, int totalFrames) throws IOException, InterruptedException {
+        MessageChannel channel = client.borrow();
+        boolean reusable = false;
+        try {
+            MessageChannel out = channel;
+            out.write(start);
+
+            Thread sender = ConnectionExecutors.startThread("DArray-Sender", () -> {
+                try {
+                    for (int i = 0; i < totalFrames; i++) {
+                        int from = i * frameSize;
+                        out.write(new Message("JOB_FRAME")
+                                .put("CHUNK_INDEX", String.valueOf(i))
+                                .setData(new DoubleChunk(localData, from, Math.min(frameSize, localData.length - from))));
+                    }
+                } catch (IOException e) {
+                    Log.warn("[DArray] Envío en streaming interrumpido: %s", e.getMessage());
+                }
+            });
+
+            ResultAssembler results = new ResultAssembler(localData.length);
+            while (true) {
+                Message response = channel.read();
+                if (response == null) return null;
+                if ("JOB_RESULT".equals(response.type())) {
+                    results.append(response.getData());
+                } else if ("JOB_COMPLETE".equals(response.type()) && "SUCCESS".equals(response.get("STATUS"))) {
+                    sender.join();
+                    reusable = true;
+                    return results.attachTo(response);
+                } else {
+                    return response;
+                }
+            }
+        } finally {
+            // Tras un fallo pueden quedar frames sin leer en la conexión: no se devuelve al pool.
+            if (reusable) client.release(channel); else client.discard(channel);
+        }
+    }
+
     public List<Double> collect() {
-        return new ArrayList<>(this.localData);
+        return Arrays.stream(this.localData).boxed().collect(Collectors.toList());
+    }
+
+    public double[] toArray() {
+        return this.localData.clone();
+    }
+
+    public int size() {
+        return this.localData.length;
     }
 
     @Override
     public String toString() {
-        String dataPreview = localData.stream().limit(5).map(d -> String.format("%.2f", d)).collect(Collectors.joining(", "));
-        return "DArrayDouble(size=" + localData.size() + ", data=[" + dataPreview + "...])";
+        String dataPreview = Arrays.stream(localData).limit(5).mapToObj(d -> String.format("%.2f", d)).collect(Collectors.joining(", "));
+        return "DArrayDouble(size=" + localData.length + ", data=[" + dataPreview + "...])";
     }
-}
\ No newline at end of file
+}
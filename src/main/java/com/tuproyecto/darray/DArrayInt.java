@@ -1,72 +1,146 @@
 package com.tuproyecto.darray;
 
-import com.tuproyecto.protocol.ProtocolParser;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.operation.Aggregation;
+import com.tuproyecto.operation.OperationRegistry;
+import com.tuproyecto.protocol.Message;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 public class DArrayInt {
     private final String maestroHost;
     private final int maestroTcpPort;
-    private List<Integer> localData;
+    private final int[] localData;
 
     public DArrayInt(String maestroHost, int maestroTcpPort, List<Integer> data) {
+        this(data.stream().mapToInt(Integer::intValue).toArray(), maestroHost, maestroTcpPort);
+    }
+
+    public DArrayInt(String maestroHost, int maestroTcpPort, int[] data) {
+        this(data.clone(), maestroHost, maestroTcpPort);
+    }
+
+    // Adopta el array sin copiarlo (resultados recién recibidos del Maestro).
+    private DArrayInt(int[] data, String maestroHost, int maestroTcpPort) {
         this.maestroHost = maestroHost;
         this.maestroTcpPort = maestroTcpPort;
-        this.localData = new ArrayList<>(data);
+        this.localData = data;
     }
 
+    // Resultados de planes, que se calculan en double: se truncan a int.
+    static DArrayInt wrap(String maestroHost, int maestroTcpPort, DoubleChunk chunk) {
+        return wrap(maestroHost, maestroTcpPort, chunk.toInts());
+    }
+
+    static DArrayInt wrap(String maestroHost, int maestroTcpPort, IntChunk chunk) {
+        return new DArrayInt(chunk.compact().array(), maestroHost, maestroTcpPort);
+    }
+
+    // int -> int: los datos viajan como ints de 4 bytes y los workers calculan con el IntKernel de la
+    // operación (o, si no lo hay, con el de doubles truncando el resultado).
     public DArrayInt map(String operationId) {
-        System.out.printf("[DArrayInt] Enviando trabajo al Maestro...\n");
-        List<Double> dataAsDouble = this.localData.stream().map(Integer::doubleValue).collect(Collectors.toList());
-
-        try (Socket socket = new Socket(maestroHost, maestroTcpPort);
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-            
-            Map<String, String> jobRequestMap = new HashMap<>();
-            jobRequestMap.put("TYPE", "CLIENT_JOB");
-            jobRequestMap.put("JOB_ID", "job-" + System.currentTimeMillis());
-            jobRequestMap.put("OPERATION", operationId);
-            String dataStr = dataAsDouble.stream().map(String::valueOf).collect(Collectors.joining(","));
-            jobRequestMap.put("DATA", dataStr);
-            out.println(ProtocolParser.create(jobRequestMap));
-
-            String responseLine = in.readLine();
-            if (responseLine == null) return null;
-
-            Map<String, String> response = ProtocolParser.parse(responseLine);
-
-            if ("JOB_COMPLETE".equals(response.get("TYPE")) && "SUCCESS".equals(response.get("STATUS"))) {
-                List<Integer> resultData = ProtocolParser.parseData(response.get("DATA")).stream()
-                                                         .map(Double::intValue).collect(Collectors.toList());
-                System.out.println("[DArrayInt] ¡Trabajo completado exitosamente!");
-                return new DArrayInt(maestroHost, maestroTcpPort, resultData);
+        Message response = submit(operationId, "INT");
+        if (response == null) return null;
+        // Un Maestro anterior devuelve doubles: se truncan como antes.
+        IntChunk result = (response.getIntData() != null) ? response.getIntData()
+                : (response.getData() != null) ? response.getData().toInts() : IntChunk.empty();
+        return wrap(maestroHost, maestroTcpPort, result);
+    }
+
+    // int -> double: la entrada viaja como ints y el resultado como doubles (p. ej. COMPLEX_OP).
+    public DArrayDouble mapToDouble(String operationId) {
+        Message response = submit(operationId, "DOUBLE");
+        if (response == null) return null;
+        return DArrayDouble.wrap(maestroHost, maestroTcpPort, (response.getData() != null) ? response.getData() : DoubleChunk.empty());
+    }
+
+    private Message submit(String operationId, String resultType) {
+        return submit(new Message("CLIENT_JOB")
+                .put("OPERATION", operationId)
+                .put("RESULT_TYPE", resultType)
+                .put("STREAM_RESULTS", "true"));
+    }
+
+    private Message submit(Message jobRequest) {
+        Log.info("[DArrayInt] Enviando trabajo al Maestro...");
+        try {
+            jobRequest.setIntData(localData); // se adopta sin copiar: localData no cambia
+
+            Message response = MaestroClient.forAddress(maestroHost, maestroTcpPort).request(jobRequest);
+            if (response == null) return null;
+
+            if ("JOB_COMPLETE".equals(response.type()) && "SUCCESS".equals(response.get("STATUS"))) {
+                Log.info("[DArrayInt] ¡Trabajo completado exitosamente!");
+                return response;
             } else {
-                System.err.println("[DArrayInt] El trabajo falló.");
+                Log.warn("[DArrayInt] El trabajo falló.");
                 return null;
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error(e, "[DArrayInt] Error de comunicación con el Maestro");
         }
         return null;
     }
 
+    // Los planes y el resto de agregaciones viajan como doubles; un int cabe sin pérdida en un double.
+    public LazyDArray lazy() { return asDoubles().lazy(); }
+
+    public ResidentDArray distribute() { return asDoubles().distribute(); }
+
+    public double reduce(String reducerName) { return asDoubles().reduce(reducerName); }
+
+    public DoubleSummaryStatistics stats() { return asDoubles().stats(); }
+
+    // sum/min/max viajan como ints y los workers los reducen en long (IntReducer), sin pasar por double.
+    public long sum() { return reduceLong("SUM"); }
+
+    public int min() { return (int) reduceLong("MIN"); }
+
+    public int max() { return (int) reduceLong("MAX"); }
+
+    public long count() { return asDoubles().count(); }
+
+    public double mean() { return asDoubles().mean(); }
+
+    public long[] histogram(int bins, double min, double max) { return asDoubles().histogram(bins, min, max); }
+
+    public long[] histogram(int bins) { return asDoubles().histogram(bins); }
+
+    // Un array vacío no produce parciales: el resultado es el neutro de la reducción, sin ir al Maestro.
+    private long reduceLong(String reducerName) {
+        if (localData.length == 0) return OperationRegistry.getDefault().lookupIntReducer(reducerName).identity();
+        Message jobRequest = new Message("CLIENT_JOB").put("OPERATION", "IDENTITY");
+        Aggregation.reduce(reducerName).writeTo(jobRequest.headers());
+        Message response = submit(jobRequest);
+        if (response == null || response.getPayload() == null) throw new IllegalStateException("La agregación REDUCE no se pudo completar");
+        return Aggregation.longValue(response.getPayload());
+    }
+
+    private DArrayDouble asDoubles() {
+        return DArrayDouble.wrap(maestroHost, maestroTcpPort, new IntChunk(localData).toDoubles());
+    }
+
     public List<Integer> collect() {
-        return new ArrayList<>(this.localData);
+        return Arrays.stream(this.localData).boxed().collect(Collectors.toList());
     }
-    
+
+    public int[] toArray() {
+        return this.localData.clone();
+    }
+
+    public int size() {
+        return this.localData.length;
+    }
+
     @Override
     public String toString() {
-        String dataPreview = localData.stream().limit(5).map(String::valueOf).collect(Collectors.joining(", "));
-        return "DArrayInt(size=" + localData.size() + ", data=[" + dataPreview + "...])";
+        String dataPreview = Arrays.stream(localData).limit(5).mapToObj(String::valueOf).collect(Collectors.joining(", "));
+        return "DArrayInt(size=" + localData.length + ", data=[" + dataPreview + "...])";
     }
-}
\ No newline at end of file
+}
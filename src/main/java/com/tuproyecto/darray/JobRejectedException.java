@@ -0,0 +1,15 @@
+package com.tuproyecto.darray;
+
+// El Maestro está saturado y no admitió el trabajo: conviene reintentarlo pasados retryAfterMillis().
+public class JobRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    public JobRejectedException(String reason, long retryAfterMillis) {
+        super("El Maestro rechazó el trabajo (" + reason + "); reintentar en " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long retryAfterMillis() { return retryAfterMillis; }
+}
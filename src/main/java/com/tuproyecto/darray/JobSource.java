@@ -0,0 +1,30 @@
+package com.tuproyecto.darray;
+
+import com.tuproyecto.operation.Aggregation;
+import com.tuproyecto.operation.Pipeline;
+import com.tuproyecto.protocol.Message;
+
+import java.util.UUID;
+
+// Origen de los datos de un LazyDArray: un array local que se sube con el trabajo o un array residente.
+// Devuelve el JOB_COMPLETE del Maestro, o null si el trabajo falló.
+@FunctionalInterface
+interface JobSource {
+    Message submit(Pipeline plan, Aggregation aggregation, boolean persist);
+
+    // Un plan de un solo MAP viaja con OPERATION como siempre; los demás añaden la cabecera PLAN.
+    // Si el resultado vuelve entero al cliente, se pide en streaming (un JOB_RESULT por chunk).
+    static void describe(Message job, Pipeline plan, Aggregation aggregation, boolean persist) {
+        if (plan.isEmpty()) {
+            job.put("OPERATION", "IDENTITY");
+        } else if (plan.isSingleMap()) {
+            job.put("OPERATION", plan.stages().get(0).name());
+        } else {
+            job.put("OPERATION", "PIPELINE").put("PLAN", plan.encode());
+        }
+        if (aggregation != null) aggregation.writeTo(job.headers());
+        // JOB_KEY: si el Maestro cae y el de reserva reanuda el trabajo, el reintento se une a él (ver MaestroClient).
+        if (persist) job.put("PERSIST", "true").put("JOB_KEY", UUID.randomUUID().toString());
+        if (aggregation == null && !persist) job.put("STREAM_RESULTS", "true");
+    }
+}
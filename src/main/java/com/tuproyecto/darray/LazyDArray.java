@@ -0,0 +1,99 @@
+package com.tuproyecto.darray;
+
+import com.tuproyecto.operation.Aggregation;
+import com.tuproyecto.operation.Pipeline;
+import com.tuproyecto.protocol.Message;
+
+import java.util.DoubleSummaryStatistics;
+
+// Plan diferido sobre un DArrayDouble o un ResidentDArray: las etapas sólo se acumulan y la operación
+// terminal (collect, persist, reduce, stats...) envía todo como un único trabajo que los workers aplican fusionado.
+// Es inmutable: cada etapa devuelve un LazyDArray nuevo y el original se puede reutilizar.
+public final class LazyDArray {
+    private final JobSource source;
+    private final String maestroHost;
+    private final int maestroTcpPort;
+    private final Pipeline plan;
+
+    LazyDArray(JobSource source, String maestroHost, int maestroTcpPort, Pipeline plan) {
+        this.source = source;
+        this.maestroHost = maestroHost;
+        this.maestroTcpPort = maestroTcpPort;
+        this.plan = plan;
+    }
+
+    public LazyDArray map(String operationId) { return with(plan.map(operationId)); }
+
+    public LazyDArray filter(String filterName) { return with(plan.filter(filterName)); }
+
+    public LazyDArray mapToInt() { return with(plan.toInt()); }
+
+    private LazyDArray with(Pipeline next) {
+        return new LazyDArray(source, maestroHost, maestroTcpPort, next);
+    }
+
+    public Pipeline plan() { return plan; }
+
+    // Devuelve null si el trabajo falla, igual que DArrayDouble.map.
+    public DArrayDouble collect() {
+        Message result = source.submit(plan, null, false);
+        return (result != null) ? DArrayDouble.wrap(maestroHost, maestroTcpPort, result.getData()) : null;
+    }
+
+    public DArrayInt collectInt() {
+        Message result = source.submit(plan, null, false);
+        return (result != null) ? DArrayInt.wrap(maestroHost, maestroTcpPort, result.getData()) : null;
+    }
+
+    // El resultado se queda en los workers como un array residente nuevo; devuelve null si falla.
+    public ResidentDArray persist() {
+        Message result = source.submit(plan, null, true);
+        return (result != null) ? new ResidentDArray(maestroHost, maestroTcpPort, result.get("ARRAY_ID"), Long.parseLong(result.get("SIZE"))) : null;
+    }
+
+    public double reduce(String reducerName) {
+        return aggregate(Aggregation.reduce(reducerName))[0];
+    }
+
+    public DoubleSummaryStatistics stats() {
+        double[] s = aggregate(Aggregation.stats());
+        return new DoubleSummaryStatistics((long) s[0], s[2], s[3], s[1]);
+    }
+
+    public double sum() { return reduce("SUM"); }
+
+    public double min() { return reduce("MIN"); }
+
+    public double max() { return reduce("MAX"); }
+
+    public long count() { return stats().getCount(); }
+
+    public double mean() { return stats().getAverage(); }
+
+    // Histograma de bins de igual anchura sobre [min, max]; los valores fuera del rango no se cuentan.
+    public long[] histogram(int bins, double min, double max) {
+        double[] counts = aggregate(Aggregation.histogram(bins, min, max));
+        long[] result = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) result[i] = (long) counts[i];
+        return result;
+    }
+
+    // Sin rango explícito se usa [min, max] del resultado, calculado antes con stats().
+    public long[] histogram(int bins) {
+        DoubleSummaryStatistics s = stats();
+        if (s.getCount() == 0) return new long[bins];
+        double max = (s.getMax() > s.getMin()) ? s.getMax() : s.getMin() + 1;
+        return histogram(bins, s.getMin(), max);
+    }
+
+    private double[] aggregate(Aggregation aggregation) {
+        Message result = source.submit(plan, aggregation, false);
+        if (result == null) throw new IllegalStateException("La agregación " + aggregation.kind() + " no se pudo completar");
+        return result.getData().toArray();
+    }
+
+    @Override
+    public String toString() {
+        return "LazyDArray(plan=" + plan + ")";
+    }
+}
@@ -0,0 +1,325 @@
+package com.tuproyecto.darray;
+
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MessageChannel;
+import com.tuproyecto.protocol.MultiplexedConnection;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Conexiones reutilizables hacia un Maestro, compartidas por todos los DArray que apuntan a él.
+// Cada conexión atiende un trabajo a la vez; las llamadas concurrentes toman conexiones distintas.
+// Las llamadas asíncronas comparten en cambio una única conexión multiplexada por Maestro.
+final class MaestroClient {
+    private static final int MAX_IDLE = Integer.getInteger("darray.client.maxIdleConnections", 4);
+    // Un trabajo rechazado por saturación (JOB_REJECTED) se reintenta tras el RETRY_AFTER que indica el Maestro.
+    private static final int MAX_RETRIES = Integer.getInteger("darray.client.maxRetries", 3);
+    private static final long MAX_RETRY_WAIT_MILLIS = Long.getLong("darray.client.maxRetryWaitMillis", 5000);
+    // Prioridad de los trabajos de este proceso en la cola de admisión del Maestro (mayor pasa antes).
+    private static final String PRIORITY = System.getProperty("darray.client.priority");
+    private static final ConcurrentMap<String, MaestroClient> CLIENTS = new ConcurrentHashMap<>();
+    // Maestro de reserva (host:puerto de clientes). Si el Maestro no responde, se reintenta en él durante
+    // FAILOVER_MILLIS mientras detecta la caída y toma el relevo; después las llamadas van directas a él.
+    private static final String STANDBY = System.getProperty("darray.maestro.standby");
+    private static final long FAILOVER_MILLIS = Long.getLong("darray.client.failoverMillis", 15000);
+    private static final long FAILOVER_RETRY_MILLIS = 250;
+    private static final ConcurrentMap<String, MaestroClient> FAILED_OVER = new ConcurrentHashMap<>();
+
+    private final String host;
+    private final int port;
+    private final MessageChannel.Format format;
+    private final Deque<MessageChannel> idle = new ConcurrentLinkedDeque<>();
+    private final ReentrantLock multiplexedLock = new ReentrantLock();
+    private volatile MultiplexedConnection multiplexed;
+
+    private MaestroClient(String host, int port, MessageChannel.Format format) {
+        this.host = host;
+        this.port = port;
+        this.format = format;
+    }
+
+    static MaestroClient forAddress(String host, int port) {
+        MessageChannel.Format format = MessageChannel.defaultFormat();
+        String address = host + ":" + port + "/" + format;
+        MaestroClient standby = FAILED_OVER.get(address);
+        return (standby != null) ? standby : CLIENTS.computeIfAbsent(address, k -> new MaestroClient(host, port, format));
+    }
+
+    // null si no hay reserva configurada o si éste ya es el de reserva.
+    private MaestroClient standby() {
+        if (STANDBY == null) return null;
+        int colon = STANDBY.lastIndexOf(':');
+        String standbyHost = STANDBY.substring(0, colon);
+        int standbyPort = Integer.parseInt(STANDBY.substring(colon + 1));
+        if (standbyHost.equals(host) && standbyPort == port) return null;
+        return CLIENTS.computeIfAbsent(standbyHost + ":" + standbyPort + "/" + format, k -> new MaestroClient(standbyHost, standbyPort, format));
+    }
+
+    private String address() {
+        return host + ":" + port + "/" + format;
+    }
+
+    // Petición/respuesta simple. Si el Maestro la rechaza por saturación se espera lo que indica y se
+    // reintenta hasta MAX_RETRIES veces; después se devuelve el propio JOB_REJECTED.
+    Message request(Message request) throws IOException {
+        withPriority(request);
+        Message response = sendOrFailOver(request);
+        for (int attempt = 0; attempt < MAX_RETRIES && isRejected(response); attempt++) {
+            long wait = Math.min(retryAfterMillis(response), MAX_RETRY_WAIT_MILLIS);
+            Log.info("[DArray] Maestro saturado; reintento %d/%d en %d ms", attempt + 1, MAX_RETRIES, wait);
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return response;
+            }
+            response = sendOrFailOver(request);
+        }
+        return response;
+    }
+
+    // Sin respuesta (conexión rechazada o cortada a mitad del trabajo) se pasa al Maestro de reserva, si lo
+    // hay. Un trabajo PERSIST que éste esté reanudando se reconoce por su JOB_KEY y no se repite.
+    private Message sendOrFailOver(Message request) throws IOException {
+        try {
+            Message response = send(request);
+            if (response != null) return response;
+        } catch (IOException e) {
+            if (standby() == null) throw e;
+        }
+        try {
+            return failOver(standby -> standby.send(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando al Maestro de reserva", e);
+        }
+    }
+
+    interface Attempt {
+        Message run(MaestroClient target) throws IOException, InterruptedException;
+    }
+
+    // Repite el intento en el Maestro de reserva hasta que responde o pasan FAILOVER_MILLIS (mientras detecta
+    // la caída del líder rechaza conexiones). Devuelve null si no hay reserva; también lo usa el streaming.
+    Message failOver(Attempt attempt) throws IOException, InterruptedException {
+        MaestroClient standby = standby();
+        if (standby == null) return null;
+        Log.warn("[DArray] El Maestro %s:%d no responde; reintentando en el de reserva %s:%d", host, port, standby.host, standby.port);
+        long deadline = System.currentTimeMillis() + FAILOVER_MILLIS;
+        IOException failure = null;
+        while (true) {
+            try {
+                Message response = attempt.run(standby);
+                if (response != null) {
+                    FAILED_OVER.put(address(), standby);
+                    return response;
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                if (failure != null) throw failure;
+                return null;
+            }
+            Thread.sleep(FAILOVER_RETRY_MILLIS);
+        }
+    }
+
+    // Si una conexión reutilizada resulta estar caída (p. ej. el Maestro se reinició), se reintenta una
+    // vez con una conexión nueva.
+    private Message send(Message request) throws IOException {
+        MessageChannel channel = idle.pollFirst();
+        if (channel != null) {
+            try {
+                channel.write(request);
+                Message response = readResponse(channel, request);
+                if (response != null) {
+                    release(channel);
+                    return response;
+                }
+            } catch (IOException e) {
+                // conexión obsoleta: se descarta y se reintenta abajo
+            }
+            discard(channel);
+        }
+        channel = open();
+        try {
+            channel.write(request);
+            Message response = readResponse(channel, request);
+            if (response != null) {
+                release(channel);
+            } else {
+                discard(channel);
+            }
+            return response;
+        } catch (IOException e) {
+            discard(channel);
+            throw e;
+        }
+    }
+
+    // Con STREAM_RESULTS el Maestro envía un JOB_RESULT por chunk, en orden, antes del JOB_COMPLETE.
+    private static Message readResponse(MessageChannel channel, Message request) throws IOException {
+        ResultAssembler results = null;
+        Message response;
+        while ((response = channel.read()) != null && "JOB_RESULT".equals(response.type())) {
+            if (results == null) results = new ResultAssembler(expectedLength(request));
+            results.append(response.getPayload());
+        }
+        if (response == null || !streamsResults(request) || !"JOB_COMPLETE".equals(response.type())) return response;
+        return (results != null ? results : new ResultAssembler(0)).attachTo(response);
+    }
+
+    static Message withPriority(Message request) {
+        if (PRIORITY != null && request.get("PRIORITY") == null) request.put("PRIORITY", PRIORITY);
+        return request;
+    }
+
+    private static boolean isRejected(Message response) {
+        return response != null && "JOB_REJECTED".equals(response.type());
+    }
+
+    private static long retryAfterMillis(Message response) {
+        try {
+            return Long.parseLong(response.getOrDefault("RETRY_AFTER", "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean streamsResults(Message request) {
+        return "true".equals(request.get("STREAM_RESULTS"));
+    }
+
+    private static int expectedLength(Message request) {
+        return (request.getPayload() != null) ? request.getPayload().length() : 0;
+    }
+
+    // Varias peticiones en vuelo sobre la misma conexión (siempre binaria), emparejadas por REQUEST_ID.
+    // Si el Maestro corta la conexión, fallan las pendientes y la siguiente llamada abre otra; con un Maestro
+    // de reserva configurado, cada petición fallida se repite en él como en request().
+    CompletableFuture<Message> requestAsync(Message request) {
+        withPriority(request);
+        MaestroClient standby = standby();
+        CompletableFuture<Message> response = sendAsync(request);
+        if (standby == null) return response;
+        return response.exceptionallyCompose(error -> {
+            if (!(unwrap(error) instanceof IOException)) return CompletableFuture.failedFuture(error);
+            Log.warn("[DArray] El Maestro %s:%d no responde; reintentando en el de reserva %s:%d", host, port, standby.host, standby.port);
+            return failOverAsync(standby, request, error, System.currentTimeMillis() + FAILOVER_MILLIS);
+        });
+    }
+
+    private CompletableFuture<Message> failOverAsync(MaestroClient standby, Message request, Throwable error, long deadline) {
+        if (!(unwrap(error) instanceof IOException) || System.currentTimeMillis() >= deadline) return CompletableFuture.failedFuture(error);
+        return CompletableFuture.supplyAsync(() -> standby.sendAsync(request), CompletableFuture.delayedExecutor(FAILOVER_RETRY_MILLIS, TimeUnit.MILLISECONDS))
+                .thenCompose(response -> response)
+                .thenApply(response -> {
+                    FAILED_OVER.put(address(), standby);
+                    return response;
+                })
+                .exceptionallyCompose(retryError -> failOverAsync(standby, request, retryError, deadline));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    private CompletableFuture<Message> sendAsync(Message request) {
+        try {
+            if (!streamsResults(request)) return multiplexed().request(request);
+            ResultAssembler results = new ResultAssembler(expectedLength(request));
+            return multiplexed().request(request, part -> results.append(part.getPayload()))
+                    .thenApply(response -> "JOB_COMPLETE".equals(response.type()) ? results.attachTo(response) : response);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Trabajo asíncrono: el future se completa con el JOB_COMPLETE convertido o falla con la razón del Maestro;
+    // si el Maestro está saturado falla con JobRejectedException y quien lo usa decide cuándo reintentar.
+    // Si quien lo usa lo cancela o vence su orTimeout, se avisa al Maestro para que no siga calculando.
+    <T> CompletableFuture<T> submitAsync(Message job, Function<Message, T> convert) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Message> response = requestAsync(job);
+        // El id del trabajo lo asigna el Maestro al final: se cancela por el REQUEST_ID de la petición.
+        String requestId = job.get("REQUEST_ID");
+        result.whenComplete((value, error) -> {
+            if (error instanceof CancellationException || error instanceof TimeoutException) cancel(requestId);
+        });
+        response.whenComplete((reply, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (isRejected(reply)) {
+                result.completeExceptionally(new JobRejectedException(reply.getOrDefault("REASON", "OVERLOADED"), retryAfterMillis(reply)));
+            } else if ("JOB_COMPLETE".equals(reply.type()) && "SUCCESS".equals(reply.get("STATUS"))) {
+                try {
+                    result.complete(convert.apply(reply));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            } else {
+                result.completeExceptionally(new IllegalStateException(
+                        "El trabajo falló: " + reply.getOrDefault("REASON", "Desconocida")));
+            }
+        });
+        return result;
+    }
+
+    // El Maestro deja de calcular el trabajo y responde a la petición original con REASON=CANCELLED.
+    private void cancel(String requestId) {
+        MultiplexedConnection connection = multiplexed;
+        if (requestId == null || connection == null || !connection.isOpen()) return;
+        try {
+            connection.send(new Message("CANCEL_JOB").put("REQUEST_ID", requestId));
+        } catch (IOException e) {
+            // la conexión cayó: el Maestro ya no tiene a quién responder y abandona el trabajo igualmente
+        }
+    }
+
+    private MultiplexedConnection multiplexed() throws IOException {
+        MultiplexedConnection connection = multiplexed;
+        if (connection != null && connection.isOpen()) return connection;
+        multiplexedLock.lock();
+        try {
+            if (multiplexed == null || !multiplexed.isOpen()) {
+                multiplexed = new MultiplexedConnection(host, port, "DArray-Client-" + host + ":" + port);
+            }
+            return multiplexed;
+        } finally {
+            multiplexedLock.unlock();
+        }
+    }
+
+    MessageChannel borrow() throws IOException {
+        MessageChannel channel = idle.pollFirst();
+        return channel != null && !channel.isClosed() ? channel : open();
+    }
+
+    void release(MessageChannel channel) {
+        if (channel.isClosed() || idle.size() >= MAX_IDLE) {
+            discard(channel);
+        } else {
+            idle.offerFirst(channel);
+        }
+    }
+
+    void discard(MessageChannel channel) {
+        try { channel.close(); } catch (IOException e) { /* ignorar */ }
+    }
+
+    private MessageChannel open() throws IOException {
+        return MessageChannel.connect(host, port, format);
+    }
+}
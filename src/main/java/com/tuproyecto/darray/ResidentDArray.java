@@ -0,0 +1,121 @@
+package com.tuproyecto.darray;
+
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.operation.Aggregation;
+import com.tuproyecto.operation.Pipeline;
+import com.tuproyecto.protocol.Message;
+
+import java.io.IOException;
+import java.util.DoubleSummaryStatistics;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+// Array repartido que vive en los workers (primario y réplica de cada chunk) entre trabajos.
+// map/filter/reduce se ejecutan donde están los chunks y producen arrays residentes nuevos;
+// los datos sólo vuelven al cliente con collect(). drop() libera la memoria en los workers.
+public final class ResidentDArray {
+    private final String maestroHost;
+    private final int maestroTcpPort;
+    private final String arrayId;
+    private final long size;
+
+    ResidentDArray(String maestroHost, int maestroTcpPort, String arrayId, long size) {
+        this.maestroHost = maestroHost;
+        this.maestroTcpPort = maestroTcpPort;
+        this.arrayId = arrayId;
+        this.size = size;
+    }
+
+    public String id() { return arrayId; }
+
+    public long size() { return size; }
+
+    // Cada transformación es un trabajo sin datos; para fusionar varias etapas usar lazy()...persist().
+    public ResidentDArray map(String operationId) { return lazy().map(operationId).persist(); }
+
+    public ResidentDArray filter(String filterName) { return lazy().filter(filterName).persist(); }
+
+    public ResidentDArray mapToInt() { return lazy().mapToInt().persist(); }
+
+    // Versiones sin bloqueo sobre la conexión compartida del cliente; ver DArrayDouble.mapAsync.
+    public CompletableFuture<ResidentDArray> mapAsync(String operationId) {
+        return submitAsync(Pipeline.of(operationId), null, true,
+                r -> new ResidentDArray(maestroHost, maestroTcpPort, r.get("ARRAY_ID"), Long.parseLong(r.get("SIZE"))));
+    }
+
+    public CompletableFuture<Double> reduceAsync(String reducerName) {
+        return submitAsync(Pipeline.empty(), Aggregation.reduce(reducerName), false, r -> r.getData().get(0));
+    }
+
+    public LazyDArray lazy() {
+        return new LazyDArray(this::submit, maestroHost, maestroTcpPort, Pipeline.empty());
+    }
+
+    public DArrayDouble collect() { return lazy().collect(); }
+
+    public DArrayInt collectInt() { return lazy().collectInt(); }
+
+    public double reduce(String reducerName) { return lazy().reduce(reducerName); }
+
+    public DoubleSummaryStatistics stats() { return lazy().stats(); }
+
+    public double sum() { return lazy().sum(); }
+
+    public double min() { return lazy().min(); }
+
+    public double max() { return lazy().max(); }
+
+    public long count() { return lazy().count(); }
+
+    public double mean() { return lazy().mean(); }
+
+    public long[] histogram(int bins, double min, double max) { return lazy().histogram(bins, min, max); }
+
+    public long[] histogram(int bins) { return lazy().histogram(bins); }
+
+    // Libera los chunks en los workers; el handle deja de ser válido.
+    public boolean drop() {
+        try {
+            Message response = MaestroClient.forAddress(maestroHost, maestroTcpPort)
+                    .request(new Message("DROP_ARRAY").put("ARRAY_ID", arrayId));
+            return response != null && "SUCCESS".equals(response.get("STATUS"));
+        } catch (IOException e) {
+            Log.error(e, "[DArray] Error de comunicación con el Maestro");
+        }
+        return false;
+    }
+
+    private <T> CompletableFuture<T> submitAsync(Pipeline plan, Aggregation aggregation, boolean persist, Function<Message, T> convert) {
+        Message jobRequest = new Message("CLIENT_JOB")
+                .put("SOURCE_ARRAY", arrayId);
+        JobSource.describe(jobRequest, plan, aggregation, persist);
+        return MaestroClient.forAddress(maestroHost, maestroTcpPort).submitAsync(jobRequest, convert);
+    }
+
+    private Message submit(Pipeline plan, Aggregation aggregation, boolean persist) {
+        Log.info("[DArray] Enviando trabajo sobre el array residente %s al Maestro en %s:%d...", arrayId, maestroHost, maestroTcpPort);
+        try {
+            Message jobRequest = new Message("CLIENT_JOB")
+                    .put("SOURCE_ARRAY", arrayId);
+            JobSource.describe(jobRequest, plan, aggregation, persist);
+
+            Message response = MaestroClient.forAddress(maestroHost, maestroTcpPort).request(jobRequest);
+            if (response == null) {
+                Log.error("[DArray] Error: El Maestro cerró la conexión sin respuesta.");
+                return null;
+            }
+            if ("JOB_COMPLETE".equals(response.type()) && "SUCCESS".equals(response.get("STATUS"))) {
+                return response;
+            }
+            Log.warn("[DArray] El trabajo falló. Razón: %s", response.getOrDefault("REASON", "Desconocida"));
+        } catch (IOException e) {
+            Log.error(e, "[DArray] Error de comunicación con el Maestro");
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "ResidentDArray(id=" + arrayId + ", size=" + size + ")";
+    }
+}
@@ -0,0 +1,54 @@
+package com.tuproyecto.darray;
+
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+import com.tuproyecto.protocol.Message;
+
+import java.util.Arrays;
+
+// Junta en un único array los JOB_RESULT que el Maestro envía en orden de índice: de doubles o de ints,
+// según el tipo de resultado del trabajo. Empieza con el tamaño esperado (el de la entrada) y sólo crece
+// si hace falta: cada resultado se copia una sola vez.
+final class ResultAssembler {
+    private final int expectedLength;
+    private double[] doubles;
+    private int[] ints;
+    private int filled;
+
+    ResultAssembler(int expectedLength) {
+        this.expectedLength = expectedLength;
+    }
+
+    void append(DataChunk part) {
+        if (part instanceof IntChunk) appendInts((IntChunk) part);
+        else appendDoubles((DoubleChunk) part);
+    }
+
+    private void appendDoubles(DoubleChunk part) {
+        if (doubles == null) {
+            doubles = new double[Math.max(expectedLength, part.length())];
+        } else if (filled + part.length() > doubles.length) {
+            doubles = Arrays.copyOf(doubles, Math.max(doubles.length * 2, filled + part.length()));
+        }
+        part.copyTo(doubles, filled);
+        filled += part.length();
+    }
+
+    private void appendInts(IntChunk part) {
+        if (ints == null) {
+            ints = new int[Math.max(expectedLength, part.length())];
+        } else if (filled + part.length() > ints.length) {
+            ints = Arrays.copyOf(ints, Math.max(ints.length * 2, filled + part.length()));
+        }
+        part.copyTo(ints, filled);
+        filled += part.length();
+    }
+
+    // El JOB_COMPLETE de un trabajo con resultados en streaming no trae datos: se le añade lo recibido.
+    Message attachTo(Message complete) {
+        if (complete.getPayload() != null) return complete;
+        if (ints != null) return complete.setIntData(new IntChunk(ints, 0, filled));
+        return complete.setData(new DoubleChunk((doubles != null) ? doubles : new double[0], 0, filled));
+    }
+}
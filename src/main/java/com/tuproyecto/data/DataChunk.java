@@ -0,0 +1,15 @@
+package com.tuproyecto.data;
+
+// Lo común a DoubleChunk e IntChunk: basta para quien reparte y reenvía chunks sin mirar sus valores (el Maestro).
+public interface DataChunk {
+    int length();
+
+    // Tamaño de cada elemento en bytes: 8 para double, 4 para int.
+    int elementBytes();
+
+    // Vista [from, to) sin copiar datos.
+    DataChunk slice(int from, int to);
+
+    // La misma vista si ya ocupa su array entero; si no, una copia que no retiene el array original.
+    DataChunk compact();
+}
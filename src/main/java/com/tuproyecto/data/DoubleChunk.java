@@ -0,0 +1,88 @@
+package com.tuproyecto.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Vista [offset, offset + length) sobre un double[] compartido. Los slices no copian datos.
+public final class DoubleChunk implements DataChunk {
+    private static final DoubleChunk EMPTY = new DoubleChunk(new double[0]);
+
+    private final double[] array;
+    private final int offset;
+    private final int length;
+
+    public DoubleChunk(double[] array) {
+        this(array, 0, array.length);
+    }
+
+    public DoubleChunk(double[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > array.length) {
+            throw new IndexOutOfBoundsException("Vista inválida: offset=" + offset + ", length=" + length + ", capacidad=" + array.length);
+        }
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static DoubleChunk empty() { return EMPTY; }
+
+    public double[] array() { return array; }
+
+    public int offset() { return offset; }
+
+    @Override
+    public int length() { return length; }
+
+    @Override
+    public int elementBytes() { return Double.BYTES; }
+
+    public double get(int index) { return array[offset + index]; }
+
+    public DoubleChunk slice(int from, int to) {
+        return new DoubleChunk(array, offset + from, to - from);
+    }
+
+    // Divide en n_parts vistas contiguas de tamaño ceil(length / n_parts), igual que el antiguo splitList.
+    public List<DoubleChunk> split(int n_parts) {
+        List<DoubleChunk> partitions = new ArrayList<>();
+        if (length == 0) return partitions;
+        int chunkSize = (int) Math.ceil((double) length / n_parts);
+        for (int i = 0; i < length; i += chunkSize) {
+            partitions.add(slice(i, Math.min(length, i + chunkSize)));
+        }
+        return partitions;
+    }
+
+    public void copyTo(double[] dest, int destPos) {
+        System.arraycopy(array, offset, dest, destPos, length);
+    }
+
+    public double[] toArray() {
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    @Override
+    public DoubleChunk compact() {
+        return (offset == 0 && length == array.length) ? this : new DoubleChunk(toArray());
+    }
+
+    // Conversión a int truncando cada valor, como un cast (int).
+    public IntChunk toInts() {
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) result[i] = (int) array[offset + i];
+        return new IntChunk(result);
+    }
+
+    public static DoubleChunk concat(List<DoubleChunk> chunks) {
+        int total = 0;
+        for (DoubleChunk c : chunks) total += c.length;
+        double[] result = new double[total];
+        int pos = 0;
+        for (DoubleChunk c : chunks) {
+            c.copyTo(result, pos);
+            pos += c.length;
+        }
+        return new DoubleChunk(result);
+    }
+}
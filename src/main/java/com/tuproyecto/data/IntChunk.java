@@ -0,0 +1,88 @@
+package com.tuproyecto.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Vista [offset, offset + length) sobre un int[] compartido. Los slices no copian datos.
+public final class IntChunk implements DataChunk {
+    private static final IntChunk EMPTY = new IntChunk(new int[0]);
+
+    private final int[] array;
+    private final int offset;
+    private final int length;
+
+    public IntChunk(int[] array) {
+        this(array, 0, array.length);
+    }
+
+    public IntChunk(int[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > array.length) {
+            throw new IndexOutOfBoundsException("Vista inválida: offset=" + offset + ", length=" + length + ", capacidad=" + array.length);
+        }
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static IntChunk empty() { return EMPTY; }
+
+    public int[] array() { return array; }
+
+    public int offset() { return offset; }
+
+    @Override
+    public int length() { return length; }
+
+    @Override
+    public int elementBytes() { return Integer.BYTES; }
+
+    public int get(int index) { return array[offset + index]; }
+
+    public IntChunk slice(int from, int to) {
+        return new IntChunk(array, offset + from, to - from);
+    }
+
+    // Divide en n_parts vistas contiguas de tamaño ceil(length / n_parts), igual que el antiguo splitList.
+    public List<IntChunk> split(int n_parts) {
+        List<IntChunk> partitions = new ArrayList<>();
+        if (length == 0) return partitions;
+        int chunkSize = (int) Math.ceil((double) length / n_parts);
+        for (int i = 0; i < length; i += chunkSize) {
+            partitions.add(slice(i, Math.min(length, i + chunkSize)));
+        }
+        return partitions;
+    }
+
+    public void copyTo(int[] dest, int destPos) {
+        System.arraycopy(array, offset, dest, destPos, length);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    @Override
+    public IntChunk compact() {
+        return (offset == 0 && length == array.length) ? this : new IntChunk(toArray());
+    }
+
+    // Conversión sin pérdida: todo int cabe exactamente en un double.
+    public DoubleChunk toDoubles() {
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) result[i] = array[offset + i];
+        return new DoubleChunk(result);
+    }
+
+    public static IntChunk concat(List<IntChunk> chunks) {
+        int total = 0;
+        for (IntChunk c : chunks) total += c.length;
+        int[] result = new int[total];
+        int pos = 0;
+        for (IntChunk c : chunks) {
+            c.copyTo(result, pos);
+            pos += c.length;
+        }
+        return new IntChunk(result);
+    }
+}
@@ -0,0 +1,54 @@
+package com.tuproyecto.maestro;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+// Reparto de chunks según la capacidad y la carga de cada worker. Los datos se cortan en más chunks
+// que workers para que los rápidos puedan llevarse varios y el más lento no marque la latencia.
+final class ChunkScheduler<W> {
+    private static final int CHUNKS_PER_WORKER = Integer.getInteger("darray.scheduler.chunksPerWorker", 4);
+    private static final int MIN_CHUNK_SIZE = Integer.getInteger("darray.scheduler.minChunkSize", 16 * 1024);
+
+    private final ToDoubleFunction<W> capacity; // elementos/s estimados (mayor = más rápido)
+    private final ToIntFunction<W> load;        // tareas pendientes en este momento
+
+    ChunkScheduler(ToDoubleFunction<W> capacity, ToIntFunction<W> load) {
+        this.capacity = capacity;
+        this.load = load;
+    }
+
+    // Al menos un chunk por worker (como siempre: un array pequeño también se reparte entre todos) y, por
+    // encima de eso, tantos como permita el tamaño mínimo, hasta CHUNKS_PER_WORKER por worker.
+    static int chunkCount(int totalSize, int workers) {
+        int bySize = (totalSize + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE;
+        int perWorker = Math.min(workers, totalSize);
+        return Math.max(1, Math.max(perWorker, Math.min(bySize, workers * CHUNKS_PER_WORKER)));
+    }
+
+    // Cada chunk va al worker que antes lo terminaría: (pendientes + 1) / capacidad mínimo.
+    List<W> assign(List<W> workers, int chunks) {
+        int n = workers.size();
+        double[] capacities = new double[n];
+        int[] pending = new int[n];
+        for (int w = 0; w < n; w++) {
+            capacities[w] = Math.max(capacity.applyAsDouble(workers.get(w)), 1e-9);
+            pending[w] = load.applyAsInt(workers.get(w));
+        }
+        List<W> assignment = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int best = 0;
+            for (int w = 1; w < n; w++) {
+                if ((pending[w] + 1) / capacities[w] < (pending[best] + 1) / capacities[best]) best = w;
+            }
+            pending[best]++;
+            assignment.add(workers.get(best));
+        }
+        return assignment;
+    }
+
+    W pick(List<W> workers) {
+        return assign(workers, 1).get(0);
+    }
+}
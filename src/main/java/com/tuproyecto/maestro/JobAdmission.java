@@ -0,0 +1,121 @@
+package com.tuproyecto.maestro;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Control de admisión de trabajos: como mucho maxActive se reparten a la vez y el resto espera en una cola
+// acotada, por prioridad (mayor primero) y, a igual prioridad, por orden de llegada. Con la cola llena, un
+// trabajo de más prioridad desplaza al último de menos; si no, se rechaza enseguida en vez de encolarse para
+// acabar en timeout, y quien lo envió recibe una estimación de cuándo reintentar.
+final class JobAdmission {
+    private static final long MIN_RETRY_MILLIS = 50;
+
+    private static final class Waiter {
+        final int priority; final long arrival;
+        boolean evicted;
+        Waiter(int priority, long arrival) { this.priority = priority; this.arrival = arrival; }
+    }
+
+    private static final Comparator<Waiter> ORDER =
+            Comparator.<Waiter>comparingInt(w -> -w.priority).thenComparingLong(w -> w.arrival);
+
+    private final int maxActive;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(ORDER);
+    private long arrivals;
+    private int active;
+    private double meanJobMillis = 100; // media móvil de la duración de los trabajos, para RETRY_AFTER
+
+    JobAdmission(int maxActive, int maxQueued, long maxWaitMillis) {
+        this.maxActive = Math.max(1, maxActive);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    // true si el trabajo puede empezar (hay que llamar después a release); false si se rechaza.
+    boolean acquire(int priority) throws InterruptedException {
+        lock.lock();
+        try {
+            if (queue.isEmpty() && active < maxActive) {
+                active++;
+                return true;
+            }
+            if (queue.size() >= maxQueued && !evictLowerThan(priority)) return false;
+            Waiter self = new Waiter(priority, arrivals++);
+            queue.add(self);
+            long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+            try {
+                while (queue.peek() != self || active >= maxActive) {
+                    if (self.evicted || remaining <= 0) return false;
+                    remaining = changed.awaitNanos(remaining);
+                }
+                queue.poll();
+                active++;
+                return true;
+            } finally {
+                // Al salir (admitido, desplazado, timeout o interrupción) puede tocarle al siguiente
+                queue.remove(self);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long durationNanos) {
+        lock.lock();
+        try {
+            active--;
+            meanJobMillis = 0.8 * meanJobMillis + 0.2 * TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lo que tardaría en vaciarse, al ritmo actual, lo que hay por delante de un trabajo nuevo.
+    long retryAfterMillis() {
+        lock.lock();
+        try {
+            return Math.max(MIN_RETRY_MILLIS, (long) (meanJobMillis * (queue.size() + 1) / maxActive));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int active() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean evictLowerThan(int priority) {
+        Waiter last = null;
+        for (Waiter w : queue) {
+            if (last == null || ORDER.compare(w, last) > 0) last = w;
+        }
+        if (last == null || last.priority >= priority) return false;
+        queue.remove(last);
+        last.evicted = true;
+        changed.signalAll();
+        return true;
+    }
+}
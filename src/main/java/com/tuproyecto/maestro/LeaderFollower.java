@@ -0,0 +1,110 @@
+package com.tuproyecto.maestro;
+
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MessageChannel;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Lado del Maestro de reserva: se suscribe al registro de metadatos del líder (ver MetadataLog) y aplica
+// cada entrada. Todo lo que llega del líder, entradas o LOG_HEARTBEAT, alimenta un detector phi-accrual
+// como el de los workers; cuando phi supera el umbral (el líder calla o no acepta conexiones) se deja de
+// seguirle y se llama una sola vez a takeOver. Tras cada reconexión se vuelve a empezar por la instantánea.
+final class LeaderFollower {
+    private static final long RECONNECT_MILLIS = 200;
+
+    private final String leaderHost;
+    private final int leaderPort;
+    private final double phiThreshold;
+    private final PhiAccrualDetector detector;
+    private final Runnable reset;
+    private final Consumer<Message> apply;
+    private final Runnable takeOver;
+    private final AtomicBoolean leaderLost = new AtomicBoolean();
+    private final ReentrantLock applyLock = new ReentrantLock();
+    private volatile MessageChannel channel;
+    private volatile long applied; // SEQ de la última entrada aplicada
+
+    LeaderFollower(String leaderHost, int leaderPort, long heartbeatMillis, double phiThreshold,
+                   Runnable reset, Consumer<Message> apply, Runnable takeOver) {
+        this.leaderHost = leaderHost; this.leaderPort = leaderPort; this.phiThreshold = phiThreshold;
+        this.detector = new PhiAccrualDetector(heartbeatMillis, System.currentTimeMillis());
+        this.reset = reset; this.apply = apply; this.takeOver = takeOver;
+    }
+
+    long applied() {
+        return applied;
+    }
+
+    void start(ScheduledExecutorService scheduler, long checkMillis) {
+        Thread reader = new Thread(this::follow, "Maestro-Standby");
+        reader.setDaemon(true);
+        reader.start();
+        ScheduledFuture<?>[] check = new ScheduledFuture<?>[1];
+        check[0] = scheduler.scheduleAtFixedRate(() -> {
+            long now = System.currentTimeMillis();
+            double phi = detector.phi(now);
+            if (phi <= phiThreshold || !leaderLost.compareAndSet(false, true)) return;
+            Log.warn("[MAESTRO] [HA] Líder %s:%d caído (phi=%.1f tras %d ms sin noticias)", leaderHost, leaderPort, phi, detector.millisSinceLastHeartbeat(now));
+            check[0].cancel(false);
+            closeChannel();
+            applyLock.lock(); // la entrada que se estuviera aplicando termina antes
+            try {
+                takeOver.run();
+            } finally {
+                applyLock.unlock();
+            }
+        }, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void follow() {
+        while (!leaderLost.get()) {
+            try (MessageChannel leader = MessageChannel.connect(leaderHost, leaderPort, MessageChannel.Format.BINARY)) {
+                channel = leader;
+                leader.write(new Message("LOG_SUBSCRIBE"));
+                applyLock.lock();
+                try {
+                    if (leaderLost.get()) break;
+                    reset.run();
+                } finally {
+                    applyLock.unlock();
+                }
+                Log.info("[MAESTRO] [HA] Siguiendo el registro del líder %s:%d", leaderHost, leaderPort);
+                Message entry;
+                while (!leaderLost.get() && (entry = leader.read()) != null) {
+                    detector.heartbeat(System.currentTimeMillis());
+                    if ("LOG_HEARTBEAT".equals(entry.type())) continue;
+                    applyLock.lock();
+                    try {
+                        if (leaderLost.get()) break;
+                        apply.accept(entry);
+                        applied = Long.parseLong(entry.getOrDefault("SEQ", "0"));
+                    } finally {
+                        applyLock.unlock();
+                    }
+                }
+            } catch (IOException e) {
+                if (!leaderLost.get()) Log.debug("[MAESTRO] [HA] Sin conexión con el líder: %s", e.getMessage());
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void closeChannel() {
+        MessageChannel current = channel;
+        if (current == null) return;
+        try {
+            current.close();
+        } catch (IOException ignored) { /* el lector termina igualmente */ }
+    }
+}
@@ -1,54 +1,268 @@
 package com.tuproyecto.maestro;
 
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+import com.tuproyecto.metrics.Counter;
+import com.tuproyecto.metrics.LatencyHistogram;
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.metrics.MetricsRegistry;
+import com.tuproyecto.operation.Aggregation;
+import com.tuproyecto.operation.OperationRegistry;
+import com.tuproyecto.operation.Pipeline;
+import com.tuproyecto.protocol.ChunkKey;
+import com.tuproyecto.protocol.ConnectionExecutors;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MessageChannel;
+import com.tuproyecto.protocol.MultiplexedConnection;
 import com.tuproyecto.protocol.ProtocolParser;
 
 import java.io.*;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 public class Maestro {
+    private final String host; // lo que se anuncia a los workers al tomar el relevo (MAESTRO_CHANGED)
     private final int udpPort;
     private final int tcpPort;
 
     // --- ESTADO CENTRALIZADO Y CONCURRENTE ---
     private final ConcurrentMap<String, WorkerInfo> workers = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, ChunkInfo> chunkDistribution = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ChunkKey, ChunkInfo> chunkDistribution = new ConcurrentHashMap<>();
+    // Índice inverso worker -> chunks que guarda (como primario o réplica): la recuperación sólo toca esos
+    private final ConcurrentMap<String, Set<ChunkKey>> chunksByWorker = new ConcurrentHashMap<>();
+    private final ReentrantLock recoveryLock = new ReentrantLock(); // serializa los cambios de primario/réplica
+    // Arrays residentes: sus chunks se quedan en los workers y su ubicación está en chunkDistribution
+    private final ConcurrentMap<String, ResidentArray> arrays = new ConcurrentHashMap<>();
+    private final AtomicLong arraySequence = new AtomicLong();
+    // Los ids de trabajos y arrays los asigna el Maestro: nunca coinciden entre clientes concurrentes.
+    private final AtomicLong jobSequence = new AtomicLong();
+    // Los workers guardan chunks en disco entre reinicios: los ids llevan la época de este Maestro para
+    // que un chunk antiguo nunca se confunda con uno de un trabajo o array nuevo que reciba el mismo número.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ChunkScheduler<WorkerInfo> chunkScheduler = new ChunkScheduler<>(this::capacityOf, w -> Math.max(w.inFlight.get(), w.queueDepth));
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final WorkerConnectionPool connectionPool = new WorkerConnectionPool();
+    // Conexiones de clientes y envíos a workers: hilos virtuales o pools de plataforma según -Ddarray.io
+    private final ExecutorService clientExecutor = ConnectionExecutors.perConnection("Maestro-Client");
+    private final ResultCache resultCache = new ResultCache(RESULT_CACHE_BYTES);
+    private final JobAdmission admission = new JobAdmission(MAX_ACTIVE_JOBS, MAX_QUEUED_JOBS, MAX_QUEUE_MILLIS);
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition capacityFreed = capacityLock.newCondition(); // algún worker terminó una tarea primaria
+    private final ExecutorService dispatchExecutor = ConnectionExecutors.forBlockingIo("Maestro-Dispatch", 4 * Runtime.getRuntime().availableProcessors());
+
+    // --- ALTA DISPONIBILIDAD (ver MetadataLog y startStandby) ---
+    private final MetadataLog metadataLog;
+    // En reserva: trabajos PERSIST sin terminar y chunks que ya guardaron, según el registro del líder
+    private final ConcurrentMap<String, Map<String, String>> replicatedJobs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Map<Integer, Integer>> replicatedStored = new ConcurrentHashMap<>();
+    // Tras tomar el relevo: trabajos reanudados por JOB_KEY (también un rato después de terminar, para el
+    // reintento del cliente) y workers que aún no se han vuelto a registrar
+    private final ConcurrentMap<String, Job> resumedJobs = new ConcurrentHashMap<>();
+    private final Set<String> awaitingRegistration = ConcurrentHashMap.newKeySet();
+
+    // --- MÉTRICAS (JMX com.tuproyecto:type=Metrics,name=maestro y /metrics) ---
+    private final MetricsRegistry metrics = MetricsRegistry.create("maestro");
+    private final Counter jobsSubmitted = metrics.counter("jobs.submitted");
+    private final Counter jobsCompleted = metrics.counter("jobs.completed");
+    private final Counter jobsFailed = metrics.counter("jobs.failed");
+    private final Counter jobsCancelled = metrics.counter("jobs.cancelled");
+    private final Counter jobsRejected = metrics.counter("jobs.rejected");
+    private final Counter chunksThrottled = metrics.counter("chunks.throttled");
+    private final Counter chunksDispatched = metrics.counter("chunks.dispatched");
+    private final Counter cacheHits = metrics.counter("cache.hits");
+    private final Counter cacheMisses = metrics.counter("cache.misses");
+    private final Counter workersDead = metrics.counter("recovery.workers_dead");
+    private final Counter chunksPromoted = metrics.counter("recovery.chunks_promoted");
+    private final Counter chunksLost = metrics.counter("recovery.chunks_lost");
+    private final Counter chunksFailedOver = metrics.counter("recovery.chunks_failed_over");
+    private final Counter chunksRedirected = metrics.counter("recovery.chunks_redirected_memory");
+    private final Counter chunksRedirectedOverload = metrics.counter("recovery.chunks_redirected_overload");
+    private final Counter speculationsLaunched = metrics.counter("speculation.launched");
+    private final Counter speculationsCancelled = metrics.counter("speculation.cancelled");
+    private final Counter takeovers = metrics.counter("ha.takeovers");
+    private final Counter jobsResumed = metrics.counter("ha.jobs_resumed");
+    private final LatencyHistogram jobDuration = metrics.histogram("job.duration");
+    private final LatencyHistogram admissionWait = metrics.histogram("job.admission_wait");
+    private final LatencyHistogram chunkDispatchWait = metrics.histogram("chunk.dispatch_wait"); // cola de dispatchExecutor
+    private final LatencyHistogram chunkSend = metrics.histogram("chunk.send");                  // serializar y escribir la tarea
+    private final LatencyHistogram chunkRoundTrip = metrics.histogram("chunk.round_trip");       // envío -> TASK_RESULT
+    private final LatencyHistogram chunkCompute = metrics.histogram("chunk.compute");            // lo que informa el worker
+    private final LatencyHistogram chunkTransfer = metrics.histogram("chunk.transfer");          // ida y vuelta menos cálculo
 
     private static class WorkerInfo {
-        String id; String host; int tcpPort; long lastHeartbeat; volatile String status = "ALIVE";
-        WorkerInfo(String id, String host, int tcpPort) { this.id = id; this.host = host; this.tcpPort = tcpPort; this.lastHeartbeat = System.currentTimeMillis(); }
+        String id; String host; int tcpPort; volatile String status = "ALIVE";
+        final PhiAccrualDetector detector; final long heartbeatMillis;
+        MessageChannel.Format protocol;
+        // Capacidad y carga anunciadas en los heartbeats, más las tareas primarias que este Maestro tiene en vuelo
+        volatile int cores = 1; volatile int queueDepth; volatile double throughput;
+        final AtomicInteger inFlight = new AtomicInteger();
+        WorkerInfo(String id, String host, int tcpPort, MessageChannel.Format protocol, long heartbeatMillis) {
+            this.id = id; this.host = host; this.tcpPort = tcpPort; this.protocol = protocol; this.heartbeatMillis = heartbeatMillis;
+            this.detector = new PhiAccrualDetector(heartbeatMillis, System.currentTimeMillis());
+        }
+
+        // Mismo worker con un detector nuevo: el tiempo sin heartbeats anterior no cuenta.
+        WorkerInfo restarted() {
+            WorkerInfo fresh = new WorkerInfo(id, host, tcpPort, protocol, heartbeatMillis);
+            fresh.cores = cores;
+            return fresh;
+        }
     }
     
+    // Ejecución especulativa: un chunk que tarda más de FACTOR veces la mediana del trabajo (y al menos
+    // MIN_MILLIS) se lanza también en su réplica y gana el primer resultado que llegue.
+    private static final boolean SPECULATION = Boolean.parseBoolean(System.getProperty("darray.speculation", "true"));
+    private static final double SPECULATION_FACTOR = Double.parseDouble(System.getProperty("darray.speculation.factor", "3"));
+    private static final long SPECULATION_MIN_MILLIS = Long.getLong("darray.speculation.minMillis", 500);
+    private static final long SPECULATION_CHECK_MILLIS = Long.getLong("darray.speculation.checkMillis", 200);
+
+    // Detección de fallos adaptativa: un worker se da por caído cuando phi supera el umbral (ver PhiAccrualDetector).
+    private static final double PHI_THRESHOLD = Double.parseDouble(System.getProperty("darray.failure.phiThreshold", "8"));
+    private static final long FAILURE_CHECK_MILLIS = Long.getLong("darray.failure.checkMillis", 100);
+
+    // Un worker sin memoria o con la cola llena rechaza el chunk (MEMORY_PRESSURE, OVERLOADED) y se reenvía a otro tras esta pausa.
+    private static final long MEMORY_RETRY_MILLIS = Long.getLong("darray.memory.retryMillis", 200);
+
+    // Caché de resultados por contenido (ver ResultCache). Desactivada por defecto: con ella cada chunk se
+    // recorre entero para calcular su hash antes de despacharlo, y sólo compensa si las entradas se repiten.
+    private static final long RESULT_CACHE_BYTES = Long.getLong("darray.cache.maxBytes", 0);
+
+    // Copias de cada chunk contando la del primario. Con replicación en cadena el primario reenvía los datos
+    // a la primera réplica y cada réplica a la siguiente: el Maestro envía cada chunk una sola vez.
+    private static final int REPLICATION_FACTOR = Math.max(1, Integer.getInteger("darray.replication.factor", 2));
+    private static final boolean CHAINED_REPLICATION = Boolean.parseBoolean(System.getProperty("darray.replication.chained", "true"));
+
+    // Control de admisión: trabajos repartiéndose a la vez, cola de espera por prioridad (PRIORITY) y
+    // tareas primarias en vuelo por núcleo anunciado de cada worker.
+    private static final int MAX_ACTIVE_JOBS = Integer.getInteger("darray.admission.maxActiveJobs", 64);
+    private static final int MAX_QUEUED_JOBS = Integer.getInteger("darray.admission.maxQueuedJobs", 256);
+    private static final long MAX_QUEUE_MILLIS = Long.getLong("darray.admission.maxQueueMillis", 10000);
+    private static final int IN_FLIGHT_PER_CORE = Integer.getInteger("darray.admission.inFlightPerCore", 4);
+
+    // Alta disponibilidad: LOG_HEARTBEAT del líder a sus reservas cuando no hay entradas nuevas; plazo de un
+    // trabajo reanudado tras el relevo (se renueva si el cliente se une a él) y espera máxima a que los workers
+    // conocidos se vuelvan a registrar antes de pedirles nada.
+    private static final long HA_HEARTBEAT_MILLIS = Long.getLong("darray.ha.heartbeatMillis", 500);
+    private static final long RESUME_MILLIS = Long.getLong("darray.ha.resumeMillis", 60000);
+    private static final long REREGISTER_MILLIS = Long.getLong("darray.ha.reregisterMillis", 5000);
+
+    private static final List<String> TASK_OPTION_KEYS = Arrays.asList("PLAN", "AGGREGATE", "REDUCER", "BINS", "HIST_MIN", "HIST_MAX", "RESULT_TYPE");
+
+    // Todo el estado de un trabajo cuelga de su Job, indexado por posición de chunk: trabajos concurrentes
+    // sólo comparten las tablas de ubicación, con claves que llevan el id del trabajo.
     private static class Job {
-        String id; String operation; ConcurrentMap<String, List<Double>> results = new ConcurrentHashMap<>(); CountDownLatch latch;
-        Job(String id, String operation, int expectedChunks) {
-            this.id = id; this.operation = operation; this.latch = new CountDownLatch(expectedChunks);
+        final String id; final String operation; final ConcurrentMap<Integer, DataChunk> results = new ConcurrentHashMap<>(); final CountDownLatch latch;
+        // Entrada de cada chunk pendiente: si una réplica promovida no llegó a recibirla en la cadena, se reenvía
+        final ConcurrentMap<Integer, DataChunk> inputs = new ConcurrentHashMap<>();
+        ResultGatherer gatherer; // resultados en streaming: se reenvían en orden en vez de acumularse
+        Aggregation aggregation; // si no es null, los workers devuelven parciales y aquí se combinan
+        Map<String, String> taskOptions; // cabeceras del cliente (PLAN, AGGREGATE...) que se reenvían a los workers
+        final String task; // OPERATION más taskOptions en orden fijo: lo que se calcula sobre cada chunk
+        final boolean intResult; // RESULT_TYPE=INT: los resultados son IntChunk
+        final ConcurrentMap<Integer, ResultCache.Key> cacheKeys = new ConcurrentHashMap<>(); // chunks enviados que se pueden cachear
+        String sourceArrayId; // la entrada es un array residente: las tareas no llevan datos
+        String targetArrayId; // el resultado se queda en los workers como un array residente nuevo
+        ConcurrentMap<Integer, Integer> storedLengths = new ConcurrentHashMap<>();
+        // Seguimiento por chunk para la ejecución especulativa y para quedarse sólo con el primer resultado
+        ConcurrentMap<Integer, Long> startedAt = new ConcurrentHashMap<>();
+        Set<Integer> completed = ConcurrentHashMap.newKeySet();
+        Queue<Long> durations = new ConcurrentLinkedQueue<>();
+        ConcurrentMap<Integer, List<String>> speculated = new ConcurrentHashMap<>(); // idx -> workers que lo ejecutan
+        final long createdNanos = System.nanoTime();
+        volatile boolean cancelled; // CANCEL_JOB del cliente, o un worker rechazó la tarea por inválida
+        volatile String stopReason; // REASON del JOB_FAILED cuando cancelled
+        final MessageChannel client; final String requestId; // para localizar el trabajo al cancelarlo
+        // Alta disponibilidad: clave del cliente para unirse al trabajo si lo reanuda otro Maestro, entrada
+        // LOG_JOB que lo describe (sólo PERSIST) y, si es un trabajo reanudado, su desenlace y su plazo.
+        final String jobKey;
+        Map<String, String> record;
+        CompletableFuture<Message> resumed;
+        volatile long resumeDeadline;
+        Job(String id, Message request, MessageChannel client, int expectedChunks) {
+            this.id = id; this.operation = request.get("OPERATION"); this.latch = new CountDownLatch(expectedChunks);
+            this.client = client; this.requestId = request.get("REQUEST_ID"); this.jobKey = request.get("JOB_KEY");
+            this.aggregation = Aggregation.fromHeaders(request.headers());
+            // Valida el plan antes de repartirlo: sintaxis y filtros (un MAP desconocido es la identidad)
+            for (Pipeline.Stage stage : Pipeline.parse(request.get("PLAN")).stages()) {
+                if (stage.kind() == Pipeline.Kind.FILTER) OperationRegistry.getDefault().lookupFilter(stage.name());
+            }
+            this.taskOptions = new HashMap<>();
+            for (String key : TASK_OPTION_KEYS) {
+                String value = request.get(key);
+                if (value != null) taskOptions.put(key, value);
+            }
+            // Una entrada int da por defecto un resultado int. INPUT_TYPE permite al worker volver a int la
+            // copia de una réplica, que se guarda como double.
+            if (request.getIntData() != null) {
+                taskOptions.put("INPUT_TYPE", "INT");
+                if (aggregation == null) taskOptions.putIfAbsent("RESULT_TYPE", "INT");
+            }
+            String resultType = taskOptions.getOrDefault("RESULT_TYPE", "DOUBLE");
+            if (!"INT".equals(resultType) && !"DOUBLE".equals(resultType)) throw new IllegalArgumentException("RESULT_TYPE desconocido: " + resultType);
+            this.intResult = "INT".equals(resultType);
+            if (intResult && aggregation != null) throw new IllegalArgumentException("RESULT_TYPE=INT no admite AGGREGATE");
+            // Una reducción desconocida sólo fallaría en los workers: se rechaza aquí (una entrada int sin
+            // IntReducer se reduce con la DoubleReducer, que lanza si tampoco existe).
+            if (aggregation != null && aggregation.kind() == Aggregation.Kind.REDUCE
+                    && (request.getIntData() == null || aggregation.intReducer() == null)) {
+                OperationRegistry.getDefault().lookupReducer(aggregation.reducerName());
+            }
+            this.task = operation + new TreeMap<>(taskOptions);
         }
     }
     
+    private static class ResidentArray {
+        final String id; final int chunks; final long size;
+        ResidentArray(String id, int chunks, long size) { this.id = id; this.chunks = chunks; this.size = size; }
+    }
+
+    // Las réplicas van en el orden de la cadena de replicación. La lista no se modifica: se sustituye.
     private static class ChunkInfo {
-        String primaryWorkerId; String replicaWorkerId;
-        ChunkInfo(String p, String r) { this.primaryWorkerId = p; this.replicaWorkerId = r; }
+        String primaryWorkerId; List<String> replicaWorkerIds;
+        ChunkInfo(String p, List<String> r) { this.primaryWorkerId = p; this.replicaWorkerIds = List.copyOf(r); }
+        List<String> holders() {
+            List<String> holders = new ArrayList<>(replicaWorkerIds.size() + 1);
+            if (primaryWorkerId != null) holders.add(primaryWorkerId);
+            holders.addAll(replicaWorkerIds);
+            return holders;
+        }
     }
 
     public Maestro(String host, int udpPort, int tcpPort) {
-        this.udpPort = udpPort; this.tcpPort = tcpPort;
+        this.host = host; this.udpPort = udpPort; this.tcpPort = tcpPort;
+        this.metadataLog = new MetadataLog(HA_HEARTBEAT_MILLIS, metrics);
+        metrics.gauge("jobs.active", jobs::size);
+        metrics.gauge("chunks.tracked", chunkDistribution::size);
+        metrics.gauge("arrays.resident", arrays::size);
+        metrics.gauge("workers.alive", () -> workers.values().stream().filter(w -> "ALIVE".equals(w.status)).count());
+        metrics.gauge("tasks.in_flight", () -> workers.values().stream().mapToInt(w -> w.inFlight.get()).sum());
+        metrics.gauge("cache.bytes", resultCache::bytes);
+        metrics.gauge("admission.active", admission::active);
+        metrics.gauge("admission.queued", admission::queued);
+        metrics.gauge("workers.queue_depth", () -> workers.values().stream().mapToInt(w -> w.queueDepth).sum());
     }
 
     public void start() {
-        System.out.printf("[MAESTRO] Iniciando en UDP:%d y TCP:%d\n", udpPort, tcpPort);
+        Log.info("[MAESTRO] Iniciando en UDP:%d y TCP:%d (E/S: %s)", udpPort, tcpPort, ConnectionExecutors.mode());
         new Thread(this::listenForUdpMessages).start();
-        scheduler.scheduleAtFixedRate(this::watchdog, 5, 5, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(this::watchdog, FAILURE_CHECK_MILLIS, FAILURE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        if (SPECULATION) {
+            scheduler.scheduleAtFixedRate(this::speculateStragglers, SPECULATION_CHECK_MILLIS, SPECULATION_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
         new Thread(this::listenForClientJobs).start();
     }
 
     private void listenForUdpMessages() {
         try (DatagramSocket socket = new DatagramSocket(udpPort)) {
-            byte[] buffer = new byte[1024];
+            byte[] buffer = new byte[64 * 1024]; // REGISTER_WORKER puede traer la lista de chunks recuperados
             while (true) {
                 DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
                 socket.receive(packet);
@@ -60,194 +274,1327 @@ public class Maestro {
                 if ("REGISTER_WORKER".equals(message.get("TYPE"))) {
                     int workerTcpPort = Integer.parseInt(message.get("TCP_PORT"));
                     String workerHost = packet.getAddress().getHostAddress();
-                    workers.put(workerId, new WorkerInfo(workerId, workerHost, workerTcpPort));
-                    System.out.printf("[MAESTRO] Worker '%s' registrado.\n", workerId);
+                    // Los workers que no anuncian PROTOCOL=BINARY (p. ej. los nodos Python) se atienden en texto.
+                    MessageChannel.Format protocol = "BINARY".equals(message.get("PROTOCOL")) ? MessageChannel.Format.BINARY : MessageChannel.Format.TEXT;
+                    // Los workers que no anuncian su intervalo de heartbeat usan el antiguo de 3 s.
+                    long heartbeatMillis = Long.parseLong(message.getOrDefault("HEARTBEAT_MS", "3000"));
+                    WorkerInfo info = new WorkerInfo(workerId, workerHost, workerTcpPort, protocol, heartbeatMillis);
+                    updateLoad(info, message);
+                    workers.put(workerId, info);
+                    connectionPool.evict(workerId); // un re-registro implica que las conexiones previas ya no sirven
+                    awaitingRegistration.remove(workerId);
+                    metadataLog.append(() -> workerEntry(workerId));
+                    Log.info("[MAESTRO] Worker '%s' registrado (protocolo %s).", workerId, protocol);
+                    String stored = message.get("STORED_CHUNKS");
+                    if (stored != null) scheduler.submit(() -> adoptStoredChunks(workerId, stored.split(",")));
                 } else if ("HEARTBEAT".equals(message.get("TYPE"))) {
                     WorkerInfo info = workers.get(workerId);
                     if (info != null) {
-                        info.lastHeartbeat = System.currentTimeMillis();
+                        info.detector.heartbeat(System.currentTimeMillis());
+                        updateLoad(info, message);
                         if ("DEAD".equals(info.status)) {
                             info.status = "ALIVE";
-                            System.out.printf("[MAESTRO] Worker '%s' ha revivido.\n", workerId);
+                            Log.info("[MAESTRO] Worker '%s' ha revivido.", workerId);
                         }
                     }
                 }
             }
-        } catch (IOException e) { e.printStackTrace(); }
+        } catch (IOException e) { Log.error(e, "[MAESTRO] Error en el socket UDP"); }
+    }
+
+    // Los workers que no anuncian estos campos (p. ej. los nodos Python) conservan los valores por defecto.
+    private static void updateLoad(WorkerInfo info, Map<String, String> message) {
+        try {
+            if (message.containsKey("CORES")) info.cores = Integer.parseInt(message.get("CORES"));
+            if (message.containsKey("QUEUE")) info.queueDepth = Integer.parseInt(message.get("QUEUE"));
+            if (message.containsKey("THROUGHPUT")) info.throughput = Double.parseDouble(message.get("THROUGHPUT"));
+        } catch (NumberFormatException e) {
+            Log.warn("[MAESTRO] Heartbeat con métricas inválidas de %s: %s", info.id, e.getMessage());
+        }
+    }
+
+    // Sin medidas propias (worker recién llegado) se estima por núcleos con la media por núcleo del resto.
+    private double capacityOf(WorkerInfo worker) {
+        if (worker.throughput > 0) return worker.throughput;
+        double measured = 0; int measuredCores = 0;
+        for (WorkerInfo w : workers.values()) {
+            if (w.throughput > 0) { measured += w.throughput; measuredCores += w.cores; }
+        }
+        double perCore = (measuredCores > 0) ? measured / measuredCores : 1.0;
+        return perCore * Math.max(1, worker.cores);
     }
 
     private void watchdog() {
         long now = System.currentTimeMillis();
         for (WorkerInfo info : workers.values()) {
-            if ("ALIVE".equals(info.status) && (now - info.lastHeartbeat) > 8000) {
-                info.status = "DEAD";
-                System.err.printf("[MAESTRO] [WATCHDOG] Worker '%s' marcado como DEAD.\n", info.id);
-                scheduler.submit(() -> handleWorkerFailure(info.id));
+            double phi = info.detector.phi(now);
+            if ("ALIVE".equals(info.status) && phi > PHI_THRESHOLD) {
+                declareDead(info, String.format("phi=%.1f tras %d ms sin heartbeat", phi, info.detector.millisSinceLastHeartbeat(now)));
+            }
+        }
+    }
+
+    // Un worker reiniciado conserva en disco los chunks de arrays residentes: vuelve a ser poseedor de los
+    // que aún existen (primario si el actual está caído, réplica si faltan copias) y se le piden borrar los demás.
+    private void adoptStoredChunks(String workerId, String[] chunkIds) {
+        int adopted = 0;
+        Set<String> stale = new HashSet<>();
+        recoveryLock.lock();
+        try {
+            for (String chunkId : chunkIds) {
+                ChunkKey key;
+                try {
+                    key = ChunkKey.parse(chunkId);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                String ownerId = key.owner();
+                if (!arrays.containsKey(ownerId)) {
+                    if (!isLiveOwner(ownerId)) stale.add(ownerId);
+                    continue;
+                }
+                ChunkInfo info = chunkDistribution.get(key);
+                String primaryId = (info != null) ? info.primaryWorkerId : null;
+                List<String> replicaIds = (info != null) ? info.replicaWorkerIds : Collections.emptyList();
+                List<String> aliveReplicaIds = aliveIds(replicaIds);
+                if (workerId.equals(primaryId) || replicaIds.contains(workerId)) {
+                    placeChunk(key, primaryId, replicaIds); // sólo se repone el índice inverso
+                } else if (aliveWorker(primaryId) == null) {
+                    placeChunk(key, workerId, aliveReplicaIds);
+                } else if (aliveReplicaIds.size() < REPLICATION_FACTOR - 1) {
+                    aliveReplicaIds.add(workerId);
+                    placeChunk(key, primaryId, aliveReplicaIds);
+                } else {
+                    continue; // ya tiene todas sus copias vivas
+                }
+                adopted++;
             }
+        } finally {
+            recoveryLock.unlock();
+        }
+        Log.info("[MAESTRO] [RECOVERY] %s recupera %d de %d chunks guardados", workerId, adopted, chunkIds.length);
+        WorkerInfo worker = aliveWorker(workerId);
+        if (worker == null) return;
+        for (String ownerId : stale) {
+            Message release = ownerId.startsWith("arr-") ? new Message("DROP_ARRAY").put("ARRAY_ID", ownerId) : new Message("RELEASE_JOB").put("JOB_ID", ownerId);
+            dispatchExecutor.execute(() -> sendToWorker(worker, release, false));
+        }
+    }
+
+    // Un trabajo en curso, o el array que está creando un trabajo PERSIST (aún sin registrar).
+    private boolean isLiveOwner(String ownerId) {
+        return jobs.containsKey(ownerId) || jobs.values().stream().anyMatch(job -> ownerId.equals(job.targetArrayId));
+    }
+
+    // Lo invocan el watchdog y los errores de envío; sólo la primera llamada por caída inicia la recuperación.
+    private void declareDead(WorkerInfo info, String reason) {
+        synchronized (info) {
+            if (!"ALIVE".equals(info.status)) return;
+            info.status = "DEAD";
         }
+        workersDead.inc();
+        awaitingRegistration.remove(info.id);
+        Log.warn("[MAESTRO] [WATCHDOG] Worker '%s' marcado como DEAD (%s).", info.id, reason);
+        connectionPool.evict(info.id);
+        scheduler.submit(() -> handleWorkerFailure(info.id));
     }
 
+    // Sólo se recorren los chunks del worker caído, gracias al índice inverso.
     private void handleWorkerFailure(String deadWorkerId) {
-        System.out.printf("[MAESTRO] [RECOVERY] Iniciando recuperación para el worker caído %s\n", deadWorkerId);
-        for (Map.Entry<String, ChunkInfo> entry : chunkDistribution.entrySet()) {
-            String chunkId = entry.getKey();
-            ChunkInfo chunkInfo = entry.getValue();
-
-            if (deadWorkerId.equals(chunkInfo.primaryWorkerId)) {
-                System.out.printf("[MAESTRO] [RECOVERY] Chunk %s necesita recuperación.\n", chunkId);
-                String replicaId = chunkInfo.replicaWorkerId;
-                WorkerInfo replicaWorker = workers.get(replicaId);
-                
-                if (replicaWorker != null && "ALIVE".equals(replicaWorker.status)) {
-                    System.out.printf("[MAESTRO] [RECOVERY] Promoviendo a %s para el chunk %s\n", replicaId, chunkId);
+        Set<ChunkKey> affected = chunksByWorker.remove(deadWorkerId);
+        Log.info("[MAESTRO] [RECOVERY] Iniciando recuperación para el worker caído %s (%d chunks)", deadWorkerId, affected == null ? 0 : affected.size());
+        if (affected == null) return;
+        recoveryLock.lock();
+        try {
+            for (ChunkKey key : affected) {
+                ChunkInfo chunkInfo = chunkDistribution.get(key);
+                if (chunkInfo == null) continue;
+                if (chunkInfo.replicaWorkerIds.contains(deadWorkerId)) {
+                    chunkInfo.replicaWorkerIds = without(chunkInfo.replicaWorkerIds, deadWorkerId); // la copia se ha perdido
+                    replicatePlacement(key);
+                    continue;
+                }
+                if (!deadWorkerId.equals(chunkInfo.primaryWorkerId)) continue;
+
+                Job job = jobs.get(key.owner());
+                // Los chunks de trabajos ya terminados (y los de arrays residentes) sólo necesitan actualizar su ubicación.
+                boolean pending = job != null && !job.completed.contains(key.index());
+                WorkerInfo replicaWorker = firstAlive(chunkInfo.replicaWorkerIds);
+
+                if (replicaWorker != null) {
+                    String replicaId = replicaWorker.id;
+                    if (pending) Log.info("[MAESTRO] [RECOVERY] Promoviendo a %s para el chunk %s", replicaId, key);
+                    // Las demás réplicas se mantienen y no se elige una nueva: ningún otro worker tiene copia de estos datos.
                     chunkInfo.primaryWorkerId = replicaId;
-                    WorkerInfo newReplica = selectReplicaNode(Arrays.asList(replicaId));
-                    chunkInfo.replicaWorkerId = (newReplica != null) ? newReplica.id : null;
-                    
-                    String jobId = chunkId.split("-c")[0];
-                    Job job = jobs.get(jobId);
-                    if (job != null) {
-                        new Thread(() -> sendPromotionToWorker(replicaWorker, jobId, chunkId, job.operation)).start();
+                    chunkInfo.replicaWorkerIds = without(chunkInfo.replicaWorkerIds, replicaId);
+                    replicatePlacement(key);
+                    if (pending) {
+                        chunksPromoted.inc();
+                        dispatchExecutor.execute(() -> sendPromotionToWorker(replicaWorker, job, key));
                     }
                 } else {
-                    System.err.printf("[MAESTRO] [CRITICAL] ¡PÉRDIDA DE DATOS! No se encontró réplica viva para el chunk %s\n", chunkId);
-                    String jobId = chunkId.split("-c")[0];
-                    Job job = jobs.get(jobId);
-                    if (job != null && job.latch.getCount() > 0) job.latch.countDown();
+                    Log.error("[MAESTRO] [CRITICAL] ¡PÉRDIDA DE DATOS! No se encontró réplica viva para el chunk %s", key);
+                    chunksLost.inc();
+                    if (pending && job.completed.add(key.index())) job.latch.countDown();
                 }
             }
+        } finally {
+            recoveryLock.unlock();
         }
     }
 
+    // Error de envío a un primario: como el Maestro aún tiene los datos del chunk, se reenvían enseguida
+    // a la réplica (o al worker menos cargado) sin esperar al detector; después se declara caído el worker.
+    private void failoverChunk(WorkerInfo failed, Job job, ChunkKey key, DataChunk data, Throwable error) {
+        WorkerInfo target = (data != null) ? reassignPrimary(failed, job, key, false) : null;
+        if (target != null) {
+            Log.info("[MAESTRO] [RECOVERY] Reenviando %s a %s tras fallar %s", key, target.id, failed.id);
+            chunksFailedOver.inc();
+            target.inFlight.incrementAndGet();
+            dispatchExecutor.execute(() -> sendTaskToWorker(target, job, key, data, "PRIMARY"));
+        }
+        declareDead(failed, "error de envío: " + rootMessage(error));
+    }
+
+    // El worker rechazó el chunk por falta de memoria o por tener la cola llena pero sigue vivo: se reenvía
+    // a la réplica o a otro worker tras una pausa; si no hay ninguno más, se reintenta en el mismo.
+    private void redirectChunk(WorkerInfo rejecting, Job job, ChunkKey key, DataChunk data, String reason) {
+        WorkerInfo target = reassignPrimary(rejecting, job, key, true);
+        if (target == null) return;
+        boolean overloaded = "OVERLOADED".equals(reason);
+        Log.info("[MAESTRO] %s rechazó %s por %s; reintento en %s", rejecting.id, key, overloaded ? "saturación" : "memoria", target.id);
+        (overloaded ? chunksRedirectedOverload : chunksRedirected).inc();
+        target.inFlight.incrementAndGet();
+        scheduler.schedule(() -> {
+            // El trabajo pudo terminar durante la pausa (p. ej. por timeout): no se deja el chunk huérfano.
+            if (jobs.get(job.id) == job) dispatchExecutor.execute(() -> sendTaskToWorker(target, job, key, data, "PRIMARY"));
+            else taskFinished(target);
+        }, MEMORY_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Nuevo primario para un chunk pendiente cuyo primario actual es 'previous', o null si el chunk ya no
+    // está pendiente (o el trabajo terminó). Con keepPrevious el propio worker vale como último recurso.
+    private WorkerInfo reassignPrimary(WorkerInfo previous, Job job, ChunkKey key, boolean keepPrevious) {
+        recoveryLock.lock();
+        try {
+            ChunkInfo info = chunkDistribution.get(key);
+            if (info == null || !previous.id.equals(info.primaryWorkerId) || job.completed.contains(key.index())) return null;
+            WorkerInfo target = firstAlive(info.replicaWorkerIds);
+            if (target == null) {
+                List<WorkerInfo> others = workers.values().stream()
+                        .filter(w -> "ALIVE".equals(w.status) && !w.id.equals(previous.id)).collect(Collectors.toList());
+                if (!others.isEmpty()) target = chunkScheduler.pick(others);
+            }
+            if (target != null) {
+                placeChunk(key, target.id, without(info.replicaWorkerIds, target.id));
+            } else if (keepPrevious) {
+                target = previous;
+            }
+            return target;
+        } finally {
+            recoveryLock.unlock();
+        }
+    }
+
+    // Al terminar un trabajo (con éxito o no) se olvida y los workers liberan las entradas que guardaban.
+    // Los chunks de arrays residentes no cuelgan del trabajo y no se tocan.
+    private void releaseJob(Job job, int totalChunks) {
+        jobDuration.recordSince(job.createdNanos);
+        jobs.remove(job.id, job);
+        Set<String> holderIds = new HashSet<>();
+        recoveryLock.lock();
+        try {
+            for (int i = 0; i < totalChunks; i++) {
+                ChunkInfo info = removeChunk(new ChunkKey(job.id, i));
+                if (info != null) holderIds.addAll(info.holders());
+            }
+        } finally {
+            recoveryLock.unlock();
+        }
+        if (job.record != null) metadataLog.append(() -> new Message("LOG_JOB_END").put("JOB_ID", job.id));
+        // Sólo los trabajos con datos subidos dejan entradas en los workers.
+        if (job.sourceArrayId != null || job.targetArrayId != null) return;
+        for (String holderId : holderIds) {
+            WorkerInfo holder = aliveWorker(holderId);
+            if (holder != null) dispatchExecutor.execute(() -> sendToWorker(holder, new Message("RELEASE_JOB").put("JOB_ID", job.id), false));
+        }
+    }
+
+    private void placeChunk(ChunkKey key, String primaryId, List<String> replicaIds) {
+        ChunkInfo placed = new ChunkInfo(primaryId, replicaIds);
+        ChunkInfo previous = chunkDistribution.put(key, placed);
+        if (previous != null) {
+            for (String holderId : previous.holders()) unindex(holderId, key);
+        }
+        for (String holderId : placed.holders()) index(holderId, key);
+        replicatePlacement(key);
+    }
+
+    private ChunkInfo removeChunk(ChunkKey key) {
+        ChunkInfo removed = chunkDistribution.remove(key);
+        if (removed != null) {
+            for (String holderId : removed.holders()) unindex(holderId, key);
+            replicatePlacement(key);
+        }
+        return removed;
+    }
+
+    private void index(String workerId, ChunkKey key) {
+        if (workerId != null) chunksByWorker.computeIfAbsent(workerId, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private void unindex(String workerId, ChunkKey key) {
+        Set<ChunkKey> chunks = (workerId == null) ? null : chunksByWorker.get(workerId);
+        if (chunks != null) chunks.remove(key);
+    }
+
     private void listenForClientJobs() {
         try (ServerSocket serverSocket = new ServerSocket(tcpPort)) {
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                new Thread(() -> handleClientJob(clientSocket)).start();
+                clientExecutor.execute(() -> handleClientConnection(clientSocket));
             }
-        } catch (IOException e) { e.printStackTrace(); }
+        } catch (IOException e) { Log.error(e, "[MAESTRO] Error en el socket de clientes"); }
     }
 
-    private void handleClientJob(Socket clientSocket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
+    // Los clientes reutilizan la conexión: se atienden trabajos uno tras otro hasta que la cierren.
+    // Las peticiones con REQUEST_ID (clientes asíncronos) se atienden en paralelo sobre la misma conexión
+    // y su respuesta lleva el mismo REQUEST_ID; CANCEL_JOB se atiende en el propio hilo lector.
+    private void handleClientConnection(Socket clientSocket) {
+        try (MessageChannel channel = MessageChannel.accept(clientSocket)) {
+            Message message;
+            while ((message = channel.read()) != null) {
+                if ("CANCEL_JOB".equals(message.type())) {
+                    cancelJob(channel, message.get("REQUEST_ID"));
+                    continue;
+                }
+                if ("LOG_SUBSCRIBE".equals(message.type())) {
+                    // Un Maestro de reserva: a partir de aquí la conexión sólo lleva el registro hacia él.
+                    metadataLog.follow(channel, this::replicatedState);
+                    continue;
+                }
+                if (message.get("REQUEST_ID") != null && !"JOB_START".equals(message.type())) {
+                    Message request = message;
+                    clientExecutor.execute(() -> handleMultiplexedRequest(channel, request));
+                    continue;
+                }
+                boolean streaming = "JOB_START".equals(message.type());
+                boolean keepOpen;
+                try {
+                    if (streaming) keepOpen = admitted(channel, message, this::handleStreamingJob);
+                    else if ("DROP_ARRAY".equals(message.type())) keepOpen = handleDropArray(channel, message);
+                    else if (message.get("SOURCE_ARRAY") != null) keepOpen = admitted(channel, message, this::handleResidentJob);
+                    else keepOpen = admitted(channel, message, this::handleClientJob);
+                } catch (IllegalArgumentException e) {
+                    // Cabeceras mal formadas (p. ej. AGGREGATE desconocido); en streaming quedan frames sin leer.
+                    channel.write(new Message("JOB_FAILED").put("REASON", "INVALID_REQUEST"));
+                    keepOpen = !streaming;
+                }
+                if (!keepOpen) return;
+            }
+        } catch (Exception e) { Log.error(e, "[MAESTRO] Error atendiendo a un cliente"); }
+    }
+
+    private void handleMultiplexedRequest(MessageChannel channel, Message request) {
+        try {
+            try {
+                if ("DROP_ARRAY".equals(request.type())) handleDropArray(channel, request);
+                else if (request.get("SOURCE_ARRAY") != null) admitted(channel, request, this::handleResidentJob);
+                else admitted(channel, request, this::handleClientJob);
+            } catch (IllegalArgumentException e) {
+                channel.write(new Message("JOB_FAILED").inReplyTo(request).put("REASON", "INVALID_REQUEST"));
+            }
+        } catch (IOException e) {
+            Log.warn("[MAESTRO] No se pudo responder a la petición %s: %s", request.get("REQUEST_ID"), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            String line = in.readLine();
-            Map<String, String> message = ProtocolParser.parse(line);
-            List<Double> data = ProtocolParser.parseData(message.get("DATA"));
-            String operation = message.get("OPERATION");
-            String jobId = message.get("JOB_ID");
+    private interface JobHandler {
+        boolean handle(MessageChannel channel, Message request) throws IOException, InterruptedException;
+    }
 
-            List<WorkerInfo> aliveWorkers = workers.values().stream().filter(w -> "ALIVE".equals(w.status)).collect(Collectors.toList());
-            if (aliveWorkers.isEmpty()) {
-                out.println("TYPE=JOB_FAILED;REASON=NO_WORKERS_AVAILABLE"); return;
+    // Un trabajo sólo se reparte cuando la cola de admisión le da turno. Si la cola está llena o la espera
+    // vence, se responde enseguida JOB_REJECTED con RETRY_AFTER (ms) y el cliente decide si reintentar;
+    // en streaming quedan frames sin leer y la conexión se cierra.
+    private boolean admitted(MessageChannel channel, Message request, JobHandler handler) throws IOException, InterruptedException {
+        int priority = Integer.parseInt(request.getOrDefault("PRIORITY", "0"));
+        long queuedAt = System.nanoTime();
+        if (!admission.acquire(priority)) {
+            long retryAfter = admission.retryAfterMillis();
+            jobsRejected.inc();
+            Log.warn("[MAESTRO] Trabajo rechazado por saturación (%d activos, %d en cola); reintentar en %d ms",
+                    admission.active(), admission.queued(), retryAfter);
+            channel.write(new Message("JOB_REJECTED").inReplyTo(request)
+                    .put("REASON", "OVERLOADED").put("RETRY_AFTER", String.valueOf(retryAfter)));
+            return !"JOB_START".equals(request.type());
+        }
+        long admittedAt = System.nanoTime();
+        admissionWait.record(admittedAt - queuedAt);
+        try {
+            return handler.handle(channel, request);
+        } finally {
+            admission.release(System.nanoTime() - admittedAt);
+        }
+    }
+
+    // El cliente abandonó el trabajo (cancel() o timeout de su future): los workers dejan de calcular los
+    // chunks pendientes y el hilo que espera el trabajo se despierta y responde REASON=CANCELLED.
+    // El cliente no conoce aún el id del trabajo: lo identifica el REQUEST_ID con que lo pidió en esta conexión.
+    private void cancelJob(MessageChannel client, String requestId) {
+        if (requestId == null) return;
+        Job job = jobs.values().stream().filter(j -> j.client == client && requestId.equals(j.requestId)).findFirst().orElse(null);
+        if (job == null || job.cancelled) return;
+        jobsCancelled.inc();
+        Log.info("[MAESTRO] Trabajo %s cancelado por el cliente", job.id);
+        stopJob(job, "CANCELLED");
+    }
+
+    private void stopJob(Job job, String reason) {
+        job.stopReason = reason;
+        job.cancelled = true;
+        for (int idx : job.startedAt.keySet()) {
+            if (job.completed.contains(idx)) continue;
+            ChunkKey key = new ChunkKey(job.id, idx);
+            ChunkInfo info = chunkDistribution.get(key);
+            List<String> runners = job.speculated.getOrDefault(idx, (info != null) ? Collections.singletonList(info.primaryWorkerId) : Collections.emptyList());
+            for (String runnerId : runners) {
+                WorkerInfo runner = aliveWorker(runnerId);
+                if (runner != null) dispatchExecutor.execute(() -> sendToWorker(runner, new Message("CANCEL_TASK").put("JOB_ID", job.id).put("CHUNK_ID", key.toString()), false));
             }
+        }
+        while (job.latch.getCount() > 0) job.latch.countDown();
+    }
 
-            int n_workers = aliveWorkers.size();
-            List<List<Double>> chunks = splitList(data, n_workers);
-            Job job = new Job(jobId, operation, chunks.size());
-            jobs.put(jobId, job);
+    // Con STREAM_RESULTS cada chunk vuelve al cliente en cuanto es contiguo, sin reunir el array entero aquí.
+    // Los clientes que no lo piden (p. ej. los de Python) siguen recibiendo un único JOB_COMPLETE con todo.
+    private void streamResultsIfRequested(Job job, MessageChannel channel, Message request, int totalChunks) {
+        if ("true".equals(request.get("STREAM_RESULTS")) && job.aggregation == null && job.targetArrayId == null) {
+            job.gatherer = new ResultGatherer(channel, request, job.id, totalChunks);
+        }
+    }
 
+    private void finishJob(Job job, MessageChannel channel, Message request, boolean finished, int totalChunks) throws IOException {
+        if (job.gatherer == null) {
+            channel.write(outcome(jobOutcome(job, finished, totalChunks)).inReplyTo(request));
+        } else if (finished && !job.cancelled) {
+            job.gatherer.complete();
+            jobsCompleted.inc();
+        } else {
+            job.gatherer.fail(job.cancelled ? job.stopReason : "TIMEOUT");
+            jobsFailed.inc();
+        }
+    }
+
+    // Respuesta final una vez que el trabajo terminó, venció el plazo o lo canceló el cliente.
+    private Message jobOutcome(Job job, boolean finished, int totalChunks) {
+        if (job.cancelled) return new Message("JOB_FAILED").put("JOB_ID", job.id).put("REASON", job.stopReason);
+        return finished ? completionMessage(job, totalChunks) : new Message("JOB_FAILED").put("JOB_ID", job.id).put("REASON", "TIMEOUT");
+    }
+
+    private boolean handleClientJob(MessageChannel channel, Message message) throws IOException, InterruptedException {
+        DataChunk data = message.getPayload();
+        if (data == null) {
+            channel.write(outcome(new Message("JOB_FAILED").put("REASON", "BAD_REQUEST")).inReplyTo(message)); return true;
+        }
+        Job resumed = resumedJob(message);
+        if (resumed != null) return attachToResumed(channel, message, resumed);
+
+        List<WorkerInfo> aliveWorkers = workers.values().stream().filter(w -> "ALIVE".equals(w.status)).collect(Collectors.toList());
+        if (aliveWorkers.isEmpty()) {
+            channel.write(outcome(new Message("JOB_FAILED").put("REASON", "NO_WORKERS_AVAILABLE")).inReplyTo(message)); return true;
+        }
+
+        // Más chunks que workers, repartidos según capacidad y carga: los rápidos se llevan más.
+        int chunkCount = ChunkScheduler.chunkCount(data.length(), aliveWorkers.size());
+        List<? extends DataChunk> chunks = (data instanceof IntChunk) ? ((IntChunk) data).split(chunkCount) : ((DoubleChunk) data).split(chunkCount);
+        List<WorkerInfo> assignment = chunkScheduler.assign(aliveWorkers, chunks.size());
+        Job job = createJob(channel, message, chunks.size());
+        streamResultsIfRequested(job, channel, message, chunks.size());
+        jobs.put(job.id, job);
+
+        // Un array vacío no tiene chunks: el trabajo termina en el acto con un JOB_COMPLETE vacío.
+        try {
+            replicateJob(job, chunks.size(), chunks.isEmpty() ? 0 : chunks.get(0).length());
             for (int i = 0; i < chunks.size(); i++) {
-                final int idx = i;
-                String chunkId = jobId + "-c" + idx;
-                WorkerInfo primaryWorker = aliveWorkers.get(idx % n_workers);
-                WorkerInfo replicaWorker = selectReplicaNode(Arrays.asList(primaryWorker.id));
-                chunkDistribution.put(chunkId, new ChunkInfo(primaryWorker.id, replicaWorker != null ? replicaWorker.id : null));
-                
-                new Thread(() -> sendTaskToWorker(primaryWorker, jobId, chunkId, chunks.get(idx), operation, "PRIMARY")).start();
-                if (replicaWorker != null) {
-                    System.out.printf("[MAESTRO] Replicando %s en %s\n", chunkId, replicaWorker.id);
-                    new Thread(() -> sendTaskToWorker(replicaWorker, jobId, chunkId, chunks.get(idx), operation, "REPLICA")).start();
-                }
+                dispatchChunk(job, i, chunks.get(i), assignment.get(i));
+            }
+
+            finishJob(job, channel, message, job.latch.await(60, TimeUnit.SECONDS), chunks.size());
+        } finally {
+            releaseJob(job, chunks.size());
+        }
+        return true;
+    }
+
+    // Trabajo sobre un array residente: cada chunk se procesa donde ya está, sin subir datos.
+    private boolean handleResidentJob(MessageChannel channel, Message message) throws IOException, InterruptedException {
+        Job resumed = resumedJob(message);
+        if (resumed != null) return attachToResumed(channel, message, resumed);
+        String sourceId = message.get("SOURCE_ARRAY");
+        ResidentArray source = arrays.get(sourceId);
+        if (source == null) {
+            channel.write(outcome(new Message("JOB_FAILED").put("REASON", "UNKNOWN_ARRAY")).inReplyTo(message)); return true;
+        }
+
+        // Primero se comprueba que cada chunk tenga algún poseedor vivo; si el primario cayó, hace de primario la primera réplica.
+        List<List<WorkerInfo>> holders = new ArrayList<>(source.chunks);
+        for (int i = 0; i < source.chunks; i++) {
+            ChunkKey key = new ChunkKey(sourceId, i);
+            List<WorkerInfo> alive = aliveHolders(key);
+            if (alive.isEmpty()) {
+                Log.error("[MAESTRO] [CRITICAL] El chunk %s no tiene ningún poseedor vivo", key);
+                channel.write(outcome(new Message("JOB_FAILED").put("REASON", "CHUNK_LOST")).inReplyTo(message)); return true;
             }
+            holders.add(alive);
+        }
+
+        Job job = createJob(channel, message, source.chunks);
+        job.sourceArrayId = sourceId;
+        streamResultsIfRequested(job, channel, message, source.chunks);
+        jobs.put(job.id, job);
+        Log.info("[MAESTRO] Trabajo %s sobre el array residente %s (%d chunks)", job.id, sourceId, source.chunks);
+        try {
+            replicateJob(job, source.chunks, 0);
+            for (int i = 0; i < source.chunks; i++) {
+                List<WorkerInfo> chunkHolders = holders.get(i);
+                dispatchChunk(job, i, null, chunkHolders.get(0), chunkHolders.subList(1, chunkHolders.size()));
+            }
+
+            finishJob(job, channel, message, job.latch.await(60, TimeUnit.SECONDS), source.chunks);
+        } finally {
+            releaseJob(job, source.chunks);
+        }
+        return true;
+    }
+
+    private List<WorkerInfo> aliveHolders(ChunkKey key) {
+        ChunkInfo info = chunkDistribution.get(key);
+        List<WorkerInfo> alive = new ArrayList<>();
+        if (info != null) {
+            for (String holderId : info.holders()) {
+                WorkerInfo holder = aliveWorker(holderId);
+                if (holder != null) alive.add(holder);
+            }
+        }
+        return alive;
+    }
+
+    private boolean handleDropArray(MessageChannel channel, Message message) throws IOException {
+        String arrayId = message.get("ARRAY_ID");
+        ResidentArray array = arrays.remove(arrayId);
+        if (array != null) {
+            metadataLog.append(() -> arrayEntry(arrayId));
+            Set<String> holderIds = new HashSet<>();
+            for (int i = 0; i < array.chunks; i++) {
+                ChunkInfo info = removeChunk(new ChunkKey(arrayId, i));
+                if (info != null) holderIds.addAll(info.holders());
+            }
+            for (String holderId : holderIds) {
+                WorkerInfo holder = aliveWorker(holderId);
+                if (holder != null) dispatchExecutor.execute(() -> sendToWorker(holder, new Message("DROP_ARRAY").put("ARRAY_ID", arrayId), false));
+            }
+            Log.info("[MAESTRO] Array residente %s liberado en %d workers", arrayId, holderIds.size());
+        }
+        channel.write(new Message("ARRAY_DROPPED").inReplyTo(message).put("ARRAY_ID", arrayId).put("STATUS", array != null ? "SUCCESS" : "UNKNOWN_ARRAY"));
+        return true;
+    }
+
+    private WorkerInfo aliveWorker(String workerId) {
+        WorkerInfo worker = (workerId == null) ? null : workers.get(workerId);
+        return (worker != null && "ALIVE".equals(worker.status)) ? worker : null;
+    }
+
+    // Con PERSIST=true el resultado no vuelve al cliente: se registra como un array residente nuevo.
+    // El JOB_ID que pudiera traer el cliente se ignora: el id lo asigna el Maestro y vuelve en la respuesta.
+    private Job createJob(MessageChannel client, Message request, int expectedChunks) {
+        Job job = new Job("job-" + epoch + "-" + jobSequence.incrementAndGet(), request, client, expectedChunks);
+        if ("true".equals(request.get("PERSIST"))) {
+            if (job.aggregation != null) throw new IllegalArgumentException("PERSIST no admite AGGREGATE");
+            job.targetArrayId = "arr-" + epoch + "-" + arraySequence.incrementAndGet();
+        }
+        jobsSubmitted.inc();
+        return job;
+    }
+
+    // Cuenta el desenlace del trabajo según la respuesta que recibe el cliente.
+    private Message outcome(Message response) {
+        ("JOB_COMPLETE".equals(response.type()) ? jobsCompleted : jobsFailed).inc();
+        return response;
+    }
+
+    private Message completionMessage(Job job, int totalChunks) {
+        if (job.targetArrayId == null) {
+            return new Message("JOB_COMPLETE").put("JOB_ID", job.id).put("STATUS", "SUCCESS").setPayload(assembleResult(job, totalChunks));
+        }
+        if (job.storedLengths.size() < totalChunks) {
+            return new Message("JOB_FAILED").put("JOB_ID", job.id).put("REASON", "CHUNK_LOST");
+        }
+        // El array nuevo queda donde se calculó cada chunk (incluidas las promociones durante el trabajo).
+        long size = 0;
+        for (int i = 0; i < totalChunks; i++) {
+            size += job.storedLengths.get(i);
+            ChunkInfo info = chunkDistribution.get(new ChunkKey(job.id, i));
+            placeChunk(new ChunkKey(job.targetArrayId, i), info.primaryWorkerId, info.replicaWorkerIds);
+        }
+        arrays.put(job.targetArrayId, new ResidentArray(job.targetArrayId, totalChunks, size));
+        metadataLog.append(() -> arrayEntry(job.targetArrayId));
+        Log.info("[MAESTRO] Array residente %s creado: %d elementos en %d chunks", job.targetArrayId, size, totalChunks);
+        return new Message("JOB_COMPLETE").put("JOB_ID", job.id).put("STATUS", "SUCCESS")
+                .put("ARRAY_ID", job.targetArrayId).put("SIZE", String.valueOf(size)).put("CHUNKS", String.valueOf(totalChunks));
+    }
+
+    // Concatena los resultados en orden o, si el trabajo es una agregación, combina los parciales.
+    // Un chunk perdido sin réplica deja hueco en la concatenación y no aporta parcial a la agregación.
+    private DataChunk assembleResult(Job job, int totalChunks) {
+        List<DoubleChunk> partials = new ArrayList<>(totalChunks);
+        List<IntChunk> intPartials = new ArrayList<>();
+        for (int i = 0; i < totalChunks; i++) {
+            DataChunk partial = job.results.get(i);
+            if (partial instanceof IntChunk) intPartials.add((IntChunk) partial);
+            else if (partial != null) partials.add((DoubleChunk) partial);
+        }
+        if (job.intResult) return IntChunk.concat(intPartials);
+        if (job.aggregation != null && !intPartials.isEmpty()) {
+            // Parciales long de una REDUCE entera (ver Aggregation); los double de un worker de texto se truncan.
+            List<DataChunk> all = new ArrayList<>(intPartials);
+            all.addAll(partials);
+            return Aggregation.longPartial(job.aggregation.combineLongs(all));
+        }
+        if (job.aggregation != null) return new DoubleChunk(job.aggregation.combine(partials));
+        return DoubleChunk.concat(partials);
+    }
+
+    // Modo streaming: JOB_START con TOTAL_SIZE y FRAME_SIZE, seguido de un JOB_FRAME por chunk.
+    // Cada frame se despacha en cuanto llega y los resultados vuelven como JOB_RESULT en orden.
+    // Devuelve false si quedan frames sin leer en la conexión y hay que cerrarla.
+    private boolean handleStreamingJob(MessageChannel channel, Message start) throws IOException, InterruptedException {
+        int totalSize = Integer.parseInt(start.getOrDefault("TOTAL_SIZE", "-1"));
+        int frameSize = Integer.parseInt(start.getOrDefault("FRAME_SIZE", "0"));
+        if (totalSize < 0 || frameSize <= 0) {
+            channel.write(outcome(new Message("JOB_FAILED").put("REASON", "BAD_REQUEST")).inReplyTo(start)); return false;
+        }
+        Job resumed = resumedJob(start);
+        if (resumed != null) return attachToResumed(channel, start, resumed);
+
+        List<WorkerInfo> aliveWorkers = workers.values().stream().filter(w -> "ALIVE".equals(w.status)).collect(Collectors.toList());
+        if (aliveWorkers.isEmpty()) {
+            channel.write(outcome(new Message("JOB_FAILED").put("REASON", "NO_WORKERS_AVAILABLE"))); return false;
+        }
+
+        int totalChunks = frameCount(totalSize, frameSize);
+        Job job = createJob(channel, start, totalChunks);
+        // Una agregación o un array residente no tienen resultados parciales que reenviar.
+        if (job.aggregation == null && job.targetArrayId == null) job.gatherer = new ResultGatherer(channel, start, job.id, totalChunks);
+        jobs.put(job.id, job);
+        Log.info("[MAESTRO] Trabajo %s en streaming: %d elementos en %d frames", job.id, totalSize, totalChunks);
 
-            boolean finished = job.latch.await(60, TimeUnit.SECONDS);
-            
-            if(finished) {
-                List<Double> finalResult = new ArrayList<>();
-                for (int i = 0; i < chunks.size(); i++) {
-                    finalResult.addAll(job.results.getOrDefault(jobId + "-c" + i, Collections.emptyList()));
+        try {
+            replicateJob(job, totalChunks, frameSize);
+            BitSet arrived = new BitSet(totalChunks);
+            for (int received = 0; received < totalChunks; received++) {
+                Message frame = channel.read();
+                if (frame == null) {
+                    Log.warn("[MAESTRO] El cliente de %s cerró la conexión a mitad del envío.", job.id);
+                    jobsFailed.inc();
+                    return false;
                 }
-                Map<String, String> responseMap = new HashMap<>();
-                responseMap.put("TYPE", "JOB_COMPLETE");
-                responseMap.put("STATUS", "SUCCESS");
-                responseMap.put("DATA", finalResult.stream().map(String::valueOf).collect(Collectors.joining(",")));
-                out.println(ProtocolParser.create(responseMap));
-            } else {
-                 out.println("TYPE=JOB_FAILED;REASON=TIMEOUT");
+                int idx = frameIndex(frame, totalChunks);
+                if (idx < 0 || frame.getData() == null || arrived.get(idx)) {
+                    // Un índice repetido dejaría otro sin llegar nunca: se aborta en vez de esperar al timeout.
+                    Log.warn("[MAESTRO] Frame inválido en %s (%s, CHUNK_INDEX=%s); se aborta el trabajo", job.id, frame.type(), frame.get("CHUNK_INDEX"));
+                    stopJob(job, "BAD_REQUEST");
+                    if (job.gatherer != null) {
+                        job.gatherer.fail("BAD_REQUEST");
+                        jobsFailed.inc();
+                    } else {
+                        channel.write(outcome(new Message("JOB_FAILED").put("JOB_ID", job.id).put("REASON", "BAD_REQUEST")).inReplyTo(start));
+                    }
+                    return false;
+                }
+                arrived.set(idx);
+                dispatchChunk(job, idx, frame.getData(), aliveWorkers);
             }
-        } catch (Exception e) { e.printStackTrace(); }
+
+            finishJob(job, channel, start, job.latch.await(60, TimeUnit.SECONDS), totalChunks);
+        } finally {
+            releaseJob(job, totalChunks);
+        }
+        return true;
+    }
+
+    private static int frameCount(int totalSize, int frameSize) {
+        return (int) (((long) totalSize + frameSize - 1) / frameSize);
+    }
+
+    // Índice del JOB_FRAME dentro de [0, totalChunks), o -1 si el mensaje no es un frame válido.
+    private static int frameIndex(Message frame, int totalChunks) {
+        if (!"JOB_FRAME".equals(frame.type())) return -1;
+        try {
+            int idx = Integer.parseInt(frame.getOrDefault("CHUNK_INDEX", "-1"));
+            return (idx < totalChunks) ? idx : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // En streaming cada frame va al worker menos cargado en el momento en que llega.
+    private void dispatchChunk(Job job, int idx, DataChunk data, List<WorkerInfo> aliveWorkers) throws InterruptedException {
+        dispatchChunk(job, idx, data, chunkScheduler.pick(aliveWorkers));
+    }
+
+    private void dispatchChunk(Job job, int idx, DataChunk data, WorkerInfo primaryWorker) throws InterruptedException {
+        dispatchChunk(job, idx, data, primaryWorker, selectReplicaNodes(new ChunkKey(job.id, idx), primaryWorker.id));
+    }
+
+    // Sin datos (array residente) las réplicas sólo reciben la tarea si tienen que guardar el resultado.
+    // Con datos, las que pueden recibirlos en cadena se los llevan del primario (ver addReplicationChain).
+    private void dispatchChunk(Job job, int idx, DataChunk data, WorkerInfo primaryWorker, List<WorkerInfo> replicaWorkers) throws InterruptedException {
+        if (completeFromCache(job, idx, data) || !awaitCapacity(primaryWorker, job)) return;
+        ChunkKey key = new ChunkKey(job.id, idx);
+        placeChunk(key, primaryWorker.id, replicaWorkers.stream().map(w -> w.id).collect(Collectors.toList()));
+        if (data != null) job.inputs.put(idx, data);
+
+        primaryWorker.inFlight.incrementAndGet(); // se cuenta ya para que el siguiente reparto lo vea
+        job.startedAt.put(idx, System.currentTimeMillis());
+        chunksDispatched.inc();
+        long queuedAt = System.nanoTime();
+        dispatchExecutor.execute(() -> {
+            chunkDispatchWait.recordSince(queuedAt);
+            sendTaskToWorker(primaryWorker, job, key, data, "PRIMARY");
+        });
+        if (data == null && job.targetArrayId == null) return;
+        for (WorkerInfo replicaWorker : replicaWorkers) {
+            if (data != null && chainable(primaryWorker, replicaWorker)) continue;
+            Log.debug("[MAESTRO] Replicando %s en %s", key, replicaWorker.id);
+            dispatchExecutor.execute(() -> sendTaskToWorker(replicaWorker, job, key, data, "REPLICA"));
+        }
+    }
+
+    // Un chunk ya calculado con la misma entrada y la misma tarea se completa sin enviarlo a ningún worker.
+    // Los arrays persistidos no se cachean: su resultado tiene que quedar guardado en los workers.
+    private boolean completeFromCache(Job job, int idx, DataChunk data) {
+        if (!resultCache.enabled() || job.targetArrayId != null) return false;
+        ResultCache.Key cacheKey;
+        if (data != null) cacheKey = ResultCache.keyOf(data, job.task);
+        else if (job.sourceArrayId != null) cacheKey = ResultCache.keyOf(new ChunkKey(job.sourceArrayId, idx).toString(), job.task);
+        else return false;
+        DataChunk cached = resultCache.get(cacheKey);
+        if (cached == null) {
+            cacheMisses.inc();
+            job.cacheKeys.put(idx, cacheKey);
+            return false;
+        }
+        cacheHits.inc();
+        if (job.completed.add(idx)) {
+            deliverResult(job, new ChunkKey(job.id, idx), cached);
+            job.latch.countDown();
+        }
+        return true;
+    }
+
+    // La cadena sólo pasa por workers binarios: los de texto (p. ej. Python) reciben su copia del Maestro.
+    private static boolean chainable(WorkerInfo primary, WorkerInfo replica) {
+        return CHAINED_REPLICATION && primary.protocol == MessageChannel.Format.BINARY && replica.protocol == MessageChannel.Format.BINARY;
+    }
+
+    // REPLICATE_TO: direcciones de las réplicas a las que el primario reenvía el chunk, en orden. Se calcula
+    // en cada envío, así un chunk redirigido o reenviado tras un fallo sigue la ubicación actual.
+    private void addReplicationChain(WorkerInfo primary, ChunkKey key, Message task) {
+        ChunkInfo info = chunkDistribution.get(key);
+        if (info == null) return;
+        List<String> chain = new ArrayList<>();
+        for (String replicaId : info.replicaWorkerIds) {
+            WorkerInfo replica = aliveWorker(replicaId);
+            if (replica != null && !replica.id.equals(primary.id) && chainable(primary, replica)) chain.add(replica.host + ":" + replica.tcpPort);
+        }
+        if (!chain.isEmpty()) task.put("REPLICATE_TO", String.join(",", chain));
     }
     
-    private void sendTaskToWorker(WorkerInfo worker, String jobId, String chunkId, List<Double> data, String operation, String role) {
-        try (Socket socket = new Socket(worker.host, worker.tcpPort);
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-            
-            Map<String, String> taskMap = new HashMap<>();
-            taskMap.put("TYPE", "DISTRIBUTE_TASK");
-            taskMap.put("JOB_ID", jobId);
-            taskMap.put("CHUNK_ID", chunkId);
-            taskMap.put("ROLE", role);
-            taskMap.put("OPERATION", operation);
-            taskMap.put("DATA", data.stream().map(String::valueOf).collect(Collectors.joining(",")));
-            out.println(ProtocolParser.create(taskMap));
-
-            if ("PRIMARY".equals(role)) {
-                String responseLine = in.readLine();
-                Map<String, String> response = ProtocolParser.parse(responseLine);
-                if("SUCCESS".equals(response.get("STATUS"))) {
-                    handleTaskResult(jobId, chunkId, ProtocolParser.parseData(response.get("DATA")));
-                }
+    // Cada worker admite a la vez IN_FLIGHT_PER_CORE tareas primarias por núcleo anunciado: el reparto espera
+    // a que termine alguna en vez de llenarle la cola. Si el worker deja de estar vivo se envía igualmente
+    // (el error de envío lo reasigna); si el trabajo se canceló, el chunk ya no se envía (devuelve false).
+    private boolean awaitCapacity(WorkerInfo worker, Job job) throws InterruptedException {
+        if (worker.inFlight.get() < inFlightLimit(worker)) return true;
+        chunksThrottled.inc();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_QUEUE_MILLIS);
+        capacityLock.lock();
+        try {
+            // Espera acotada: los núcleos anunciados pueden cambiar con un heartbeat sin que nadie avise.
+            while (worker.inFlight.get() >= inFlightLimit(worker) && "ALIVE".equals(worker.status)
+                    && !job.cancelled && System.nanoTime() < deadline) {
+                capacityFreed.await(100, TimeUnit.MILLISECONDS);
             }
-        } catch (IOException e) {
-            System.err.printf("[MAESTRO] No se pudo enviar tarea a %s: %s\n", worker.id, e.getMessage());
+        } finally {
+            capacityLock.unlock();
         }
+        return !job.cancelled;
+    }
+
+    private static int inFlightLimit(WorkerInfo worker) {
+        return Math.max(1, worker.cores * IN_FLIGHT_PER_CORE);
+    }
+
+    private void taskFinished(WorkerInfo worker) {
+        worker.inFlight.decrementAndGet();
+        capacityLock.lock();
+        try {
+            capacityFreed.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    // Rechazos de un worker vivo que no dicen nada del chunk: se reintenta en otro (ver redirectChunk).
+    private static boolean isRedirectable(String reason) {
+        return "MEMORY_PRESSURE".equals(reason) || "OVERLOADED".equals(reason);
     }
 
-    private void sendPromotionToWorker(WorkerInfo worker, String jobId, String chunkId, String operation) {
-        try (Socket socket = new Socket(worker.host, worker.tcpPort);
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-             
-            Map<String, String> promoMap = new HashMap<>();
-            promoMap.put("TYPE", "PROMOTE_AND_EXECUTE");
-            promoMap.put("JOB_ID", jobId);
-            promoMap.put("CHUNK_ID", chunkId);
-            promoMap.put("OPERATION", operation);
-            out.println(ProtocolParser.create(promoMap));
+    private void sendTaskToWorker(WorkerInfo worker, Job job, ChunkKey key, DataChunk data, String role) {
+        Message task = new Message("DISTRIBUTE_TASK")
+                .put("JOB_ID", job.id)
+                .put("CHUNK_ID", key.toString())
+                .put("ROLE", role)
+                .put("OPERATION", job.operation)
+                .setPayload(payloadFor(worker, data));
+        task.headers().putAll(job.taskOptions);
+        addResidentChunkRefs(job, key, task);
 
-            String responseLine = in.readLine();
-            Map<String, String> response = ProtocolParser.parse(responseLine);
-            if("SUCCESS".equals(response.get("STATUS"))) {
-                handleTaskResult(jobId, chunkId, ProtocolParser.parseData(response.get("DATA")));
+        boolean primary = "PRIMARY".equals(role);
+        if (primary && data != null) addReplicationChain(worker, key, task);
+        long sendStart = System.nanoTime();
+        CompletableFuture<Message> reply = sendToWorker(worker, task, primary);
+        chunkSend.recordSince(sendStart);
+        reply.whenComplete((response, error) -> {
+            if (primary) taskFinished(worker);
+            if (primary && response != null) recordRoundTrip(sendStart, response);
+            if (error != null) {
+                Log.warn("[MAESTRO] No se pudo enviar tarea a %s: %s", worker.id, rootMessage(error));
+                if (primary) failoverChunk(worker, job, key, data, error);
+                else declareDead(worker, "error de envío: " + rootMessage(error));
+            } else if (response != null && "SUCCESS".equals(response.get("STATUS"))) {
+                handleTaskResult(job, key, worker, response);
+            } else if (primary && response != null && isRedirectable(response.get("REASON"))) {
+                redirectChunk(worker, job, key, data, response.get("REASON"));
+            } else if (response != null && "INVALID_REQUEST".equals(response.get("REASON"))) {
+                rejectJob(job, worker, key);
+            }
+        });
+    }
+
+    // Los workers de texto (p. ej. Python) sólo manejan doubles: una entrada int se les envía convertida
+    // y su resultado se vuelve a truncar a int al llegar (ver resultOf).
+    private static DataChunk payloadFor(WorkerInfo worker, DataChunk data) {
+        return (data instanceof IntChunk && worker.protocol != MessageChannel.Format.BINARY) ? ((IntChunk) data).toDoubles() : data;
+    }
+
+    private static DataChunk resultOf(Job job, Message response) {
+        DataChunk result = response.getPayload();
+        return (job.intResult && result instanceof DoubleChunk) ? ((DoubleChunk) result).toInts() : result;
+    }
+
+    // El worker informa de su tiempo de cálculo; el resto de la ida y vuelta es red, serialización y colas.
+    private void recordRoundTrip(long sendStart, Message response) {
+        long roundTrip = System.nanoTime() - sendStart;
+        chunkRoundTrip.record(roundTrip);
+        String computeMicros = response.get("COMPUTE_MICROS");
+        if (computeMicros == null) return;
+        try {
+            long compute = Long.parseLong(computeMicros) * 1000;
+            chunkCompute.record(compute);
+            chunkTransfer.record(roundTrip - compute);
+        } catch (NumberFormatException ignored) { /* workers antiguos */ }
+    }
+
+    private void sendPromotionToWorker(WorkerInfo worker, Job job, ChunkKey key) {
+        Message promotion = new Message("PROMOTE_AND_EXECUTE")
+                .put("JOB_ID", job.id)
+                .put("CHUNK_ID", key.toString())
+                .put("OPERATION", job.operation);
+        promotion.headers().putAll(job.taskOptions);
+        addResidentChunkRefs(job, key, promotion);
+
+        worker.inFlight.incrementAndGet();
+        sendToWorker(worker, promotion, true).whenComplete((response, error) -> {
+            taskFinished(worker);
+            if (error != null) {
+                Log.warn("[MAESTRO] No se pudo enviar promoción a %s: %s", worker.id, rootMessage(error));
+                declareDead(worker, "error de envío: " + rootMessage(error));
+            } else if (response != null && "SUCCESS".equals(response.get("STATUS"))) {
+                handleTaskResult(job, key, worker, response);
+            } else if (response != null && "CHUNK_NOT_FOUND".equals(response.get("REASON"))) {
+                resendInput(worker, job, key);
+            } else if (response != null && "INVALID_REQUEST".equals(response.get("REASON"))) {
+                rejectJob(job, worker, key);
+            }
+        });
+    }
+
+    // El worker no supo interpretar la tarea (operación, filtro o reducción que no conoce): ningún otro la
+    // calculará, así que el trabajo falla ya con INVALID_REQUEST en vez de esperar a su timeout.
+    private void rejectJob(Job job, WorkerInfo worker, ChunkKey key) {
+        if (job.cancelled || jobs.get(job.id) != job) return;
+        Log.warn("[MAESTRO] %s rechazó %s por inválida; se aborta el trabajo %s", worker.id, key, job.id);
+        stopJob(job, "INVALID_REQUEST");
+    }
+
+    // La réplica promovida no llegó a recibir el chunk (p. ej. el primario cayó antes de reenviarlo en la
+    // cadena): si el Maestro aún tiene la entrada, se le envía como primario.
+    private void resendInput(WorkerInfo worker, Job job, ChunkKey key) {
+        DataChunk data = job.inputs.get(key.index());
+        if (data == null || jobs.get(job.id) != job || job.completed.contains(key.index())) return;
+        Log.info("[MAESTRO] [RECOVERY] %s no tenía copia de %s; se le reenvían los datos", worker.id, key);
+        worker.inFlight.incrementAndGet();
+        dispatchExecutor.execute(() -> sendTaskToWorker(worker, job, key, data, "PRIMARY"));
+    }
+
+    // Chunk del array de entrada y del array resultado que corresponden a este chunk del trabajo.
+    private static void addResidentChunkRefs(Job job, ChunkKey key, Message task) {
+        if (job.sourceArrayId != null) task.put("SOURCE_CHUNK", key.withOwner(job.sourceArrayId).toString());
+        if (job.targetArrayId != null) task.put("STORE_CHUNK", key.withOwner(job.targetArrayId).toString());
+    }
+
+    // Los workers binarios se atienden sobre el pool multiplexado; los de texto (p. ej. Python)
+    // con una conexión de un solo uso, como antes.
+    private CompletableFuture<Message> sendToWorker(WorkerInfo worker, Message message, boolean expectResponse) {
+        CompletableFuture<Message> result = new CompletableFuture<>();
+        try {
+            if (worker.protocol == MessageChannel.Format.BINARY) {
+                MultiplexedConnection connection = connectionPool.acquire(worker.id, worker.host, worker.tcpPort);
+                if (expectResponse) return connection.request(message);
+                connection.send(message);
+                result.complete(null);
+            } else {
+                try (MessageChannel channel = MessageChannel.connect(worker.host, worker.tcpPort, worker.protocol)) {
+                    channel.write(message);
+                    result.complete(expectResponse ? channel.read() : null);
+                }
             }
         } catch (IOException e) {
-            System.err.printf("[MAESTRO] No se pudo enviar promoción a %s: %s\n", worker.id, e.getMessage());
+            result.completeExceptionally(e);
         }
+        return result;
     }
 
-    private void handleTaskResult(String jobId, String chunkId, List<Double> resultData) {
-        Job job = jobs.get(jobId);
-        if (job != null) {
-            job.results.put(chunkId, resultData);
+    private static String rootMessage(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
+    // Sólo cuenta si el trabajo sigue en curso: la respuesta tardía de uno ya liberado se descarta.
+    private void handleTaskResult(Job job, ChunkKey key, WorkerInfo worker, Message response) {
+        // Se guarda aunque el trabajo ya haya vencido: es justo lo que aprovechará su reintento.
+        DataChunk result = resultOf(job, response);
+        ResultCache.Key cacheKey = job.cacheKeys.remove(key.index());
+        if (cacheKey != null && result != null) resultCache.put(cacheKey, result);
+        if (jobs.get(job.id) == job) {
+            int idx = key.index();
+            // Con especulación o promociones un chunk puede terminar dos veces: vale el primero.
+            if (!job.completed.add(idx)) return;
+            job.inputs.remove(idx);
+            Long start = job.startedAt.get(idx);
+            if (start != null) job.durations.add(System.currentTimeMillis() - start);
+            List<String> runners = job.speculated.get(idx);
+            if (runners != null) cancelOthers(job, key, runners, worker.id);
+
+            if (job.targetArrayId != null) {
+                // El resultado se quedó en el worker: sólo llega su longitud.
+                int length = Integer.parseInt(response.getOrDefault("LENGTH", "0"));
+                job.storedLengths.put(idx, length);
+                if (job.record != null) metadataLog.append(() -> storedEntry(job.id, idx, length));
+            } else {
+                deliverResult(job, key, result);
+            }
             job.latch.countDown();
         }
     }
-    
-    private WorkerInfo selectReplicaNode(List<String> excludeIds) {
-        return workers.values().stream()
-                .filter(w -> "ALIVE".equals(w.status) && !excludeIds.contains(w.id))
-                .findAny().orElse(null);
+
+    private void deliverResult(Job job, ChunkKey key, DataChunk resultData) {
+        if (job.gatherer != null) {
+            try {
+                job.gatherer.offer(key.index(), resultData);
+            } catch (IOException e) {
+                Log.warn("[MAESTRO] No se pudo reenviar %s al cliente: %s", key, e.getMessage());
+            }
+        } else {
+            job.results.put(key.index(), resultData);
+        }
+    }
+
+    private void speculateStragglers() {
+        long now = System.currentTimeMillis();
+        for (Job job : jobs.values()) {
+            // Los arrays persistidos ya se calculan en primario y réplica: no hay nada que adelantar.
+            if (job.latch.getCount() == 0 || job.targetArrayId != null || job.durations.isEmpty()) continue;
+            long threshold = Math.max(SPECULATION_MIN_MILLIS, (long) (SPECULATION_FACTOR * median(job.durations)));
+            for (Map.Entry<Integer, Long> entry : job.startedAt.entrySet()) {
+                int idx = entry.getKey();
+                if (now - entry.getValue() < threshold || job.completed.contains(idx) || job.speculated.containsKey(idx)) continue;
+                ChunkKey key = new ChunkKey(job.id, idx);
+                ChunkInfo info = chunkDistribution.get(key);
+                WorkerInfo replica = (info != null) ? firstAlive(info.replicaWorkerIds) : null;
+                if (replica == null) continue;
+                job.speculated.put(idx, Arrays.asList(info.primaryWorkerId, replica.id));
+                Log.info("[MAESTRO] [SPECULATION] %s lleva %d ms en %s (umbral %d ms): se lanza también en %s",
+                        key, now - entry.getValue(), info.primaryWorkerId, threshold, replica.id);
+                speculationsLaunched.inc();
+                dispatchExecutor.execute(() -> sendPromotionToWorker(replica, job, key));
+            }
+        }
+    }
+
+    private static long median(Collection<Long> values) {
+        long[] sorted = values.stream().mapToLong(Long::longValue).sorted().toArray();
+        return sorted[sorted.length / 2];
+    }
+
+    // El perdedor deja de calcular en cuanto ve la cancelación; su respuesta, si llega, se ignora.
+    private void cancelOthers(Job job, ChunkKey key, List<String> runners, String winnerId) {
+        for (String runnerId : runners) {
+            WorkerInfo loser = runnerId.equals(winnerId) ? null : aliveWorker(runnerId);
+            if (loser == null) continue;
+            Log.info("[MAESTRO] [SPECULATION] %s terminado por %s; cancelando en %s", key, winnerId, loser.id);
+            speculationsCancelled.inc();
+            dispatchExecutor.execute(() -> sendToWorker(loser, new Message("CANCEL_TASK").put("JOB_ID", job.id).put("CHUNK_ID", key.toString()), false));
+        }
     }
     
-    private <T> List<List<T>> splitList(List<T> source, int n_parts) {
-        List<List<T>> partitions = new ArrayList<>();
-        int chunkSize = (int) Math.ceil((double) source.size() / n_parts);
-        for (int i = 0; i < source.size(); i += chunkSize) {
-            partitions.add(source.subList(i, Math.min(source.size(), i + chunkSize)));
+    // REPLICATION_FACTOR - 1 réplicas por hashing rendezvous sobre los workers vivos distintos del primario.
+    private List<WorkerInfo> selectReplicaNodes(ChunkKey key, String primaryId) {
+        List<WorkerInfo> candidates = workers.values().stream()
+                .filter(w -> "ALIVE".equals(w.status) && !w.id.equals(primaryId))
+                .collect(Collectors.toList());
+        return ReplicaPlacement.select(key.toString(), candidates, w -> w.id, REPLICATION_FACTOR - 1);
+    }
+
+    private WorkerInfo firstAlive(List<String> workerIds) {
+        for (String workerId : workerIds) {
+            WorkerInfo worker = aliveWorker(workerId);
+            if (worker != null) return worker;
+        }
+        return null;
+    }
+
+    private List<String> aliveIds(List<String> workerIds) {
+        return workerIds.stream().filter(id -> aliveWorker(id) != null).collect(Collectors.toList());
+    }
+
+    private static List<String> without(List<String> workerIds, String workerId) {
+        return workerIds.stream().filter(id -> !id.equals(workerId)).collect(Collectors.toList());
+    }
+
+    // --- ALTA DISPONIBILIDAD ---
+
+    // Modo reserva: sigue el registro del líder (LOG_SUBSCRIBE en su puerto de clientes) sin abrir sus propios
+    // puertos; cuando el líder deja de responder los abre y toma el relevo (ver takeOver).
+    public void startStandby(String leaderHost, int leaderTcpPort) {
+        Log.info("[MAESTRO] [HA] En reserva del líder %s:%d; tomará el relevo en UDP:%d y TCP:%d", leaderHost, leaderTcpPort, udpPort, tcpPort);
+        LeaderFollower follower = new LeaderFollower(leaderHost, leaderTcpPort, HA_HEARTBEAT_MILLIS, PHI_THRESHOLD,
+                this::resetReplicatedState, this::applyLogEntry, this::takeOver);
+        metrics.gauge("ha.applied_seq", follower::applied);
+        follower.start(scheduler, FAILURE_CHECK_MILLIS);
+    }
+
+    // Sólo se replica lo que sobrevive a un cambio de Maestro: arrays residentes y trabajos PERSIST. Los demás
+    // trabajos devuelven su resultado a través de este Maestro y, si cae, el cliente los repite.
+    private boolean replicated(String ownerId) {
+        if (ownerId.startsWith("arr-")) return true;
+        Job job = jobs.get(ownerId);
+        return job != null && job.targetArrayId != null;
+    }
+
+    private void replicatePlacement(ChunkKey key) {
+        if (replicated(key.owner())) metadataLog.append(() -> placementEntry(key));
+    }
+
+    private void replicateJob(Job job, int totalChunks, int chunkSize) {
+        if (job.targetArrayId == null) return;
+        Map<String, String> record = new HashMap<>(job.taskOptions);
+        record.put("TYPE", "LOG_JOB");
+        record.put("JOB_ID", job.id);
+        record.put("OPERATION", job.operation);
+        record.put("CHUNKS", String.valueOf(totalChunks));
+        record.put("TARGET_ARRAY", job.targetArrayId);
+        if (chunkSize > 0) record.put("CHUNK_SIZE", String.valueOf(chunkSize)); // para repartir igual la entrada reenviada
+        if (job.sourceArrayId != null) record.put("SOURCE_ARRAY", job.sourceArrayId);
+        if (job.jobKey != null) record.put("JOB_KEY", job.jobKey);
+        job.record = record;
+        metadataLog.append(() -> new Message(new HashMap<>(record)));
+    }
+
+    // Las entradas leen el estado en el momento de añadirse: si el objeto ya no existe, se registra su baja.
+    private Message workerEntry(String workerId) {
+        WorkerInfo worker = workers.get(workerId);
+        if (worker == null) return null;
+        return new Message("LOG_WORKER").put("WORKER_ID", worker.id).put("HOST", worker.host)
+                .put("TCP_PORT", String.valueOf(worker.tcpPort)).put("PROTOCOL", worker.protocol.name())
+                .put("HEARTBEAT_MS", String.valueOf(worker.heartbeatMillis)).put("CORES", String.valueOf(worker.cores));
+    }
+
+    private Message placementEntry(ChunkKey key) {
+        ChunkInfo info = chunkDistribution.get(key);
+        if (info == null) return new Message("LOG_REMOVE").put("CHUNK_ID", key.toString());
+        Message entry = new Message("LOG_PLACE").put("CHUNK_ID", key.toString());
+        if (info.primaryWorkerId != null) entry.put("PRIMARY", info.primaryWorkerId);
+        if (!info.replicaWorkerIds.isEmpty()) entry.put("REPLICAS", String.join(",", info.replicaWorkerIds));
+        return entry;
+    }
+
+    private Message arrayEntry(String arrayId) {
+        ResidentArray array = arrays.get(arrayId);
+        if (array == null) return new Message("LOG_DROP_ARRAY").put("ARRAY_ID", arrayId);
+        return new Message("LOG_ARRAY").put("ARRAY_ID", array.id)
+                .put("CHUNKS", String.valueOf(array.chunks)).put("SIZE", String.valueOf(array.size));
+    }
+
+    private static Message storedEntry(String jobId, int idx, int length) {
+        return new Message("LOG_STORED").put("JOB_ID", jobId).put("INDEX", String.valueOf(idx)).put("LENGTH", String.valueOf(length));
+    }
+
+    // Instantánea para un Maestro de reserva que se acaba de suscribir.
+    private List<Message> replicatedState() {
+        List<Message> entries = new ArrayList<>();
+        for (String workerId : workers.keySet()) {
+            Message entry = workerEntry(workerId);
+            if (entry != null) entries.add(entry);
+        }
+        for (String arrayId : arrays.keySet()) entries.add(arrayEntry(arrayId));
+        for (Job job : jobs.values()) {
+            if (job.record == null) continue;
+            entries.add(new Message(new HashMap<>(job.record)));
+            job.storedLengths.forEach((idx, length) -> entries.add(storedEntry(job.id, idx, length)));
+        }
+        for (ChunkKey key : chunkDistribution.keySet()) {
+            if (replicated(key.owner())) entries.add(placementEntry(key));
+        }
+        return entries;
+    }
+
+    // Cada suscripción al líder empieza por su instantánea: se descarta lo aplicado hasta entonces.
+    private void resetReplicatedState() {
+        workers.clear();
+        arrays.clear();
+        chunkDistribution.clear();
+        chunksByWorker.clear();
+        replicatedJobs.clear();
+        replicatedStored.clear();
+    }
+
+    private void applyLogEntry(Message entry) {
+        switch (entry.type()) {
+            case "LOG_WORKER": {
+                WorkerInfo info = new WorkerInfo(entry.get("WORKER_ID"), entry.get("HOST"), Integer.parseInt(entry.get("TCP_PORT")),
+                        MessageChannel.Format.valueOf(entry.get("PROTOCOL")), Long.parseLong(entry.get("HEARTBEAT_MS")));
+                updateLoad(info, entry.headers());
+                workers.put(info.id, info);
+                break;
+            }
+            case "LOG_PLACE": {
+                String replicas = entry.get("REPLICAS");
+                placeChunk(ChunkKey.parse(entry.get("CHUNK_ID")), entry.get("PRIMARY"),
+                        (replicas != null) ? Arrays.asList(replicas.split(",")) : Collections.emptyList());
+                break;
+            }
+            case "LOG_REMOVE":
+                removeChunk(ChunkKey.parse(entry.get("CHUNK_ID")));
+                break;
+            case "LOG_ARRAY": {
+                String arrayId = entry.get("ARRAY_ID");
+                arrays.put(arrayId, new ResidentArray(arrayId, Integer.parseInt(entry.get("CHUNKS")), Long.parseLong(entry.get("SIZE"))));
+                break;
+            }
+            case "LOG_DROP_ARRAY":
+                arrays.remove(entry.get("ARRAY_ID"));
+                break;
+            case "LOG_JOB": {
+                Map<String, String> record = new HashMap<>(entry.headers());
+                record.remove("SEQ");
+                replicatedJobs.put(record.get("JOB_ID"), record);
+                break;
+            }
+            case "LOG_STORED":
+                replicatedStored.computeIfAbsent(entry.get("JOB_ID"), k -> new ConcurrentHashMap<>())
+                        .put(Integer.parseInt(entry.get("INDEX")), Integer.parseInt(entry.get("LENGTH")));
+                break;
+            case "LOG_JOB_END": {
+                // Al terminar, el líder libera la ubicación de los chunks del trabajo sin registrarla.
+                String jobId = entry.get("JOB_ID");
+                Map<String, String> record = replicatedJobs.remove(jobId);
+                replicatedStored.remove(jobId);
+                if (record != null) {
+                    for (int i = 0; i < Integer.parseInt(record.get("CHUNKS")); i++) removeChunk(new ChunkKey(jobId, i));
+                }
+                break;
+            }
+            default:
+                Log.warn("[MAESTRO] [HA] Entrada desconocida en el registro: %s", entry.type());
+        }
+    }
+
+    // El líder dejó de responder: este Maestro abre sus puertos con el estado replicado. Los workers conocidos
+    // empiezan vivos con detectores nuevos (el que no vuelva a dar señales cae por phi) y MAESTRO_CHANGED les
+    // pide que envíen aquí sus heartbeats y se vuelvan a registrar con los chunks que guardan.
+    private void takeOver() {
+        takeovers.inc();
+        workers.replaceAll((id, worker) -> worker.restarted());
+        List<Job> resumed = new ArrayList<>();
+        for (Map<String, String> record : replicatedJobs.values()) resumed.add(restoreJob(record));
+        replicatedJobs.clear();
+        replicatedStored.clear();
+        awaitingRegistration.addAll(workers.keySet());
+        Log.warn("[MAESTRO] [HA] Tomando el relevo: %d workers, %d arrays residentes, %d trabajos PERSIST por terminar",
+                workers.size(), arrays.size(), resumed.size());
+        start();
+        Message changed = new Message("MAESTRO_CHANGED").put("HOST", host).put("UDP_PORT", String.valueOf(udpPort));
+        for (WorkerInfo worker : workers.values()) {
+            dispatchExecutor.execute(() -> sendToWorker(worker, changed, false).whenComplete((ignored, error) -> {
+                if (error != null) Log.warn("[MAESTRO] [HA] No se pudo avisar a %s del relevo: %s", worker.id, rootMessage(error));
+            }));
+        }
+        for (Job job : resumed) clientExecutor.execute(() -> resumeJob(job));
+    }
+
+    // El trabajo conserva su id: los chunks que ya guardaron los workers cuentan como terminados.
+    private Job restoreJob(Map<String, String> record) {
+        String jobId = record.get("JOB_ID");
+        Job job = new Job(jobId, new Message(new HashMap<>(record)), null, Integer.parseInt(record.get("CHUNKS")));
+        if (record.containsKey("INPUT_TYPE")) job.taskOptions.put("INPUT_TYPE", record.get("INPUT_TYPE"));
+        job.sourceArrayId = record.get("SOURCE_ARRAY");
+        job.targetArrayId = record.get("TARGET_ARRAY");
+        job.record = record;
+        job.resumed = new CompletableFuture<>();
+        job.resumeDeadline = System.currentTimeMillis() + RESUME_MILLIS;
+        replicatedStored.getOrDefault(jobId, Collections.emptyMap()).forEach((idx, length) -> {
+            if (job.completed.add(idx)) {
+                job.storedLengths.put(idx, length);
+                job.latch.countDown();
+            }
+        });
+        jobs.put(jobId, job);
+        if (job.jobKey != null) resumedJobs.put(job.jobKey, job);
+        return job;
+    }
+
+    // Cada chunk que falta lo calcula, con PROMOTE_AND_EXECUTE como en una promoción, el primer poseedor vivo:
+    // si ya guardó el resultado como réplica sólo lo confirma, y si tiene la entrada (un array residente) lo
+    // calcula. Los chunks de un array residente que el líder no llegó a repartir se reparten ahora. Las
+    // entradas subidas por el cliente no se guardan en los workers: esos chunks esperan a que el cliente
+    // reenvíe el trabajo con el mismo JOB_KEY (ver attachToResumed) o a que venza el plazo.
+    private void resumeJob(Job job) {
+        int totalChunks = Integer.parseInt(job.record.get("CHUNKS"));
+        awaitRegistrations();
+        int stored = job.storedLengths.size(), promoted = 0, dispatched = 0;
+        for (int i = 0; i < totalChunks; i++) {
+            if (job.completed.contains(i)) continue;
+            ChunkKey key = new ChunkKey(job.id, i);
+            WorkerInfo holder;
+            recoveryLock.lock();
+            try {
+                ChunkInfo info = chunkDistribution.get(key);
+                holder = (info != null) ? firstAlive(info.holders()) : null;
+                if (holder != null && !holder.id.equals(info.primaryWorkerId)) placeChunk(key, holder.id, without(info.holders(), holder.id));
+            } finally {
+                recoveryLock.unlock();
+            }
+            if (holder == null) {
+                List<WorkerInfo> sourceHolders = (job.sourceArrayId != null) ? aliveHolders(new ChunkKey(job.sourceArrayId, i)) : Collections.emptyList();
+                if (sourceHolders.isEmpty()) continue;
+                try {
+                    dispatchChunk(job, i, null, sourceHolders.get(0), sourceHolders.subList(1, sourceHolders.size()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                dispatched++;
+                continue;
+            }
+            job.startedAt.put(i, System.currentTimeMillis());
+            promoted++;
+            dispatchExecutor.execute(() -> sendPromotionToWorker(holder, job, key));
+        }
+        jobsResumed.inc();
+        Log.info("[MAESTRO] [HA] Trabajo %s reanudado: %d de %d chunks ya guardados, %d pedidos a sus poseedores, %d repartidos de nuevo",
+                job.id, stored, totalChunks, promoted, dispatched);
+
+        boolean finished = false;
+        try {
+            while (!(finished = job.latch.await(FAILURE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) && System.currentTimeMillis() < job.resumeDeadline) {
+                // el plazo se renueva si el cliente se une al trabajo
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            job.resumed.complete(outcome(jobOutcome(job, finished, totalChunks)));
+        } catch (RuntimeException e) {
+            job.resumed.completeExceptionally(e);
+            throw e;
+        } finally {
+            releaseJob(job, totalChunks);
+            // El cliente puede tardar en reintentar: el desenlace se le guarda otro plazo.
+            if (job.jobKey != null) scheduler.schedule(() -> resumedJobs.remove(job.jobKey, job), RESUME_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Un registro cierra las conexiones previas con el worker: se espera a que pase antes de enviarle nada.
+    private void awaitRegistrations() {
+        long deadline = System.currentTimeMillis() + REREGISTER_MILLIS;
+        try {
+            while (!awaitingRegistration.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(FAILURE_CHECK_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void supplyInput(Job job, int idx, DataChunk input, List<WorkerInfo> aliveWorkers) throws InterruptedException {
+        if (input == null || aliveWorkers.isEmpty() || job.resumed.isDone() || job.completed.contains(idx)) return;
+        dispatchChunk(job, idx, input, aliveWorkers);
+    }
+
+    private Job resumedJob(Message request) {
+        String jobKey = request.get("JOB_KEY");
+        return (jobKey != null) ? resumedJobs.get(jobKey) : null;
+    }
+
+    // El cliente repite un trabajo que el Maestro anterior dejó a medias: en vez de empezar otro, espera al
+    // reanudado. Si trae los datos (de una vez o en frames), los chunks aún sin guardar se reparten con
+    // ellos, cortados igual que la primera vez. En streaming devuelve false si quedaron frames sin leer.
+    private boolean attachToResumed(MessageChannel channel, Message request, Job job) throws IOException, InterruptedException {
+        int totalChunks = Integer.parseInt(job.record.get("CHUNKS"));
+        int chunkSize = Integer.parseInt(job.record.getOrDefault("CHUNK_SIZE", "0"));
+        job.resumeDeadline = System.currentTimeMillis() + RESUME_MILLIS;
+        Log.info("[MAESTRO] [HA] Petición con JOB_KEY %s: se une al trabajo reanudado %s (%d de %d chunks guardados)",
+                job.jobKey, job.id, job.storedLengths.size(), totalChunks);
+        List<WorkerInfo> aliveWorkers = workers.values().stream().filter(w -> "ALIVE".equals(w.status)).collect(Collectors.toList());
+        if ("JOB_START".equals(request.type())) {
+            int frameSize = Integer.parseInt(request.get("FRAME_SIZE"));
+            int frames = frameCount(Integer.parseInt(request.get("TOTAL_SIZE")), frameSize);
+            for (int received = 0; received < frames; received++) {
+                Message frame = channel.read();
+                if (frame == null) return false;
+                int idx = frameIndex(frame, frames);
+                if (idx < 0) {
+                    channel.write(new Message("JOB_FAILED").put("JOB_ID", job.id).put("REASON", "BAD_REQUEST").inReplyTo(request)); return false;
+                }
+                if (frameSize == chunkSize) supplyInput(job, idx, frame.getPayload(), aliveWorkers);
+            }
+        } else {
+            DataChunk data = request.getPayload();
+            for (int i = 0; data != null && chunkSize > 0 && i < totalChunks && i * chunkSize < data.length(); i++) {
+                int from = i * chunkSize;
+                supplyInput(job, i, data.slice(from, Math.min(data.length(), from + chunkSize)), aliveWorkers);
+            }
+        }
+        Message outcome;
+        try {
+            outcome = job.resumed.get();
+        } catch (ExecutionException e) {
+            outcome = new Message("JOB_FAILED").put("JOB_ID", job.id).put("REASON", "RESUME_FAILED");
         }
-        return partitions;
+        channel.write(new Message(new HashMap<>(outcome.headers())).inReplyTo(request));
+        return true;
     }
-}
\ No newline at end of file
+}
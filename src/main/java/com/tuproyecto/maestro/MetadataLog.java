@@ -0,0 +1,110 @@
+package com.tuproyecto.maestro;
+
+import com.tuproyecto.metrics.Counter;
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.metrics.MetricsRegistry;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MessageChannel;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Registro de metadatos que el Maestro líder envía a sus Maestros de reserva (LOG_SUBSCRIBE); sólo se añade.
+// Cada entrada lleva el estado completo de un objeto (un worker, la ubicación de un chunk, un array residente,
+// el progreso de un trabajo PERSIST) y se construye bajo el cerrojo que fija su orden: la última entrada de
+// cada objeto refleja su último cambio, y aplicar una entrada repetida no altera nada.
+// Un seguidor nuevo recibe antes una instantánea del estado; sin entradas nuevas, LOG_HEARTBEAT cada
+// heartbeatMillis le indica que el líder sigue vivo.
+final class MetadataLog {
+    // Un seguidor que se queda atrás se desconecta: al volver recibe otra instantánea.
+    private static final int MAX_PENDING = Integer.getInteger("darray.ha.maxPendingEntries", 100_000);
+
+    private final long heartbeatMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+    private final Counter appended;
+    private long sequence; // guardado por lock
+
+    private static final class Follower {
+        final MessageChannel channel;
+        final BlockingQueue<Message> queue = new LinkedBlockingQueue<>(MAX_PENDING);
+        volatile boolean closed;
+        Follower(MessageChannel channel) { this.channel = channel; }
+    }
+
+    MetadataLog(long heartbeatMillis, MetricsRegistry metrics) {
+        this.heartbeatMillis = heartbeatMillis;
+        this.appended = metrics.counter("ha.log_entries");
+        metrics.gauge("ha.followers", followers::size);
+    }
+
+    // Sin seguidores no se construye la entrada.
+    void append(Supplier<Message> entry) {
+        if (followers.isEmpty()) return;
+        lock.lock();
+        try {
+            Message message = entry.get();
+            if (message == null) return;
+            message.put("SEQ", String.valueOf(++sequence));
+            appended.inc();
+            for (Follower follower : followers) enqueue(follower, message);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Instantánea y alta bajo el mismo cerrojo: ninguna entrada queda entre las dos sin enviarse.
+    void follow(MessageChannel channel, Supplier<List<Message>> snapshot) {
+        Follower follower = new Follower(channel);
+        int entries;
+        lock.lock();
+        try {
+            List<Message> state = snapshot.get();
+            entries = state.size();
+            for (Message message : state) enqueue(follower, message.put("SEQ", String.valueOf(++sequence)));
+            followers.add(follower);
+        } finally {
+            lock.unlock();
+        }
+        Log.info("[MAESTRO] [HA] Maestro de reserva suscrito al registro (instantánea de %d entradas)", entries);
+        Thread writer = new Thread(() -> drain(follower), "Maestro-Log-Follower");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void enqueue(Follower follower, Message message) {
+        if (!follower.queue.offer(message)) {
+            Log.warn("[MAESTRO] [HA] El Maestro de reserva se ha quedado atrás (%d entradas); se le desconecta", MAX_PENDING);
+            close(follower);
+        }
+    }
+
+    private void drain(Follower follower) {
+        try {
+            while (!follower.closed) {
+                Message message = follower.queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                follower.channel.write(message != null ? message : new Message("LOG_HEARTBEAT"));
+            }
+        } catch (IOException e) {
+            if (!follower.closed) Log.warn("[MAESTRO] [HA] Se perdió la conexión con el Maestro de reserva: %s", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(follower);
+        }
+    }
+
+    private void close(Follower follower) {
+        follower.closed = true;
+        followers.remove(follower);
+        try {
+            follower.channel.close();
+        } catch (IOException ignored) { /* ya estaba cerrada */ }
+    }
+}
@@ -0,0 +1,57 @@
+package com.tuproyecto.maestro;
+
+// Detector de fallos phi-accrual (Hayashibara et al.): en lugar de un timeout fijo, calcula lo improbable
+// que es el silencio actual dada la distribución de los intervalos entre heartbeats ya observados.
+// phi = -log10(P(el siguiente heartbeat llega aún más tarde)); phi 8 equivale a una probabilidad de 1e-8.
+final class PhiAccrualDetector {
+    private static final int WINDOW = 100;
+    private static final double MIN_STD_DEV_MILLIS = Double.parseDouble(System.getProperty("darray.failure.minStdDevMillis", "100"));
+
+    private final long[] intervals = new long[WINDOW];
+    private int count;
+    private int next;
+    private double sum;
+    private double sumSquares;
+    private long lastHeartbeat;
+
+    // Se siembra con el intervalo anunciado por el worker (media) y una desviación de un cuarto de ese valor.
+    PhiAccrualDetector(long expectedIntervalMillis, long now) {
+        long deviation = expectedIntervalMillis / 4;
+        add(expectedIntervalMillis - deviation);
+        add(expectedIntervalMillis + deviation);
+        this.lastHeartbeat = now;
+    }
+
+    synchronized void heartbeat(long now) {
+        add(now - lastHeartbeat);
+        lastHeartbeat = now;
+    }
+
+    synchronized double phi(long now) {
+        double mean = sum / count;
+        double variance = Math.max(0, sumSquares / count - mean * mean);
+        double stdDev = Math.max(Math.sqrt(variance), MIN_STD_DEV_MILLIS);
+        double y = ((now - lastHeartbeat) - mean) / stdDev;
+        // Aproximación logística de la cola de la normal, estable para y grandes
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        return (y > 0) ? -Math.log10(e / (1.0 + e)) : -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    synchronized long millisSinceLastHeartbeat(long now) {
+        return now - lastHeartbeat;
+    }
+
+    private void add(long interval) {
+        if (count == WINDOW) {
+            long evicted = intervals[next];
+            sum -= evicted;
+            sumSquares -= (double) evicted * evicted;
+        } else {
+            count++;
+        }
+        intervals[next] = interval;
+        next = (next + 1) % WINDOW;
+        sum += interval;
+        sumSquares += (double) interval * interval;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tuproyecto.maestro;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+// Hashing rendezvous (highest random weight): cada chunk puntúa a cada worker con hash(chunk, worker) y
+// se queda con los de mayor puntuación. Las copias se reparten por igual entre los workers sin estado
+// compartido, y cuando uno entra o sale sólo cambian de sitio los chunks que le tocaban a él.
+final class ReplicaPlacement {
+    private ReplicaPlacement() {}
+
+    static <W> List<W> select(String chunkId, List<W> candidates, Function<W, String> idOf, int count) {
+        long chunkHash = mix(chunkId.hashCode());
+        List<W> ranked = new ArrayList<>(candidates);
+        // Desempate por id: dos ids con el mismo hashCode no deben depender del orden de la lista
+        ranked.sort(Comparator.comparingLong((W w) -> mix(chunkHash ^ idOf.apply(w).hashCode())).reversed()
+                .thenComparing(idOf));
+        return ranked.subList(0, Math.min(Math.max(count, 0), ranked.size()));
+    }
+
+    // Finalizador de SplitMix64: dispersa bien entradas parecidas ("job-x-c1", "job-x-c2"...).
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,127 @@
+package com.tuproyecto.maestro;
+
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Resultados de chunks ya calculados, por contenido: la clave es un hash de 128 bits de los datos de entrada
+// (o el id del chunk residente, que no cambia) más la descripción de la tarea (OPERATION, PLAN, AGGREGATE...).
+// Un cliente que reenvía el mismo array, o reintenta un trabajo que venció, no vuelve a calcular esos chunks.
+// Presupuesto en bytes con expulsión LRU, como el ChunkStore de los workers.
+final class ResultCache {
+    static final class Key {
+        private final long high, low;
+        private final int length;
+        private final String task;
+
+        private Key(long high, long low, int length, String task) {
+            this.high = high; this.low = low; this.length = length; this.task = task;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return high == other.high && low == other.low && length == other.length && task.equals(other.task);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32)) * 31 + task.hashCode();
+        }
+    }
+
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Orden de acceso: el primero es el candidato a expulsarse
+    private final LinkedHashMap<Key, DataChunk> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    ResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    boolean enabled() { return maxBytes > 0; }
+
+    // Dos recorridos independientes de 64 bits sobre los bits de cada elemento: una colisión exige que
+    // coincidan ambos, además de la longitud y la tarea (que para una entrada int lleva INPUT_TYPE=INT).
+    static Key keyOf(DataChunk data, String task) {
+        long h1 = 0x9E3779B97F4A7C15L, h2 = 0xC2B2AE3D27D4EB4FL;
+        if (data instanceof IntChunk) {
+            IntChunk ints = (IntChunk) data;
+            int[] array = ints.array();
+            for (int i = ints.offset(), end = ints.offset() + ints.length(); i < end; i++) {
+                h1 = Long.rotateLeft(h1 ^ (array[i] * 0xFF51AFD7ED558CCDL), 31) * 0x9E3779B97F4A7C15L;
+                h2 = Long.rotateLeft(h2 + (array[i] * 0xC4CEB9FE1A85EC53L), 27) * 0x94D049BB133111EBL;
+            }
+        } else {
+            DoubleChunk doubles = (DoubleChunk) data;
+            double[] array = doubles.array();
+            for (int i = doubles.offset(), end = doubles.offset() + doubles.length(); i < end; i++) {
+                long bits = Double.doubleToRawLongBits(array[i]);
+                h1 = Long.rotateLeft(h1 ^ (bits * 0xFF51AFD7ED558CCDL), 31) * 0x9E3779B97F4A7C15L;
+                h2 = Long.rotateLeft(h2 + (bits * 0xC4CEB9FE1A85EC53L), 27) * 0x94D049BB133111EBL;
+            }
+        }
+        return new Key(mix(h1 ^ data.length()), mix(h2 + data.length()), data.length(), task);
+    }
+
+    // Un chunk residente no cambia mientras existe y su id no se reutiliza: basta con el id.
+    static Key keyOf(String residentChunkId, String task) {
+        return new Key(0, 0, -1, residentChunkId + "|" + task);
+    }
+
+    DataChunk get(Key key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(Key key, DataChunk result) {
+        long size = sizeOf(result);
+        if (size > maxBytes / 4) return; // uno solo no debe vaciar la caché
+        // Si el resultado es una vista de un buffer mayor se copia, para no retener el buffer entero.
+        DataChunk compact = result.compact();
+        lock.lock();
+        try {
+            DataChunk previous = entries.put(key, compact);
+            if (previous != null) bytes -= sizeOf(previous);
+            bytes += size;
+            Iterator<Map.Entry<Key, DataChunk>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= sizeOf(eldest.next().getValue());
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long sizeOf(DataChunk chunk) {
+        return (long) chunk.elementBytes() * chunk.length() + 64;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
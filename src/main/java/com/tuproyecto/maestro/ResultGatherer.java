@@ -0,0 +1,78 @@
+package com.tuproyecto.maestro;
+
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MessageChannel;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Reenvía al cliente los resultados de cada chunk en orden de índice en cuanto son contiguos,
+// de modo que el Maestro sólo retiene los chunks que llegan adelantados. Cada mensaje lleva el
+// REQUEST_ID de la petición para que un cliente multiplexado sepa a qué trabajo pertenece.
+class ResultGatherer {
+    private final MessageChannel channel;
+    private final Message request;
+    private final String jobId;
+    private final int totalChunks;
+    private final Map<Integer, DataChunk> pending = new HashMap<>();
+    private int nextIndex = 0;
+    private boolean closed = false;
+    private final ReentrantLock lock = new ReentrantLock(); // no synchronized: se escribe en un socket
+
+    ResultGatherer(MessageChannel channel, Message request, String jobId, int totalChunks) {
+        this.channel = channel;
+        this.request = request;
+        this.jobId = jobId;
+        this.totalChunks = totalChunks;
+    }
+
+    void offer(int index, DataChunk result) throws IOException {
+        lock.lock();
+        try {
+            if (closed || index < nextIndex || pending.containsKey(index)) return; // duplicado (p. ej. réplica promovida)
+            pending.put(index, result);
+            while (pending.containsKey(nextIndex)) {
+                write(nextIndex, pending.remove(nextIndex));
+                nextIndex++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Cierra el stream: los chunks que nunca llegaron se omiten, igual que en el modo de una sola respuesta.
+    void complete() throws IOException {
+        lock.lock();
+        try {
+            for (; nextIndex < totalChunks; nextIndex++) {
+                DataChunk result = pending.remove(nextIndex);
+                if (result != null) write(nextIndex, result);
+            }
+            closed = true;
+            channel.write(new Message("JOB_COMPLETE").inReplyTo(request).put("JOB_ID", jobId).put("STATUS", "SUCCESS"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void fail(String reason) throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pending.clear();
+            channel.write(new Message("JOB_FAILED").inReplyTo(request).put("JOB_ID", jobId).put("REASON", reason));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(int index, DataChunk result) throws IOException {
+        channel.write(new Message("JOB_RESULT").inReplyTo(request)
+                .put("JOB_ID", jobId)
+                .put("CHUNK_INDEX", String.valueOf(index))
+                .setPayload(result));
+    }
+}
@@ -0,0 +1,48 @@
+package com.tuproyecto.maestro;
+
+import com.tuproyecto.protocol.MultiplexedConnection;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Pool de conexiones multiplexadas de larga duración hacia cada worker.
+// Las conexiones se abren bajo demanda y se descartan al cerrarse o cuando el watchdog marca al worker DEAD.
+class WorkerConnectionPool {
+    private static final int CONNECTIONS_PER_WORKER = Integer.getInteger("darray.pool.connectionsPerWorker", 2);
+
+    private final ConcurrentMap<String, List<MultiplexedConnection>> connections = new ConcurrentHashMap<>();
+    private final ReentrantLock connectLock = new ReentrantLock(); // serializa la apertura de conexiones nuevas
+
+    MultiplexedConnection acquire(String workerId, String host, int port) throws IOException {
+        List<MultiplexedConnection> pool = connections.computeIfAbsent(workerId, k -> new CopyOnWriteArrayList<>());
+        pool.removeIf(c -> !c.isOpen());
+
+        MultiplexedConnection best = null;
+        for (MultiplexedConnection c : pool) {
+            if (best == null || c.inFlightCount() < best.inFlightCount()) best = c;
+        }
+        if (best != null && (best.inFlightCount() == 0 || pool.size() >= CONNECTIONS_PER_WORKER)) {
+            return best;
+        }
+        connectLock.lock();
+        try {
+            if (pool.size() >= CONNECTIONS_PER_WORKER && best != null) return best;
+            MultiplexedConnection created = new MultiplexedConnection(host, port, "Maestro-Conn-" + workerId + "-" + pool.size());
+            pool.add(created);
+            return created;
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    void evict(String workerId) {
+        List<MultiplexedConnection> pool = connections.remove(workerId);
+        if (pool != null) {
+            pool.forEach(MultiplexedConnection::close);
+        }
+    }
+}
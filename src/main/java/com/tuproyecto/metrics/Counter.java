@@ -0,0 +1,16 @@
+package com.tuproyecto.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Contador monótono; LongAdder evita la contención cuando muchos hilos lo incrementan a la vez.
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {}
+
+    public void inc() { value.increment(); }
+
+    public void add(long amount) { value.add(amount); }
+
+    public long get() { return value.sum(); }
+}
@@ -0,0 +1,36 @@
+package com.tuproyecto.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Cuenta los bytes leídos del socket; como CountingOutputStream, va debajo del buffer.
+public final class CountingInputStream extends FilterInputStream {
+    private final Counter bytes;
+
+    public CountingInputStream(InputStream in, Counter bytes) {
+        super(in);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) bytes.inc();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) bytes.add(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        bytes.add(skipped);
+        return skipped;
+    }
+}
@@ -0,0 +1,28 @@
+package com.tuproyecto.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Cuenta los bytes que pasan hacia el socket. Va debajo del buffer, así cada suma corresponde a un bloque.
+public final class CountingOutputStream extends FilterOutputStream {
+    private final Counter bytes;
+
+    public CountingOutputStream(OutputStream out, Counter bytes) {
+        super(out);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytes.inc();
+    }
+
+    // FilterOutputStream escribiría byte a byte: se delega el bloque completo.
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        bytes.add(len);
+    }
+}
@@ -0,0 +1,60 @@
+package com.tuproyecto.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latencias con cubetas de potencias de 2 en microsegundos: registrar cuesta dos sumas
+// sin bloqueo y los cuantiles se estiman con un error de, como mucho, el doble del valor real.
+public final class LatencyHistogram {
+    private static final int BUCKETS = 40; // hasta ~2^40 us, unos 12 días
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros | 1));
+        buckets[bucket].increment();
+        count.increment();
+        sumNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) { /* reintentar */ }
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() { return count.sum(); }
+
+    public double sumSeconds() { return sumNanos.sum() / 1e9; }
+
+    public double meanMillis() {
+        long n = count.sum();
+        return (n == 0) ? 0 : sumNanos.sum() / 1e6 / n;
+    }
+
+    public double maxMillis() { return maxNanos.get() / 1e6; }
+
+    // Límite superior de la cubeta donde cae el cuantil q, en milisegundos.
+    public double quantileMillis(double q) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) total += (snapshot[i] = buckets[i].sum());
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min((1L << (i + 1)) / 1000.0, maxMillis());
+        }
+        return maxMillis();
+    }
+}
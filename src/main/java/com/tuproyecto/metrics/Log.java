@@ -0,0 +1,82 @@
+package com.tuproyecto.metrics;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Log por niveles (-Ddarray.log.level=DEBUG|INFO|WARN|ERROR, INFO por defecto). Los mensajes se encolan
+// sin formatear y un hilo aparte los formatea y escribe, así el camino caliente no paga el printf ni la
+// E/S de consola. Si la cola se llena se descartan (métrica log.dropped) en vez de frenar al llamante.
+// Con -Ddarray.log.async=false se escriben en el propio hilo, en orden estricto con el resto de la salida.
+public final class Log {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final Level LEVEL = Level.valueOf(System.getProperty("darray.log.level", "INFO").toUpperCase(Locale.ROOT));
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("darray.log.async", "true"));
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(Integer.getInteger("darray.log.queueSize", 8192));
+    private static final Counter DROPPED = MetricsRegistry.create("log").counter("log.dropped");
+
+    private static final class Entry {
+        final Level level; final String format; final Object[] args; final Throwable error;
+        Entry(Level level, String format, Object[] args, Throwable error) {
+            this.level = level; this.format = format; this.args = args; this.error = error;
+        }
+    }
+
+    static {
+        if (ASYNC) {
+            Thread writer = new Thread(Log::drain, "darray-log");
+            writer.setDaemon(true);
+            writer.start();
+            // Lo que quede en la cola al salir se escribe antes de que termine la JVM.
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                Entry entry;
+                while ((entry = QUEUE.poll()) != null) write(entry);
+            }, "darray-log-flush"));
+        }
+    }
+
+    private Log() {}
+
+    public static boolean isEnabled(Level level) { return level.ordinal() >= LEVEL.ordinal(); }
+
+    public static void debug(String format, Object... args) { log(Level.DEBUG, format, args, null); }
+
+    public static void info(String format, Object... args) { log(Level.INFO, format, args, null); }
+
+    public static void warn(String format, Object... args) { log(Level.WARN, format, args, null); }
+
+    public static void error(String format, Object... args) { log(Level.ERROR, format, args, null); }
+
+    // Igual que error, seguido de la traza de la excepción.
+    public static void error(Throwable error, String format, Object... args) { log(Level.ERROR, format, args, error); }
+
+    private static void log(Level level, String format, Object[] args, Throwable error) {
+        if (!isEnabled(level)) return;
+        Entry entry = new Entry(level, format, args, error);
+        if (!ASYNC) write(entry);
+        else if (!QUEUE.offer(entry)) DROPPED.inc();
+    }
+
+    private static void drain() {
+        while (true) {
+            try {
+                Entry entry = QUEUE.poll(1, TimeUnit.SECONDS);
+                if (entry != null) write(entry);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[LOG] Mensaje de log inválido: " + e);
+            }
+        }
+    }
+
+    // Sin argumentos el texto se escribe tal cual: puede contener '%'.
+    private static void write(Entry entry) {
+        PrintStream out = (entry.level.ordinal() >= Level.WARN.ordinal()) ? System.err : System.out;
+        out.println(entry.args.length == 0 ? entry.format : String.format(entry.format, entry.args));
+        if (entry.error != null) entry.error.printStackTrace(out);
+    }
+}
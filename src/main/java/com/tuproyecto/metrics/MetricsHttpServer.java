@@ -0,0 +1,47 @@
+package com.tuproyecto.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Endpoint /metrics en texto de Prometheus con todos los registros del proceso. Sólo se levanta si se
+// indica -Ddarray.metrics.port; por defecto escucha en loopback (-Ddarray.metrics.host para cambiarlo).
+final class MetricsHttpServer {
+    private static final int PORT = Integer.getInteger("darray.metrics.port", -1);
+    private static final String HOST = System.getProperty("darray.metrics.host", "127.0.0.1");
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+
+    private MetricsHttpServer() {}
+
+    static void startIfConfigured() {
+        if (PORT < 0 || !STARTED.compareAndSet(false, true)) return;
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(HOST, PORT), 0);
+            server.createContext("/metrics", MetricsHttpServer::serve);
+            server.start(); // el ejecutor por defecto atiende en el hilo del servidor: basta para un scrape
+            Log.info("[METRICS] Métricas disponibles en http://%s:%d/metrics", HOST, server.getAddress().getPort());
+        } catch (IOException e) {
+            Log.warn("[METRICS] No se pudo abrir el puerto de métricas %d: %s", PORT, e.getMessage());
+        }
+    }
+
+    private static void serve(HttpExchange exchange) throws IOException {
+        Map<String, StringBuilder> families = new TreeMap<>();
+        for (MetricsRegistry registry : MetricsRegistry.all()) registry.writeText(families);
+        StringBuilder text = new StringBuilder();
+        families.forEach((type, samples) -> text.append(type).append('\n').append(samples));
+        byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
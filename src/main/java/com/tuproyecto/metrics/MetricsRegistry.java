@@ -0,0 +1,112 @@
+package com.tuproyecto.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Métricas de un componente (el Maestro, cada worker, el transporte). Cada registro se publica como
+// MBean com.tuproyecto:type=Metrics,name=<componente> y, con -Ddarray.metrics.port, en http://host:port/metrics.
+public final class MetricsRegistry {
+    private static final List<MetricsRegistry> ALL = new CopyOnWriteArrayList<>();
+
+    private final String component;
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    private MetricsRegistry(String component) {
+        this.component = component;
+    }
+
+    public static MetricsRegistry create(String component) {
+        MetricsRegistry registry = new MetricsRegistry(component);
+        // Un componente recreado en el mismo proceso (p. ej. en benchmarks) sustituye al anterior.
+        ALL.removeIf(r -> r.component.equals(component));
+        ALL.add(registry);
+        registry.registerMBean();
+        MetricsHttpServer.startIfConfigured();
+        return registry;
+    }
+
+    static List<MetricsRegistry> all() { return ALL; }
+
+    public String component() { return component; }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    // Valor instantáneo (tamaños de colas, memoria...) que sólo se calcula al leer las métricas.
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // Vista plana nombre -> valor: son los atributos del MBean.
+    Map<String, Double> snapshot() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        counters.forEach((name, c) -> values.put(name, (double) c.get()));
+        gauges.forEach((name, g) -> values.put(name, g.getAsDouble()));
+        histograms.forEach((name, h) -> {
+            values.put(name + ".count", (double) h.count());
+            values.put(name + ".meanMillis", h.meanMillis());
+            values.put(name + ".p50Millis", h.quantileMillis(0.5));
+            values.put(name + ".p99Millis", h.quantileMillis(0.99));
+            values.put(name + ".maxMillis", h.maxMillis());
+        });
+        return values;
+    }
+
+    // Muestras en formato de texto de Prometheus agrupadas por familia ("# TYPE ..."), para que varios
+    // componentes del mismo proceso compartan cabecera. Los histogramas van como summary con cuantiles estimados.
+    void writeText(Map<String, StringBuilder> families) {
+        String labels = "{component=\"" + component + "\"";
+        counters.forEach((name, c) -> sample(families, metricName(name) + "_total", "counter", labels + "}", c.get()));
+        gauges.forEach((name, g) -> sample(families, metricName(name), "gauge", labels + "}", g.getAsDouble()));
+        histograms.forEach((name, h) -> {
+            String metric = metricName(name) + "_seconds";
+            StringBuilder out = families.computeIfAbsent("# TYPE " + metric + " summary", k -> new StringBuilder());
+            for (double q : new double[]{0.5, 0.9, 0.99}) {
+                out.append(metric).append(labels).append(",quantile=\"").append(q).append("\"} ")
+                        .append(format(h.quantileMillis(q) / 1000)).append('\n');
+            }
+            out.append(metric).append("_count").append(labels).append("} ").append(h.count()).append('\n');
+            out.append(metric).append("_sum").append(labels).append("} ").append(format(h.sumSeconds())).append('\n');
+        });
+    }
+
+    private static void sample(Map<String, StringBuilder> families, String metric, String type, String labels, double value) {
+        families.computeIfAbsent("# TYPE " + metric + " " + type, k -> new StringBuilder())
+                .append(metric).append(labels).append(' ').append(format(value)).append('\n');
+    }
+
+    private static String metricName(String name) {
+        return "darray_" + name.replace('.', '_').replace('-', '_');
+    }
+
+    private static String format(double value) {
+        return (value == Math.rint(value) && Math.abs(value) < 1e15) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.tuproyecto:type=Metrics,name=" + ObjectName.quote(component));
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(new MetricsMBean(this), name);
+        } catch (Exception e) {
+            Log.warn("[METRICS] No se pudo registrar el MBean de %s: %s", component, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.tuproyecto.operation;
+
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Agregación distribuida: cada worker calcula un parcial de su chunk y el Maestro combina los parciales,
+ * así sólo viajan unos pocos doubles por chunk. Formato de los parciales:
+ *   STATS     -> [count, sum, min, max]
+ *   HISTOGRAM -> un contador por bin sobre [HIST_MIN, HIST_MAX]; los valores fuera del rango se ignoran
+ *   REDUCE    -> [valor], usando la DoubleReducer registrada con el nombre REDUCER; sobre una entrada int
+ *                con IntReducer del mismo nombre, el long resultante partido en [alto, bajo] (IntChunk)
+ * Se transmite en las cabeceras AGGREGATE, REDUCER, BINS, HIST_MIN y HIST_MAX.
+ */
+public final class Aggregation {
+    public enum Kind { STATS, HISTOGRAM, REDUCE }
+
+    private final Kind kind;
+    private final String reducerName;
+    private final int bins;
+    private final double histMin;
+    private final double histMax;
+
+    private Aggregation(Kind kind, String reducerName, int bins, double histMin, double histMax) {
+        this.kind = kind;
+        this.reducerName = reducerName;
+        this.bins = bins;
+        this.histMin = histMin;
+        this.histMax = histMax;
+    }
+
+    public static Aggregation stats() {
+        return new Aggregation(Kind.STATS, null, 0, 0, 0);
+    }
+
+    public static Aggregation reduce(String reducerName) {
+        return new Aggregation(Kind.REDUCE, reducerName, 0, 0, 0);
+    }
+
+    public static Aggregation histogram(int bins, double min, double max) {
+        if (bins <= 0 || !(max > min)) throw new IllegalArgumentException("Histograma inválido: bins=" + bins + ", rango=[" + min + ", " + max + "]");
+        return new Aggregation(Kind.HISTOGRAM, null, bins, min, max);
+    }
+
+    // Devuelve null si el mensaje no pide agregación.
+    public static Aggregation fromHeaders(Map<String, String> headers) {
+        String kind = headers.get("AGGREGATE");
+        if (kind == null) return null;
+        switch (Kind.valueOf(kind)) {
+            case STATS: return stats();
+            case REDUCE: return reduce(headers.get("REDUCER"));
+            case HISTOGRAM: return histogram(Integer.parseInt(headers.get("BINS")),
+                    Double.parseDouble(headers.get("HIST_MIN")), Double.parseDouble(headers.get("HIST_MAX")));
+            default: throw new IllegalArgumentException("Agregación desconocida: " + kind);
+        }
+    }
+
+    public void writeTo(Map<String, String> headers) {
+        headers.put("AGGREGATE", kind.name());
+        if (kind == Kind.REDUCE) {
+            headers.put("REDUCER", reducerName);
+        } else if (kind == Kind.HISTOGRAM) {
+            headers.put("BINS", String.valueOf(bins));
+            headers.put("HIST_MIN", String.valueOf(histMin));
+            headers.put("HIST_MAX", String.valueOf(histMax));
+        }
+    }
+
+    public Kind kind() { return kind; }
+
+    // Sólo para REDUCE; null en las demás.
+    public String reducerName() { return reducerName; }
+
+    public double[] partial(double[] values, int from, int to) {
+        switch (kind) {
+            case STATS: {
+                double sum = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    double x = values[i];
+                    sum += x;
+                    if (x < min) min = x;
+                    if (x > max) max = x;
+                }
+                return new double[]{to - from, sum, min, max};
+            }
+            case HISTOGRAM: {
+                double[] counts = new double[bins];
+                double width = (histMax - histMin) / bins;
+                for (int i = from; i < to; i++) {
+                    double x = values[i];
+                    if (!(x >= histMin && x <= histMax)) continue; // también descarta NaN
+                    int bin = (int) ((x - histMin) / width);
+                    counts[Math.min(bin, bins - 1)]++;
+                }
+                return counts;
+            }
+            default:
+                return new double[]{OperationRegistry.getDefault().lookupReducer(reducerName).reduce(values, from, to)};
+        }
+    }
+
+    public double[] combine(List<DoubleChunk> partials) {
+        switch (kind) {
+            case STATS: {
+                double count = 0, sum = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+                for (DoubleChunk p : partials) {
+                    count += p.get(0);
+                    sum += p.get(1);
+                    min = Math.min(min, p.get(2));
+                    max = Math.max(max, p.get(3));
+                }
+                return new double[]{count, sum, min, max};
+            }
+            case HISTOGRAM: {
+                double[] counts = new double[bins];
+                for (DoubleChunk p : partials) {
+                    for (int b = 0; b < bins; b++) counts[b] += p.get(b);
+                }
+                return counts;
+            }
+            default: {
+                DoubleReducer reducer = OperationRegistry.getDefault().lookupReducer(reducerName);
+                double acc = reducer.identity();
+                for (DoubleChunk p : partials) acc = reducer.combine(acc, p.get(0));
+                return new double[]{acc};
+            }
+        }
+    }
+
+    // null si la agregación no es una REDUCE con versión entera.
+    public IntReducer intReducer() {
+        return (kind == Kind.REDUCE) ? OperationRegistry.getDefault().lookupIntReducer(reducerName) : null;
+    }
+
+    public static IntChunk longPartial(long value) {
+        return new IntChunk(new int[]{(int) (value >>> 32), (int) value});
+    }
+
+    // Un parcial double viene de un worker que redujo en double (p. ej. uno de texto): se trunca.
+    public static long longValue(DataChunk partial) {
+        if (partial instanceof IntChunk) {
+            IntChunk p = (IntChunk) partial;
+            return ((long) p.get(0) << 32) | (p.get(1) & 0xFFFFFFFFL);
+        }
+        return (long) ((DoubleChunk) partial).get(0);
+    }
+
+    public long combineLongs(List<DataChunk> partials) {
+        IntReducer reducer = OperationRegistry.getDefault().lookupIntReducer(reducerName);
+        if (reducer == null) throw new IllegalArgumentException("Reducción entera desconocida: " + reducerName);
+        long acc = reducer.identity();
+        for (DataChunk p : partials) acc = reducer.combine(acc, longValue(p));
+        return acc;
+    }
+
+    public double[] combineArrays(List<double[]> partials) {
+        DoubleChunk[] chunks = new DoubleChunk[partials.size()];
+        for (int i = 0; i < chunks.length; i++) chunks[i] = new DoubleChunk(partials.get(i));
+        return combine(Arrays.asList(chunks));
+    }
+}
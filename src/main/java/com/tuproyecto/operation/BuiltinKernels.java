@@ -0,0 +1,124 @@
+package com.tuproyecto.operation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.LongBinaryOperator;
+
+// Operaciones, filtros y reducciones incluidas de serie, portadas desde Worker.processChunkLocally a bucles sin boxing.
+final class BuiltinKernels {
+    private BuiltinKernels() {}
+
+    static List<DoubleKernel> all() {
+        return Arrays.asList(new Identity(), new ComplexOp(), new ConditionalOpInt());
+    }
+
+    static List<IntKernel> intKernels() {
+        return Arrays.asList(new IntIdentity(), new ConditionalOpIntNative());
+    }
+
+    static List<DoubleReducer> reducers() {
+        return Arrays.asList(
+                reducer("SUM", 0.0, Double::sum),
+                reducer("PRODUCT", 1.0, (a, b) -> a * b),
+                reducer("MIN", Double.POSITIVE_INFINITY, Math::min),
+                reducer("MAX", Double.NEGATIVE_INFINITY, Math::max));
+    }
+
+    // Un int sumado en long no desborda en la práctica; el neutro de MIN/MAX se queda en el rango de int.
+    static List<IntReducer> intReducers() {
+        return Arrays.asList(
+                intReducer("SUM", 0L, Long::sum),
+                intReducer("MIN", Integer.MAX_VALUE, Math::min),
+                intReducer("MAX", Integer.MIN_VALUE, Math::max));
+    }
+
+    static List<DoubleFilter> filters() {
+        return Arrays.asList(
+                filter("POSITIVE", x -> x > 0),
+                filter("NEGATIVE", x -> x < 0),
+                filter("NON_ZERO", x -> x != 0),
+                filter("FINITE", Double::isFinite),
+                filter("EVEN", x -> x % 2 == 0));
+    }
+
+    private static DoubleFilter filter(String name, DoublePredicate predicate) {
+        return new DoubleFilter() {
+            @Override public String name() { return name; }
+            @Override public boolean test(double x) { return predicate.test(x); }
+        };
+    }
+
+    private static DoubleReducer reducer(String name, double identity, DoubleBinaryOperator op) {
+        return new DoubleReducer() {
+            @Override public String name() { return name; }
+            @Override public double identity() { return identity; }
+            @Override public double combine(double a, double b) { return op.applyAsDouble(a, b); }
+        };
+    }
+
+    private static IntReducer intReducer(String name, long identity, LongBinaryOperator op) {
+        return new IntReducer() {
+            @Override public String name() { return name; }
+            @Override public long identity() { return identity; }
+            @Override public long combine(long a, long b) { return op.applyAsLong(a, b); }
+        };
+    }
+
+    static final class Identity implements DoubleKernel {
+        @Override public String name() { return "IDENTITY"; }
+
+        @Override
+        public void apply(double[] in, double[] out, int from, int to) {
+            System.arraycopy(in, from, out, from, to - from);
+        }
+    }
+
+    static final class ComplexOp implements DoubleKernel {
+        @Override public String name() { return "COMPLEX_OP"; }
+
+        @Override
+        public void apply(double[] in, double[] out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                double x = in[i];
+                double s = Math.sin(x) + Math.cos(x);
+                out[i] = (s * s) / (Math.sqrt(Math.abs(x)) + 1);
+            }
+        }
+    }
+
+    static final class ConditionalOpInt implements DoubleKernel {
+        @Override public String name() { return "CONDITIONAL_OP_INT"; }
+
+        @Override
+        public void apply(double[] in, double[] out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                double x = in[i];
+                out[i] = (x % 3 == 0 || (x >= 500 && x <= 1000)) ? (x * Math.log(x)) % 7 : x;
+            }
+        }
+    }
+
+    static final class IntIdentity implements IntKernel {
+        @Override public String name() { return "IDENTITY"; }
+
+        @Override
+        public void apply(int[] in, int[] out, int from, int to) {
+            System.arraycopy(in, from, out, from, to - from);
+        }
+    }
+
+    // Misma fórmula que ConditionalOpInt truncada a int, con la condición evaluada en aritmética entera.
+    static final class ConditionalOpIntNative implements IntKernel {
+        @Override public String name() { return "CONDITIONAL_OP_INT"; }
+
+        @Override
+        public void apply(int[] in, int[] out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int x = in[i];
+                out[i] = (x % 3 == 0 || (x >= 500 && x <= 1000)) ? (int) ((x * Math.log(x)) % 7) : x;
+            }
+        }
+    }
+}
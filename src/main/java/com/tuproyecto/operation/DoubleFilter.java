@@ -0,0 +1,9 @@
+package com.tuproyecto.operation;
+
+// Predicado para las etapas FILTER de un Pipeline: se conservan los elementos para los que test es true.
+// Se registra con ServiceLoader en META-INF/services/com.tuproyecto.operation.DoubleFilter.
+public interface DoubleFilter {
+    String name();
+
+    boolean test(double x);
+}
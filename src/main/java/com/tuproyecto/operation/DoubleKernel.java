@@ -0,0 +1,10 @@
+package com.tuproyecto.operation;
+
+// Operación elemento a elemento aplicada en bloque: out[i] = f(in[i]) para i en [from, to).
+// Las implementaciones de usuario se registran con ServiceLoader en
+// META-INF/services/com.tuproyecto.operation.DoubleKernel y necesitan un constructor sin argumentos.
+public interface DoubleKernel {
+    String name();
+
+    void apply(double[] in, double[] out, int from, int to);
+}
@@ -0,0 +1,17 @@
+package com.tuproyecto.operation;
+
+// Reducción asociativa con elemento neutro; se aplica por chunk en los workers y luego en el Maestro.
+// Se registra con ServiceLoader en META-INF/services/com.tuproyecto.operation.DoubleReducer.
+public interface DoubleReducer {
+    String name();
+
+    double identity();
+
+    double combine(double a, double b);
+
+    default double reduce(double[] values, int from, int to) {
+        double acc = identity();
+        for (int i = from; i < to; i++) acc = combine(acc, values[i]);
+        return acc;
+    }
+}
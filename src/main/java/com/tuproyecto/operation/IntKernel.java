@@ -0,0 +1,11 @@
+package com.tuproyecto.operation;
+
+// Versión entera de DoubleKernel: out[i] = f(in[i]) para i en [from, to), con entrada y resultado int.
+// Los workers la usan para trabajos int -> int (RESULT_TYPE=INT) cuando hay una registrada con el nombre
+// de la operación; si no, calculan con el DoubleKernel y truncan. Se registra con ServiceLoader en
+// META-INF/services/com.tuproyecto.operation.IntKernel.
+public interface IntKernel {
+    String name();
+
+    void apply(int[] in, int[] out, int from, int to);
+}
@@ -0,0 +1,19 @@
+package com.tuproyecto.operation;
+
+// Versión entera de DoubleReducer: reduce ints en aritmética long, sin pasar por double. Los workers la usan
+// en las agregaciones REDUCE sobre una entrada int cuando hay una registrada con el nombre de la reducción;
+// si no, reducen con la DoubleReducer. Se registra con ServiceLoader en
+// META-INF/services/com.tuproyecto.operation.IntReducer.
+public interface IntReducer {
+    String name();
+
+    long identity();
+
+    long combine(long a, long b);
+
+    default long reduce(int[] values, int from, int to) {
+        long acc = identity();
+        for (int i = from; i < to; i++) acc = combine(acc, values[i]);
+        return acc;
+    }
+}
@@ -0,0 +1,103 @@
+package com.tuproyecto.operation;
+
+import java.util.Collections;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Registro de kernels, filtros y reducciones por nombre: los de serie más los que se encuentren vía ServiceLoader.
+public final class OperationRegistry {
+    private static final OperationRegistry DEFAULT = load();
+
+    private final ConcurrentMap<String, DoubleKernel> kernels = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IntKernel> intKernels = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DoubleFilter> filters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DoubleReducer> reducers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IntReducer> intReducers = new ConcurrentHashMap<>();
+
+    public static OperationRegistry getDefault() { return DEFAULT; }
+
+    private static OperationRegistry load() {
+        OperationRegistry registry = new OperationRegistry();
+        BuiltinKernels.all().forEach(registry::register);
+        BuiltinKernels.intKernels().forEach(registry::registerInt);
+        BuiltinKernels.filters().forEach(registry::registerFilter);
+        BuiltinKernels.reducers().forEach(registry::registerReducer);
+        BuiltinKernels.intReducers().forEach(registry::registerIntReducer);
+        for (DoubleKernel kernel : ServiceLoader.load(DoubleKernel.class)) {
+            registry.register(kernel);
+        }
+        for (IntKernel kernel : ServiceLoader.load(IntKernel.class)) {
+            registry.registerInt(kernel);
+        }
+        for (DoubleFilter filter : ServiceLoader.load(DoubleFilter.class)) {
+            registry.registerFilter(filter);
+        }
+        for (DoubleReducer reducer : ServiceLoader.load(DoubleReducer.class)) {
+            registry.registerReducer(reducer);
+        }
+        for (IntReducer reducer : ServiceLoader.load(IntReducer.class)) {
+            registry.registerIntReducer(reducer);
+        }
+        return registry;
+    }
+
+    public void register(DoubleKernel kernel) {
+        kernels.put(kernel.name(), kernel);
+    }
+
+    public void registerInt(IntKernel kernel) {
+        intKernels.put(kernel.name(), kernel);
+    }
+
+    public void registerFilter(DoubleFilter filter) {
+        filters.put(filter.name(), filter);
+    }
+
+    public void registerReducer(DoubleReducer reducer) {
+        reducers.put(reducer.name(), reducer);
+    }
+
+    public void registerIntReducer(IntReducer reducer) {
+        intReducers.put(reducer.name(), reducer);
+    }
+
+    // Una operación desconocida se trata como identidad, igual que hacía el Worker originalmente.
+    public DoubleKernel lookup(String name) {
+        DoubleKernel kernel = (name == null) ? null : kernels.get(name);
+        return kernel != null ? kernel : kernels.get("IDENTITY");
+    }
+
+    // Sin versión entera devuelve null: quien llama calcula en double y trunca.
+    public IntKernel lookupInt(String name) {
+        return (name == null) ? null : intKernels.get(name);
+    }
+
+    public DoubleFilter lookupFilter(String name) {
+        DoubleFilter filter = (name == null) ? null : filters.get(name);
+        if (filter == null) throw new IllegalArgumentException("Filtro desconocido: " + name);
+        return filter;
+    }
+
+    // A diferencia de los kernels, una reducción desconocida no tiene un valor por defecto sensato.
+    public DoubleReducer lookupReducer(String name) {
+        DoubleReducer reducer = (name == null) ? null : reducers.get(name);
+        if (reducer == null) throw new IllegalArgumentException("Reducción desconocida: " + name);
+        return reducer;
+    }
+
+    // Como lookupInt: sin versión entera devuelve null y se reduce en double.
+    public IntReducer lookupIntReducer(String name) {
+        return (name == null) ? null : intReducers.get(name);
+    }
+
+    public boolean contains(String name) {
+        return name != null && kernels.containsKey(name);
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(new TreeSet<>(kernels.keySet()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.tuproyecto.operation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Plan de etapas que un worker aplica fusionadas en una sola pasada por bloque:
+ *   MAP:<kernel>     transforma cada elemento con un DoubleKernel
+ *   FILTER:<filtro>  conserva sólo los elementos que cumplen un DoubleFilter
+ *   TO_INT           trunca cada elemento a int (mapToInt)
+ * Viaja en la cabecera PLAN como "MAP:COMPLEX_OP,FILTER:POSITIVE,TO_INT". Es inmutable.
+ */
+public final class Pipeline {
+    public enum Kind { MAP, FILTER, TO_INT }
+
+    public static final class Stage {
+        private final Kind kind;
+        private final String name;
+
+        private Stage(Kind kind, String name) {
+            this.kind = kind;
+            this.name = name;
+        }
+
+        public Kind kind() { return kind; }
+        public String name() { return name; }
+
+        @Override
+        public String toString() { return (name == null) ? kind.name() : kind + ":" + name; }
+    }
+
+    private static final Pipeline EMPTY = new Pipeline(Collections.emptyList());
+
+    private final List<Stage> stages;
+
+    private Pipeline(List<Stage> stages) {
+        this.stages = stages;
+    }
+
+    public static Pipeline empty() { return EMPTY; }
+
+    public static Pipeline of(String operationId) { return EMPTY.map(operationId); }
+
+    public Pipeline map(String operationId) { return with(new Stage(Kind.MAP, operationId)); }
+
+    public Pipeline filter(String filterName) { return with(new Stage(Kind.FILTER, filterName)); }
+
+    public Pipeline toInt() { return with(new Stage(Kind.TO_INT, null)); }
+
+    private Pipeline with(Stage stage) {
+        List<Stage> next = new ArrayList<>(stages);
+        next.add(stage);
+        return new Pipeline(Collections.unmodifiableList(next));
+    }
+
+    public List<Stage> stages() { return stages; }
+
+    public boolean isEmpty() { return stages.isEmpty(); }
+
+    // Sin etapas FILTER cada chunk conserva su tamaño y el resultado no necesita compactarse.
+    public boolean preservesSize() {
+        return stages.stream().noneMatch(s -> s.kind == Kind.FILTER);
+    }
+
+    // Un único MAP se envía con la cabecera OPERATION de siempre, sin PLAN.
+    public boolean isSingleMap() {
+        return stages.size() == 1 && stages.get(0).kind == Kind.MAP;
+    }
+
+    public String encode() {
+        return stages.stream().map(Stage::toString).collect(Collectors.joining(","));
+    }
+
+    public static Pipeline parse(String plan) {
+        Pipeline pipeline = EMPTY;
+        if (plan == null || plan.isEmpty()) return pipeline;
+        for (String token : plan.split(",")) {
+            int colon = token.indexOf(':');
+            Kind kind = Kind.valueOf(colon < 0 ? token : token.substring(0, colon));
+            String name = colon < 0 ? null : token.substring(colon + 1);
+            if (kind != Kind.TO_INT && (name == null || name.isEmpty())) {
+                throw new IllegalArgumentException("Etapa sin nombre en el plan: " + token);
+            }
+            pipeline = pipeline.with(new Stage(kind, kind == Kind.TO_INT ? null : name));
+        }
+        return pipeline;
+    }
+
+    @Override
+    public String toString() { return isEmpty() ? "IDENTITY" : encode(); }
+}
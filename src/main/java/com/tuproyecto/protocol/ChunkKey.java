@@ -0,0 +1,62 @@
+package com.tuproyecto.protocol;
+
+// Identificador de un chunk: el trabajo o array residente al que pertenece y su posición. En los mensajes
+// viaja como "<owner>-c<index>" (CHUNK_ID, SOURCE_CHUNK, STORE_CHUNK); dentro del Maestro se usa la clave.
+public final class ChunkKey {
+    private static final String SEPARATOR = "-c";
+
+    private final String owner;
+    private final int index;
+
+    public ChunkKey(String owner, int index) {
+        if (owner == null || index < 0) throw new IllegalArgumentException("Chunk inválido: " + owner + SEPARATOR + index);
+        this.owner = owner;
+        this.index = index;
+    }
+
+    // El índice va tras el último separador, así el dueño puede contener "-c". Sin signo: "job-c+1" no es "job-c1".
+    public static ChunkKey parse(String chunkId) {
+        int sep = chunkId.lastIndexOf(SEPARATOR);
+        int digits = sep + SEPARATOR.length();
+        if (sep <= 0 || digits >= chunkId.length() || !Character.isDigit(chunkId.charAt(digits))) {
+            throw new IllegalArgumentException("CHUNK_ID inválido: " + chunkId);
+        }
+        try {
+            return new ChunkKey(chunkId.substring(0, sep), Integer.parseInt(chunkId.substring(sep + SEPARATOR.length())));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("CHUNK_ID inválido: " + chunkId);
+        }
+    }
+
+    // Prefijo común a todos los chunks de un dueño, para liberarlos de una vez en los workers.
+    public static String prefixOf(String owner) {
+        return owner + SEPARATOR;
+    }
+
+    public String owner() { return owner; }
+
+    public int index() { return index; }
+
+    // El chunk en la misma posición de otro trabajo o array (p. ej. el de entrada de un array residente).
+    public ChunkKey withOwner(String otherOwner) {
+        return new ChunkKey(otherOwner, index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ChunkKey)) return false;
+        ChunkKey other = (ChunkKey) o;
+        return index == other.index && owner.equals(other.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * owner.hashCode() + index;
+    }
+
+    @Override
+    public String toString() {
+        return owner + SEPARATOR + index;
+    }
+}
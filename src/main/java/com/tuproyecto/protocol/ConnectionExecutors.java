@@ -0,0 +1,91 @@
+package com.tuproyecto.protocol;
+
+import com.tuproyecto.metrics.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Hilos para las conexiones de Maestro y Worker. El modo se elige al arrancar con -Ddarray.io:
+ *   VIRTUAL  - un hilo virtual por conexión/envío (requiere Java 21+; por defecto si está disponible)
+ *   PLATFORM - hilos de plataforma: cacheados para conexiones y acotados para los envíos
+ * Los hilos virtuales se crean por reflexión para que el proyecto siga compilando con Java 17.
+ */
+public final class ConnectionExecutors {
+    public enum Mode { PLATFORM, VIRTUAL }
+
+    private static final Mode MODE = resolveMode();
+
+    private ConnectionExecutors() {}
+
+    public static Mode mode() { return MODE; }
+
+    // Un hilo por conexión de larga duración.
+    public static ExecutorService perConnection(String prefix) {
+        if (MODE == Mode.VIRTUAL) return virtualPerTask(prefix);
+        return Executors.newCachedThreadPool(platformThreads(prefix));
+    }
+
+    // Envíos bloqueantes cortos (p. ej. escribir un chunk en un socket). En modo PLATFORM se acota
+    // el número de hilos para no crear uno por chunk.
+    public static ExecutorService forBlockingIo(String prefix, int platformThreads) {
+        if (MODE == Mode.VIRTUAL) return virtualPerTask(prefix);
+        return Executors.newFixedThreadPool(platformThreads, platformThreads(prefix));
+    }
+
+    public static Thread startThread(String name, Runnable task) {
+        Thread thread = (MODE == Mode.VIRTUAL) ? virtualThreads(name).newThread(task) : platformThreads(name).newThread(task);
+        thread.setName(name);
+        thread.start();
+        return thread;
+    }
+
+    private static Mode resolveMode() {
+        String requested = System.getProperty("darray.io", "VIRTUAL").toUpperCase();
+        boolean supported = virtualThreadsSupported();
+        if ("VIRTUAL".equals(requested) && !supported) {
+            Log.warn("[IO] Hilos virtuales no disponibles en esta JVM (requiere Java 21+). Usando hilos de plataforma.");
+        }
+        return "VIRTUAL".equals(requested) && supported ? Mode.VIRTUAL : Mode.PLATFORM;
+    }
+
+    private static boolean virtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService virtualPerTask(String prefix) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, virtualThreads(prefix));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se pudo crear el executor de hilos virtuales", e);
+        }
+    }
+
+    private static ThreadFactory virtualThreads(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se pudo crear la fábrica de hilos virtuales", e);
+        }
+    }
+
+    private static ThreadFactory platformThreads(String prefix) {
+        AtomicLong counter = new AtomicLong();
+        return task -> {
+            Thread thread = new Thread(task, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
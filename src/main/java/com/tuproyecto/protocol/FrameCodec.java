@@ -0,0 +1,215 @@
+package com.tuproyecto.protocol;
+
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Formato binario de un frame:
+ *   [MAGIC:1][VERSION:1][HEADER:writeUTF "K=V;K=V"][ELEM_TYPE:1][COUNT:4][COUNT * 8|4 bytes big-endian]
+ * o, con el payload comprimido (ELEM_DOUBLE_DXOR, ELEM_INT_VARINT; ver PayloadCodecs):
+ *   ...[ELEM_TYPE:1][COUNT:4][BYTES:4][BYTES bytes]
+ * El primer byte (0xDA) nunca puede iniciar un mensaje de texto, lo que permite detectar el formato.
+ */
+public final class FrameCodec {
+    public static final int MAGIC = 0xDA;
+    public static final int VERSION = 1;
+
+    static final byte ELEM_NONE = 0;
+    static final byte ELEM_DOUBLE = 1;
+    static final byte ELEM_INT = 2;
+    static final byte ELEM_DOUBLE_DXOR = 3;
+    static final byte ELEM_INT_VARINT = 4;
+
+    // Cabecera de transporte con los códecs que sabe decodificar quien escribe (ver MessageChannel).
+    static final String CODECS_HEADER = "CODECS";
+    // Por debajo de este tamaño no compensa intentarlo, y sólo se comprime si se ahorra al menos 1/8.
+    private static final int MIN_COMPRESS_ELEMENTS = 256;
+
+    // Los arrays se copian a través de un buffer de tamaño fijo para no duplicar el payload en memoria.
+    private static final int BLOCK_BYTES = 64 * 1024;
+    // COUNT lo dice el otro extremo: el array de destino se reserva hasta este tamaño y crece a medida que
+    // llegan los datos, así un frame corrupto no puede pedir gigas con unos pocos bytes.
+    private static final int INITIAL_READ_BYTES = 8 * 1024 * 1024;
+
+    private FrameCodec() {}
+
+    // La cabecera se serializa en memoria y el payload se escribe por bloques directamente sobre 'out'.
+    // No se escribe a través de DataOutputStream.write(byte[]), que es synchronized y fijaría el hilo
+    // portador de un hilo virtual mientras el socket está bloqueado.
+    public static void write(OutputStream out, Message message) throws IOException {
+        write(out, message, null, null);
+    }
+
+    // peerCodecs: códecs que acepta el otro extremo (null = ninguno). advertise: si no es null, se añade
+    // como cabecera CODECS. Devuelve los bytes de payload ahorrados por la compresión.
+    static long write(OutputStream out, Message message, String peerCodecs, String advertise) throws IOException {
+        DoubleChunk doubles = message.getData();
+        IntChunk ints = message.getIntData();
+        PayloadCodecs.Encoded encoded = null;
+        long rawBytes = 0;
+        if (doubles != null && doubles.length() >= MIN_COMPRESS_ELEMENTS && PayloadCodecs.accepts(peerCodecs, PayloadCodecs.DXOR)) {
+            rawBytes = (long) doubles.length() * Double.BYTES;
+            encoded = PayloadCodecs.encodeDoubles(doubles.array(), doubles.offset(), doubles.length(), budget(rawBytes));
+        } else if (ints != null && ints.length() >= MIN_COMPRESS_ELEMENTS && PayloadCodecs.accepts(peerCodecs, PayloadCodecs.VARINT)) {
+            rawBytes = (long) ints.length() * Integer.BYTES;
+            encoded = PayloadCodecs.encodeInts(ints.array(), ints.offset(), ints.length(), budget(rawBytes));
+        }
+
+        Map<String, String> headers = message.headers();
+        if (advertise != null) {
+            headers = new HashMap<>(headers);
+            headers.put(CODECS_HEADER, advertise);
+        }
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(128);
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeByte(MAGIC);
+        header.writeByte(VERSION);
+        header.writeUTF(ProtocolParser.create(headers));
+        if (doubles != null) {
+            header.writeByte(encoded != null ? ELEM_DOUBLE_DXOR : ELEM_DOUBLE);
+            header.writeInt(doubles.length());
+        } else if (ints != null) {
+            header.writeByte(encoded != null ? ELEM_INT_VARINT : ELEM_INT);
+            header.writeInt(ints.length());
+        } else {
+            header.writeByte(ELEM_NONE);
+        }
+        if (encoded != null) header.writeInt(encoded.length);
+        out.write(headerBytes.toByteArray());
+
+        if (encoded != null) out.write(encoded.bytes, 0, encoded.length);
+        else if (doubles != null) writeDoubles(out, doubles);
+        else if (ints != null) writeInts(out, ints);
+        out.flush();
+        return (encoded != null) ? rawBytes - encoded.length : 0;
+    }
+
+    private static int budget(long rawBytes) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, rawBytes - rawBytes / 8);
+    }
+
+    public static Message read(DataInputStream in) throws IOException {
+        int magic = in.read();
+        if (magic < 0) return null;
+        if (magic != MAGIC) throw new IOException("Frame binario inválido (magic=" + magic + ")");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Versión de protocolo no soportada: " + version);
+
+        Message message = new Message(ProtocolParser.parse(in.readUTF()));
+        byte elemType = in.readByte();
+        if (elemType == ELEM_DOUBLE) {
+            message.setData(readDoubles(in));
+        } else if (elemType == ELEM_INT) {
+            message.setIntData(readInts(in));
+        } else if (elemType == ELEM_DOUBLE_DXOR || elemType == ELEM_INT_VARINT) {
+            int count = readCount(in);
+            byte[] encoded = readBytes(in, readCount(in));
+            // Cada elemento ocupa al menos 1 bit (DXOR) o 1 byte (VARINT): un COUNT mayor es un frame corrupto
+            // y no debe reservar el array de salida.
+            long maxCount = (elemType == ELEM_DOUBLE_DXOR) ? encoded.length * 8L : encoded.length;
+            if (count > maxCount) throw new IOException("Payload comprimido inválido: " + count + " elementos en " + encoded.length + " bytes");
+            try {
+                if (elemType == ELEM_DOUBLE_DXOR) message.setData(new DoubleChunk(PayloadCodecs.decodeDoubles(encoded, count)));
+                else message.setIntData(new IntChunk(PayloadCodecs.decodeInts(encoded, count)));
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Payload comprimido truncado (" + encoded.length + " bytes para " + count + " elementos)");
+            }
+        } else if (elemType != ELEM_NONE) {
+            throw new IOException("Tipo de elemento desconocido: " + elemType);
+        }
+        return message;
+    }
+
+    // Escribe directamente desde la vista, sin copiar el slice a un array intermedio.
+    private static void writeDoubles(OutputStream out, DoubleChunk chunk) throws IOException {
+        double[] values = chunk.array();
+        int end = chunk.offset() + chunk.length();
+        byte[] block = new byte[BLOCK_BYTES];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int perBlock = BLOCK_BYTES / Double.BYTES;
+        for (int i = chunk.offset(); i < end; i += perBlock) {
+            int n = Math.min(perBlock, end - i);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(values, i, n);
+            out.write(block, 0, n * Double.BYTES);
+        }
+    }
+
+    private static DoubleChunk readDoubles(DataInputStream in) throws IOException {
+        int count = readCount(in);
+        double[] values = new double[Math.min(count, INITIAL_READ_BYTES / Double.BYTES)];
+        byte[] block = new byte[BLOCK_BYTES];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int perBlock = BLOCK_BYTES / Double.BYTES;
+        for (int i = 0; i < count; i += perBlock) {
+            int n = Math.min(perBlock, count - i);
+            in.readFully(block, 0, n * Double.BYTES);
+            if (i + n > values.length) values = Arrays.copyOf(values, grownLength(values.length, i + n, count));
+            buffer.clear();
+            buffer.asDoubleBuffer().get(values, i, n);
+        }
+        return new DoubleChunk(values);
+    }
+
+    private static void writeInts(OutputStream out, IntChunk chunk) throws IOException {
+        int[] values = chunk.array();
+        int end = chunk.offset() + chunk.length();
+        byte[] block = new byte[BLOCK_BYTES];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int perBlock = BLOCK_BYTES / Integer.BYTES;
+        for (int i = chunk.offset(); i < end; i += perBlock) {
+            int n = Math.min(perBlock, end - i);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, i, n);
+            out.write(block, 0, n * Integer.BYTES);
+        }
+    }
+
+    private static IntChunk readInts(DataInputStream in) throws IOException {
+        int count = readCount(in);
+        int[] values = new int[Math.min(count, INITIAL_READ_BYTES / Integer.BYTES)];
+        byte[] block = new byte[BLOCK_BYTES];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int perBlock = BLOCK_BYTES / Integer.BYTES;
+        for (int i = 0; i < count; i += perBlock) {
+            int n = Math.min(perBlock, count - i);
+            in.readFully(block, 0, n * Integer.BYTES);
+            if (i + n > values.length) values = Arrays.copyOf(values, grownLength(values.length, i + n, count));
+            buffer.clear();
+            buffer.asIntBuffer().get(values, i, n);
+        }
+        return new IntChunk(values);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, INITIAL_READ_BYTES)];
+        for (int i = 0; i < length; i += BLOCK_BYTES) {
+            int n = Math.min(BLOCK_BYTES, length - i);
+            if (i + n > bytes.length) bytes = Arrays.copyOf(bytes, grownLength(bytes.length, i + n, length));
+            in.readFully(bytes, i, n);
+        }
+        return bytes;
+    }
+
+    // Se duplica hasta llegar a COUNT: las copias suman menos que el propio payload.
+    private static int grownLength(int current, int needed, int count) {
+        return (int) Math.min(count, Math.max(needed, 2L * current));
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new EOFException("Longitud de payload negativa: " + count);
+        return count;
+    }
+}
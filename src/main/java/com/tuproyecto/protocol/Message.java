@@ -0,0 +1,76 @@
+package com.tuproyecto.protocol;
+
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Mensaje independiente del formato de transporte: cabeceras KEY=VALUE más un payload numérico opcional.
+public class Message {
+    private final Map<String, String> headers;
+    private DoubleChunk data;
+    private IntChunk intData;
+
+    public Message(String type) {
+        this.headers = new HashMap<>();
+        this.headers.put("TYPE", type);
+    }
+
+    public Message(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public String type() { return headers.get("TYPE"); }
+
+    public String get(String key) { return headers.get(key); }
+
+    public String getOrDefault(String key, String defaultValue) { return headers.getOrDefault(key, defaultValue); }
+
+    public Message put(String key, String value) {
+        headers.put(key, value);
+        return this;
+    }
+
+    public Map<String, String> headers() { return headers; }
+
+    // Copia el REQUEST_ID de la petición para que una conexión multiplexada pueda emparejar la respuesta.
+    public Message inReplyTo(Message request) {
+        String requestId = request.get("REQUEST_ID");
+        if (requestId != null) headers.put("REQUEST_ID", requestId);
+        return this;
+    }
+
+    public DoubleChunk getData() { return data; }
+
+    public Message setData(DoubleChunk data) {
+        this.data = data;
+        this.intData = null;
+        return this;
+    }
+
+    public Message setData(double[] data) {
+        return setData(new DoubleChunk(data));
+    }
+
+    public IntChunk getIntData() { return intData; }
+
+    public Message setIntData(IntChunk intData) {
+        this.intData = intData;
+        this.data = null;
+        return this;
+    }
+
+    public Message setIntData(int[] intData) {
+        return setIntData(new IntChunk(intData));
+    }
+
+    // El payload sea del tipo que sea, para quien sólo lo reenvía.
+    public DataChunk getPayload() { return (data != null) ? data : intData; }
+
+    public Message setPayload(DataChunk payload) {
+        if (payload instanceof IntChunk) return setIntData((IntChunk) payload);
+        return setData((DoubleChunk) payload);
+    }
+}
@@ -0,0 +1,170 @@
+package com.tuproyecto.protocol;
+
+import com.tuproyecto.metrics.Counter;
+import com.tuproyecto.metrics.CountingInputStream;
+import com.tuproyecto.metrics.CountingOutputStream;
+import com.tuproyecto.metrics.MetricsRegistry;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Envuelve un socket y lee/escribe Messages en formato binario o en texto KEY=VALUE; (compatibilidad).
+public class MessageChannel implements Closeable {
+    public enum Format { TEXT, BINARY }
+
+    // Tráfico de todas las conexiones del proceso, en ambos sentidos
+    private static final MetricsRegistry METRICS = MetricsRegistry.create("transport");
+    private static final Counter BYTES_SENT = METRICS.counter("bytes.sent");
+    private static final Counter BYTES_RECEIVED = METRICS.counter("bytes.received");
+    private static final Counter MESSAGES_SENT = METRICS.counter("messages.sent");
+    private static final Counter MESSAGES_RECEIVED = METRICS.counter("messages.received");
+    private static final Counter COMPRESSION_SAVED = METRICS.counter("compression.bytes_saved");
+
+    // Compresión de payloads (ver PayloadCodecs), opcional. Cada extremo anuncia en su primer frame binario
+    // los códecs que sabe decodificar (cabecera CODECS) y sólo se comprime hacia quien los anunció, así un
+    // extremo sin compresión o de una versión anterior sigue recibiendo frames en crudo.
+    // Con compresión, quien conecta abre con CODECS_HELLO y espera el CODECS_ACK del otro extremo: así ya el
+    // primer envío (a menudo el único de la conexión) va comprimido. read() contesta y oculta ambos mensajes.
+    private static final boolean COMPRESSION = Boolean.parseBoolean(System.getProperty("darray.compression", "false"));
+    private static final String HELLO = "CODECS_HELLO";
+    private static final String HELLO_ACK = "CODECS_ACK";
+    // Un extremo que no contesta al saludo (versión anterior) recibe los frames sin comprimir.
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 2000;
+
+    private final Socket socket;
+    private final BufferedInputStream rawIn;
+    private final BufferedOutputStream out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private DataInputStream binaryIn;
+    private BufferedReader textIn;
+    private Format format;
+    private volatile String peerCodecs; // lo que anunció el otro extremo; null hasta entonces
+    private boolean codecsAdvertised;   // protegido por writeLock
+
+    private MessageChannel(Socket socket, Format format) throws IOException {
+        this.socket = socket;
+        this.rawIn = new BufferedInputStream(new CountingInputStream(socket.getInputStream(), BYTES_RECEIVED));
+        this.out = new BufferedOutputStream(new CountingOutputStream(socket.getOutputStream(), BYTES_SENT));
+        this.format = format;
+    }
+
+    // Lado cliente: el formato lo elige quien inicia la conexión.
+    public static MessageChannel connect(String host, int port, Format format) throws IOException {
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        MessageChannel channel = new MessageChannel(socket, format);
+        if (format == Format.BINARY && COMPRESSION) channel.handshake();
+        return channel;
+    }
+
+    // Lado servidor: el formato se detecta con el primer byte recibido y se responde en el mismo.
+    public static MessageChannel accept(Socket socket) throws IOException {
+        return new MessageChannel(socket, null);
+    }
+
+    public static Format defaultFormat() {
+        return "TEXT".equalsIgnoreCase(System.getProperty("darray.protocol")) ? Format.TEXT : Format.BINARY;
+    }
+
+    public Format format() { return format; }
+
+    public Message read() throws IOException {
+        if (format == null) {
+            rawIn.mark(1);
+            int first = rawIn.read();
+            if (first < 0) return null;
+            rawIn.reset();
+            format = (first == FrameCodec.MAGIC) ? Format.BINARY : Format.TEXT;
+        }
+        Message message = (format == Format.BINARY) ? readBinary() : readText();
+        if (message != null) MESSAGES_RECEIVED.inc();
+        return message;
+    }
+
+    // En conexiones multiplexadas varios hilos escriben sobre el mismo socket. Se usa un ReentrantLock
+    // y no synchronized para no bloquear el hilo portador de un hilo virtual durante la E/S.
+    public void write(Message message) throws IOException {
+        writeLock.lock();
+        try {
+            if (format == Format.TEXT) {
+                writeText(message);
+            } else {
+                String advertise = codecsAdvertised ? null : PayloadCodecs.SUPPORTED;
+                codecsAdvertised = true;
+                long saved = FrameCodec.write(out, message, COMPRESSION ? peerCodecs : null, advertise);
+                if (saved > 0) COMPRESSION_SAVED.add(saved);
+            }
+            MESSAGES_SENT.inc();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Si el CODECS_ACK no llega a tiempo se sigue sin esperar; cuando llegue, read() lo descarta.
+    private void handshake() throws IOException {
+        write(new Message(HELLO));
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        try {
+            readFrame();
+        } catch (SocketTimeoutException e) {
+            // el otro extremo no conoce el saludo
+        } finally {
+            socket.setSoTimeout(0);
+        }
+    }
+
+    private Message readBinary() throws IOException {
+        while (true) {
+            Message message = readFrame();
+            if (message == null) return null;
+            if (HELLO.equals(message.type())) write(new Message(HELLO_ACK));
+            else if (!HELLO_ACK.equals(message.type())) return message;
+        }
+    }
+
+    private Message readFrame() throws IOException {
+        if (binaryIn == null) binaryIn = new DataInputStream(rawIn);
+        Message message = FrameCodec.read(binaryIn);
+        String codecs = (message != null) ? message.headers().remove(FrameCodec.CODECS_HEADER) : null;
+        if (codecs != null) peerCodecs = codecs;
+        return message;
+    }
+
+    private Message readText() throws IOException {
+        if (textIn == null) textIn = new BufferedReader(new InputStreamReader(rawIn, StandardCharsets.UTF_8));
+        String line = textIn.readLine();
+        if (line == null) return null;
+        Map<String, String> headers = ProtocolParser.parse(line);
+        String dataStr = headers.remove("DATA");
+        Message message = new Message(headers);
+        if (dataStr != null) message.setData(ProtocolParser.parseDataArray(dataStr));
+        return message;
+    }
+
+    private void writeText(Message message) throws IOException {
+        String headers = ProtocolParser.create(message.headers());
+        StringBuilder sb = new StringBuilder(headers);
+        if (message.getData() != null) {
+            sb.append(headers.isEmpty() ? "" : ";").append("DATA=").append(ProtocolParser.formatData(message.getData()));
+        } else if (message.getIntData() != null) {
+            sb.append(headers.isEmpty() ? "" : ";").append("DATA=").append(ProtocolParser.formatData(message.getIntData()));
+        }
+        sb.append('\n');
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    public boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
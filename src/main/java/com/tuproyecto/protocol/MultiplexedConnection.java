@@ -0,0 +1,98 @@
+package com.tuproyecto.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Conexión binaria persistente con varias peticiones en vuelo, emparejadas por REQUEST_ID.
+// Un hilo lector por conexión completa los futures; si el socket cae, todos fallan a la vez.
+// Una petición puede recibir antes respuestas parciales (JOB_RESULT) que no la cierran.
+public class MultiplexedConnection implements Closeable {
+    private static final class Pending {
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+        final Consumer<Message> partials;
+        Pending(Consumer<Message> partials) { this.partials = partials; }
+    }
+
+    private final MessageChannel channel;
+    private final ConcurrentMap<String, Pending> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private volatile boolean open = true;
+
+    public MultiplexedConnection(String host, int port, String name) throws IOException {
+        this.channel = MessageChannel.connect(host, port, MessageChannel.Format.BINARY);
+        ConnectionExecutors.startThread(name, this::readLoop);
+    }
+
+    public CompletableFuture<Message> request(Message message) {
+        return request(message, null);
+    }
+
+    // Los JOB_RESULT de la petición se entregan a partials, en orden y desde el hilo lector.
+    public CompletableFuture<Message> request(Message message, Consumer<Message> partials) {
+        String requestId = String.valueOf(nextRequestId.incrementAndGet());
+        Pending pending = new Pending(partials);
+        inFlight.put(requestId, pending);
+        try {
+            channel.write(message.put("REQUEST_ID", requestId));
+        } catch (IOException e) {
+            inFlight.remove(requestId);
+            pending.future.completeExceptionally(e);
+            close();
+        }
+        return pending.future;
+    }
+
+    // Mensajes sin respuesta (p. ej. el envío de una réplica).
+    public void send(Message message) throws IOException {
+        try {
+            channel.write(message);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public boolean isOpen() { return open; }
+
+    public int inFlightCount() { return inFlight.size(); }
+
+    private void readLoop() {
+        try {
+            Message message;
+            while ((message = channel.read()) != null) {
+                String requestId = message.getOrDefault("REQUEST_ID", "");
+                Pending pending = inFlight.get(requestId);
+                if (pending == null) continue;
+                if (pending.partials != null && "JOB_RESULT".equals(message.type())) {
+                    try {
+                        pending.partials.accept(message);
+                    } catch (RuntimeException e) {
+                        if (inFlight.remove(requestId, pending)) pending.future.completeExceptionally(e);
+                    }
+                } else if (inFlight.remove(requestId, pending)) {
+                    pending.future.complete(message);
+                }
+            }
+        } catch (IOException e) {
+            // La causa se propaga a las peticiones pendientes en close()
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        try { channel.close(); } catch (IOException e) { /* ignorar */ }
+        IOException closed = new IOException("Conexión cerrada");
+        for (String requestId : inFlight.keySet()) {
+            Pending pending = inFlight.remove(requestId);
+            if (pending != null) pending.future.completeExceptionally(closed);
+        }
+    }
+}
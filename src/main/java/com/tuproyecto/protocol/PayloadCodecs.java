@@ -0,0 +1,201 @@
+package com.tuproyecto.protocol;
+
+import java.util.Arrays;
+
+// Codificaciones compactas del payload de un frame binario, sin pérdida:
+//  - DXOR (doubles): cada valor se predice como 2*v[i-1] - v[i-2] y se guarda el XOR de sus bits con la
+//    predicción, empaquetado como en Gorilla (Facebook): 1 bit si acierta, y si no sólo los bits
+//    significativos, reutilizando la ventana del anterior cuando cabe. Los rangos y valores repetidos
+//    quedan en 1-2 bits por elemento.
+//  - VARINT (ints): diferencia con el anterior en zigzag y varint LEB128, 1 byte si cambian poco.
+// Cada codificador se rinde en cuanto supera 'budget' bytes y devuelve null: se envía en crudo.
+final class PayloadCodecs {
+    static final String DXOR = "DXOR";
+    static final String VARINT = "VARINT";
+    static final String SUPPORTED = DXOR + "," + VARINT; // lo que se anuncia en la cabecera CODECS
+
+    private static final int INITIAL_BYTES = 64 * 1024;
+
+    private PayloadCodecs() {}
+
+    static final class Encoded {
+        final byte[] bytes; final int length;
+        Encoded(byte[] bytes, int length) { this.bytes = bytes; this.length = length; }
+    }
+
+    static boolean accepts(String peerCodecs, String codec) {
+        if (peerCodecs == null) return false;
+        for (String name : peerCodecs.split(",")) {
+            if (name.equals(codec)) return true;
+        }
+        return false;
+    }
+
+    static Encoded encodeDoubles(double[] values, int offset, int length, int budget) {
+        BitWriter out = new BitWriter(budget);
+        double prev1 = 0, prev2 = 0;
+        int prevLeading = -1, prevTrailing = 0;
+        for (int i = 0; i < length && !out.overflow; i++) {
+            double value = values[offset + i];
+            long xor = Double.doubleToRawLongBits(value) ^ Double.doubleToRawLongBits(predict(i, prev1, prev2));
+            prev2 = prev1;
+            prev1 = value;
+            if (xor == 0) {
+                out.write(0, 1);
+                continue;
+            }
+            int leading = Long.numberOfLeadingZeros(xor);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                out.write(0b10, 2);
+                out.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.write(0b11, 2);
+                out.write(leading, 6);
+                out.write(significant - 1, 6);
+                out.write(xor >>> trailing, significant);
+                prevLeading = leading;
+                prevTrailing = trailing;
+            }
+        }
+        return out.finish();
+    }
+
+    static double[] decodeDoubles(byte[] bytes, int count) {
+        BitReader in = new BitReader(bytes);
+        double[] values = new double[count];
+        double prev1 = 0, prev2 = 0;
+        int prevLeading = 0, prevTrailing = 0;
+        for (int i = 0; i < count; i++) {
+            long xor = 0;
+            if (in.read(1) == 1) {
+                if (in.read(1) == 0) {
+                    xor = in.read(64 - prevLeading - prevTrailing) << prevTrailing;
+                } else {
+                    prevLeading = (int) in.read(6);
+                    int significant = (int) in.read(6) + 1;
+                    prevTrailing = 64 - prevLeading - significant;
+                    xor = in.read(significant) << prevTrailing;
+                }
+            }
+            double value = Double.longBitsToDouble(Double.doubleToRawLongBits(predict(i, prev1, prev2)) ^ xor);
+            values[i] = value;
+            prev2 = prev1;
+            prev1 = value;
+        }
+        return values;
+    }
+
+    // Extrapolación lineal: exacta para progresiones aritméticas y para valores repetidos. Un NaN calculado
+    // puede llevar bits distintos según el procesador: se usa el canónico para que ambos extremos coincidan.
+    private static double predict(int index, double prev1, double prev2) {
+        if (index == 0) return 0;
+        if (index == 1) return prev1;
+        double prediction = 2 * prev1 - prev2;
+        return Double.isNaN(prediction) ? Double.NaN : prediction;
+    }
+
+    static Encoded encodeInts(int[] values, int offset, int length, int budget) {
+        byte[] out = new byte[Math.min(budget, INITIAL_BYTES)];
+        int pos = 0;
+        int prev = 0;
+        for (int i = 0; i < length; i++) {
+            int delta = values[offset + i] - prev;
+            prev = values[offset + i];
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            if (pos + 5 > out.length) {
+                if (out.length >= budget) return null;
+                out = Arrays.copyOf(out, (int) Math.min((long) out.length * 2, budget));
+                if (pos + 5 > out.length) return null;
+            }
+            while ((zigzag & ~0x7F) != 0) {
+                out[pos++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out[pos++] = (byte) zigzag;
+        }
+        return new Encoded(out, pos);
+    }
+
+    static int[] decodeInts(byte[] bytes, int count) {
+        int[] values = new int[count];
+        int pos = 0;
+        int prev = 0;
+        for (int i = 0; i < count; i++) {
+            int zigzag = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[pos++];
+                zigzag |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            prev += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = prev;
+        }
+        return values;
+    }
+
+    // Bits de más significativo a menos; el búfer crece hasta 'limit' y después marca overflow.
+    private static final class BitWriter {
+        private final int limit;
+        private byte[] bytes;
+        private int pos;
+        private long pending; // bits aún no volcados, alineados a la derecha
+        private int pendingBits;
+        boolean overflow;
+
+        BitWriter(int limit) {
+            this.limit = limit;
+            this.bytes = new byte[Math.max(1, Math.min(limit, INITIAL_BYTES))];
+        }
+
+        void write(long value, int bits) {
+            if (bits > 32) {
+                write(value >>> 32, bits - 32);
+                write(value, 32);
+                return;
+            }
+            pending = (pending << bits) | (value & ((1L << bits) - 1));
+            pendingBits += bits;
+            while (pendingBits >= 8) {
+                pendingBits -= 8;
+                put((byte) (pending >>> pendingBits));
+            }
+        }
+
+        private void put(byte b) {
+            if (pos == bytes.length) {
+                if (bytes.length >= limit) {
+                    overflow = true;
+                    return;
+                }
+                bytes = Arrays.copyOf(bytes, (int) Math.min((long) bytes.length * 2, limit));
+            }
+            bytes[pos++] = b;
+        }
+
+        Encoded finish() {
+            if (pendingBits > 0) put((byte) (pending << (8 - pendingBits)));
+            return overflow ? null : new Encoded(bytes, pos);
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] bytes;
+        private int pos;
+        private long pending;
+        private int pendingBits;
+
+        BitReader(byte[] bytes) { this.bytes = bytes; }
+
+        long read(int bits) {
+            if (bits > 32) return (read(bits - 32) << 32) | read(32);
+            while (pendingBits < bits) {
+                pending = (pending << 8) | (bytes[pos++] & 0xFF);
+                pendingBits += 8;
+            }
+            pendingBits -= bits;
+            return (pending >>> pendingBits) & ((1L << bits) - 1);
+        }
+    }
+}
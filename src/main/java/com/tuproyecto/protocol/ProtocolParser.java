@@ -1,5 +1,8 @@
 package com.tuproyecto.protocol;
 
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -32,4 +35,42 @@ public class ProtocolParser {
                      .map(Double::parseDouble)
                      .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    // Variantes sin boxing usadas por MessageChannel en modo texto.
+    public static double[] parseDataArray(String dataStr) {
+        if (dataStr == null || dataStr.isEmpty()) {
+            return new double[0];
+        }
+        int count = 1;
+        for (int i = 0; i < dataStr.length(); i++) {
+            if (dataStr.charAt(i) == ',') count++;
+        }
+        double[] values = new double[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = dataStr.indexOf(',', start);
+            if (end < 0) end = dataStr.length();
+            values[i] = Double.parseDouble(dataStr.substring(start, end));
+            start = end + 1;
+        }
+        return values;
+    }
+
+    public static String formatData(DoubleChunk values) {
+        StringBuilder sb = new StringBuilder(values.length() * 8);
+        for (int i = 0; i < values.length(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values.get(i));
+        }
+        return sb.toString();
+    }
+
+    public static String formatData(IntChunk values) {
+        StringBuilder sb = new StringBuilder(values.length() * 4);
+        for (int i = 0; i < values.length(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values.get(i));
+        }
+        return sb.toString();
+    }
+}
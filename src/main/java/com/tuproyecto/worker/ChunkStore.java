@@ -0,0 +1,201 @@
+package com.tuproyecto.worker;
+
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.metrics.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Chunks guardados en el worker (entradas, réplicas y arrays residentes) con un presupuesto de bytes en heap.
+// Al superarlo, los menos usados recientemente se vuelcan a disco y se recargan la próxima vez que se piden.
+final class ChunkStore {
+    private static final int BLOCK_BYTES = 64 * 1024;
+
+    private final String owner;
+    private final long maxBytes;
+    private final Path spillDir;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Orden de acceso: el primero es el candidato a volcarse
+    private final LinkedHashMap<String, DoubleChunk> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> spilled = new HashMap<>(); // chunkId -> elementos en disco
+    private long memoryBytes;
+
+    ChunkStore(String owner, long maxBytes, Path spillDir) {
+        this.owner = owner;
+        this.maxBytes = maxBytes;
+        this.spillDir = spillDir;
+    }
+
+    void put(String chunkId, DoubleChunk chunk) {
+        lock.lock();
+        try {
+            removeLocked(chunkId);
+            memory.put(chunkId, chunk);
+            memoryBytes += bytesOf(chunk);
+            spillLocked(maxBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    DoubleChunk get(String chunkId) {
+        lock.lock();
+        try {
+            DoubleChunk chunk = memory.get(chunkId);
+            if (chunk != null) return chunk;
+            Integer length = spilled.remove(chunkId);
+            if (length == null) return null;
+            chunk = load(chunkId, length);
+            if (chunk == null) return null;
+            memory.put(chunkId, chunk);
+            memoryBytes += bytesOf(chunk);
+            // El recargado es ahora el más reciente: se vuelcan otros si hace falta
+            spillLocked(maxBytes);
+            return chunk;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Elimina todos los chunks cuyo id empieza por prefix (un trabajo o un array); devuelve cuántos.
+    int removePrefix(String prefix) {
+        lock.lock();
+        try {
+            int removed = 0;
+            for (Iterator<Map.Entry<String, DoubleChunk>> it = memory.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, DoubleChunk> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    memoryBytes -= bytesOf(entry.getValue());
+                    it.remove();
+                    removed++;
+                }
+            }
+            for (Iterator<String> it = spilled.keySet().iterator(); it.hasNext(); ) {
+                String chunkId = it.next();
+                if (chunkId.startsWith(prefix)) {
+                    deleteFile(chunkId);
+                    it.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Vuelca a disco hasta que lo que queda en heap no supere targetBytes; devuelve los bytes liberados.
+    long trimTo(long targetBytes) {
+        lock.lock();
+        try {
+            long before = memoryBytes;
+            spillLocked(targetBytes);
+            return before - memoryBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long memoryBytes() {
+        lock.lock();
+        try {
+            return memoryBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeLocked(String chunkId) {
+        DoubleChunk previous = memory.remove(chunkId);
+        if (previous != null) memoryBytes -= bytesOf(previous);
+        if (spilled.remove(chunkId) != null) deleteFile(chunkId);
+    }
+
+    // Nunca se vuelca el último chunk en memoria: uno mayor que el presupuesto se queda en heap.
+    private void spillLocked(long targetBytes) {
+        Iterator<Map.Entry<String, DoubleChunk>> it = memory.entrySet().iterator();
+        while (memoryBytes > targetBytes && memory.size() > 1 && it.hasNext()) {
+            Map.Entry<String, DoubleChunk> eldest = it.next();
+            try {
+                write(eldest.getKey(), eldest.getValue());
+            } catch (IOException e) {
+                Log.warn("[%s] [STORE] No se pudo volcar %s a disco: %s", owner, eldest.getKey(), e.getMessage());
+                return;
+            }
+            spilled.put(eldest.getKey(), eldest.getValue().length());
+            memoryBytes -= bytesOf(eldest.getValue());
+            it.remove();
+            Log.debug("[%s] [STORE] Chunk %s volcado a disco (%d elementos)", owner, eldest.getKey(), eldest.getValue().length());
+        }
+    }
+
+    private void write(String chunkId, DoubleChunk chunk) throws IOException {
+        Files.createDirectories(spillDir);
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_BYTES);
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        try (FileChannel file = FileChannel.open(fileOf(chunkId), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            double[] array = chunk.array();
+            int pos = chunk.offset(), end = chunk.offset() + chunk.length();
+            while (pos < end) {
+                int n = Math.min(doubles.capacity(), end - pos);
+                doubles.clear();
+                doubles.put(array, pos, n);
+                buffer.clear().limit(n * Double.BYTES);
+                while (buffer.hasRemaining()) file.write(buffer);
+                pos += n;
+            }
+        }
+    }
+
+    private DoubleChunk load(String chunkId, int length) {
+        double[] array = new double[length];
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_BYTES);
+        try (FileChannel file = FileChannel.open(fileOf(chunkId), StandardOpenOption.READ)) {
+            int pos = 0;
+            while (pos < length) {
+                int n = Math.min(BLOCK_BYTES / Double.BYTES, length - pos);
+                buffer.clear().limit(n * Double.BYTES);
+                while (buffer.hasRemaining()) {
+                    if (file.read(buffer) < 0) throw new IOException("fichero truncado");
+                }
+                buffer.flip();
+                buffer.asDoubleBuffer().get(array, pos, n);
+                pos += n;
+            }
+        } catch (IOException e) {
+            // Se trata como un chunk perdido: el Maestro recurre a la otra copia
+            Log.warn("[%s] [STORE] No se pudo recargar %s desde disco: %s", owner, chunkId, e.getMessage());
+            deleteFile(chunkId);
+            return null;
+        }
+        deleteFile(chunkId);
+        return new DoubleChunk(array);
+    }
+
+    private void deleteFile(String chunkId) {
+        try {
+            Files.deleteIfExists(fileOf(chunkId));
+        } catch (IOException e) {
+            Log.warn("[%s] [STORE] No se pudo borrar el volcado de %s: %s", owner, chunkId, e.getMessage());
+        }
+    }
+
+    private Path fileOf(String chunkId) {
+        return spillDir.resolve(chunkId + ".bin");
+    }
+
+    private static long bytesOf(DoubleChunk chunk) {
+        return (long) chunk.length() * Double.BYTES;
+    }
+}
@@ -0,0 +1,102 @@
+package com.tuproyecto.worker;
+
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.metrics.Log;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Chunks en ficheros mapeados en memoria, fuera del heap: el sistema operativo decide qué páginas siguen
+// en RAM, así un worker puede guardar muchas más réplicas que las que caben en su heap. Los ficheros
+// sobreviven a un reinicio del proceso y al arrancar se vuelven a mapear los que haya en el directorio.
+final class MappedChunkStore {
+    private static final String SUFFIX = ".chunk";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final String owner;
+    private final Path dir;
+    private final ConcurrentMap<String, MappedByteBuffer> chunks = new ConcurrentHashMap<>();
+
+    MappedChunkStore(String owner, Path dir) throws IOException {
+        this.owner = owner;
+        this.dir = dir;
+        Files.createDirectories(dir);
+        recover();
+    }
+
+    // Un .tmp es una escritura que no llegó a completarse antes de una caída: se descarta.
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        chunks.put(name.substring(0, name.length() - SUFFIX.length()), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                    }
+                }
+            }
+        }
+        if (!chunks.isEmpty()) Log.info("[%s] [STORE] Recuperados %d chunks de %s", owner, chunks.size(), dir);
+    }
+
+    // Se escribe en un .tmp y se renombra: tras una caída no puede quedar un chunk a medias con el nombre bueno.
+    // Sin sync las páginas quedan en la caché del sistema: sobreviven a un reinicio del proceso pero no a uno
+    // de la máquina, y no se paga un volcado a disco por chunk (ver Worker.storeDurable).
+    void put(String chunkId, DoubleChunk chunk, boolean sync) throws IOException {
+        long bytes = (long) chunk.length() * Double.BYTES;
+        if (bytes > Integer.MAX_VALUE) throw new IOException("chunk demasiado grande para un único mapeo: " + chunkId);
+        Path temp = dir.resolve(chunkId + TEMP_SUFFIX);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer().put(chunk.array(), chunk.offset(), chunk.length());
+            if (sync) buffer.force();
+        }
+        // El mapeo sigue siendo válido tras cerrar el canal y renombrar el fichero.
+        Files.move(temp, dir.resolve(chunkId + SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        chunks.put(chunkId, buffer);
+    }
+
+    // Una sola copia en bloque desde las páginas mapeadas al array que usan los kernels, sin read() ni buffers intermedios.
+    DoubleChunk get(String chunkId) {
+        MappedByteBuffer buffer = chunks.get(chunkId);
+        if (buffer == null) return null;
+        double[] data = new double[buffer.capacity() / Double.BYTES];
+        buffer.duplicate().order(ByteOrder.nativeOrder()).asDoubleBuffer().get(data);
+        return new DoubleChunk(data);
+    }
+
+    // El mapeo se libera cuando el GC recoge el buffer; en Linux el fichero puede borrarse antes.
+    int removePrefix(String prefix) {
+        int removed = 0;
+        for (String chunkId : chunks.keySet()) {
+            if (chunkId.startsWith(prefix) && chunks.remove(chunkId) != null) {
+                removed++;
+                try {
+                    Files.deleteIfExists(dir.resolve(chunkId + SUFFIX));
+                } catch (IOException e) {
+                    Log.warn("[%s] [STORE] No se pudo borrar %s: %s", owner, chunkId, e.getMessage());
+                }
+            }
+        }
+        return removed;
+    }
+
+    Set<String> ids() {
+        return new HashSet<>(chunks.keySet());
+    }
+}
@@ -0,0 +1,89 @@
+package com.tuproyecto.worker;
+
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.metrics.Counter;
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.metrics.MetricsRegistry;
+import com.tuproyecto.protocol.ConnectionExecutors;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MultiplexedConnection;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Replicación en cadena: una tarea con REPLICATE_TO ("host:puerto,...") se reenvía como REPLICA a la primera
+// dirección, con el resto de la lista como su REPLICATE_TO, y cada réplica hace lo mismo. Así el Maestro
+// envía cada chunk una sola vez. Si un eslabón no responde se salta al siguiente.
+// El envío va en su propio hilo: un eslabón lento o caído no frena al lector de la conexión con el Maestro.
+final class ReplicaForwarder {
+    private final String owner;
+    private final ExecutorService sendExecutor;
+    private final ConcurrentMap<String, MultiplexedConnection> peers = new ConcurrentHashMap<>();
+    private final ReentrantLock connectLock = new ReentrantLock(); // serializa la apertura de conexiones nuevas
+    private final Counter forwarded, failed;
+
+    ReplicaForwarder(String owner, MetricsRegistry metrics) {
+        this.owner = owner;
+        this.sendExecutor = ConnectionExecutors.forBlockingIo("Worker-Replica-" + owner, 2 * Runtime.getRuntime().availableProcessors());
+        this.forwarded = metrics.counter("replication.forwarded");
+        this.failed = metrics.counter("replication.forward_failed");
+    }
+
+    void forward(Message task) {
+        String chain = task.get("REPLICATE_TO");
+        DataChunk data = task.getPayload();
+        if (chain == null || chain.isEmpty() || data == null) return;
+        sendExecutor.execute(() -> send(task, chain, data));
+    }
+
+    private void send(Message task, String chain, DataChunk data) {
+        List<String> addresses = Arrays.asList(chain.split(","));
+        for (int i = 0; i < addresses.size(); i++) {
+            String address = addresses.get(i);
+            // Sin REQUEST_ID: la réplica no responde, igual que cuando la enviaba el Maestro.
+            Message replica = new Message(new HashMap<>(task.headers())).setPayload(data);
+            replica.headers().remove("REQUEST_ID");
+            replica.headers().remove("REPLICATE_TO");
+            replica.put("ROLE", "REPLICA");
+            if (i + 1 < addresses.size()) replica.put("REPLICATE_TO", String.join(",", addresses.subList(i + 1, addresses.size())));
+            try {
+                connection(address).send(replica);
+                forwarded.inc();
+                return;
+            } catch (IOException e) {
+                failed.inc();
+                Log.warn("[%s] [REPLICA] No se pudo reenviar %s a %s: %s", owner, task.get("CHUNK_ID"), address, e.getMessage());
+            }
+        }
+    }
+
+    private MultiplexedConnection connection(String address) throws IOException {
+        MultiplexedConnection connection = peers.get(address);
+        if (connection != null && connection.isOpen()) return connection;
+        connectLock.lock();
+        try {
+            connection = peers.get(address);
+            if (connection == null || !connection.isOpen()) {
+                int sep = address.lastIndexOf(':');
+                if (sep <= 0) throw new IOException("Dirección de réplica inválida: " + address);
+                int port;
+                try {
+                    port = Integer.parseInt(address.substring(sep + 1));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Dirección de réplica inválida: " + address);
+                }
+                connection = new MultiplexedConnection(address.substring(0, sep), port, "Worker-Peer-" + owner + "-" + address);
+                peers.put(address, connection);
+            }
+            return connection;
+        } finally {
+            connectLock.unlock();
+        }
+    }
+}
@@ -1,24 +1,72 @@
 package com.tuproyecto.worker;
 
+import com.tuproyecto.data.DataChunk;
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+import com.tuproyecto.metrics.Counter;
+import com.tuproyecto.metrics.LatencyHistogram;
+import com.tuproyecto.metrics.Log;
+import com.tuproyecto.metrics.MetricsRegistry;
+import com.tuproyecto.operation.Aggregation;
+import com.tuproyecto.operation.DoubleFilter;
+import com.tuproyecto.operation.DoubleKernel;
+import com.tuproyecto.operation.IntKernel;
+import com.tuproyecto.operation.IntReducer;
+import com.tuproyecto.operation.OperationRegistry;
+import com.tuproyecto.operation.Pipeline;
+import com.tuproyecto.protocol.ChunkKey;
+import com.tuproyecto.protocol.ConnectionExecutors;
+import com.tuproyecto.protocol.Message;
+import com.tuproyecto.protocol.MessageChannel;
 import com.tuproyecto.protocol.ProtocolParser;
 
 import java.io.*;
 import java.lang.management.ManagementFactory; // Import para monitoreo de memoria
 import java.lang.management.MemoryMXBean;      // Import para monitoreo de memoria
+import java.lang.management.MemoryUsage;
 import java.net.*;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 public class Worker {
     private final String id;
     private final int tcpPort;
-    private final InetSocketAddress maestroAddr;
+    // Cambia si un Maestro de reserva toma el relevo (MAESTRO_CHANGED): el siguiente heartbeat ya va al nuevo
+    private volatile InetSocketAddress maestroAddr;
+    private final AtomicBoolean reregister = new AtomicBoolean();
     private final ExecutorService taskExecutor;
-    private final Map<String, List<Double>> dataStore = new ConcurrentHashMap<>();
+    private final ExecutorService connectionExecutor; // lectores de conexiones persistentes
+    private final ChunkStore dataStore;
+    // Réplicas y arrays residentes en ficheros mapeados fuera del heap; null si está desactivado o falló al abrirse
+    private final MappedChunkStore durableStore;
     private final int numCores;
     private final MemoryMXBean memoryBean; // Bean para monitorear la memoria
+    private final OperationRegistry operationRegistry = OperationRegistry.getDefault();
+    private static final int MIN_BLOCK_SIZE = 4096; // por debajo no compensa repartir entre hilos
+    // Heartbeats frecuentes: el detector phi-accrual del Maestro aprende su ritmo y detecta caídas en ~1 s
+    private static final long HEARTBEAT_INTERVAL_MS = Long.getLong("darray.heartbeat.intervalMillis", 500);
+    // Carga y rendimiento reciente, anunciados en cada heartbeat para que el Maestro reparta con pesos
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private volatile double throughput; // elementos/s, media móvil exponencial
+    // Cálculos en curso o en cola que el Maestro puede cancelar (CANCEL_TASK) cuando otra copia ya terminó
+    private final ConcurrentMap<String, AtomicBoolean> cancellableTasks = new ConcurrentHashMap<>();
+    private final MetricsRegistry metrics;
+    private final ReplicaForwarder replicaForwarder;
+    private final Counter tasksReceived, tasksCancelled, tasksRejected, tasksOverloaded, tasksInvalid;
+    private final LatencyHistogram queueWait, computeTime, replyTime;
+    // Presupuesto en heap del almacén de chunks; lo que no cabe se vuelca a disco
+    private static final long STORE_MAX_BYTES = Long.getLong("darray.store.maxBytes", Runtime.getRuntime().maxMemory() / 4);
+    private static final boolean MAPPED_STORE = Boolean.parseBoolean(System.getProperty("darray.store.mapped", "true"));
+    // Los ids de chunk recuperados viajan en el REGISTER_WORKER por UDP: se limita su tamaño
+    private static final int MAX_STORED_CHUNKS_CHARS = 60_000;
+    // Por encima de esta fracción del heap se rechazan trabajos nuevos y el Maestro los manda a otro worker
+    private static final double MEMORY_HIGH_WATERMARK = Double.parseDouble(System.getProperty("darray.worker.memoryHighWatermark", "0.9"));
+    // Cola máxima de tareas pendientes por núcleo: a partir de ahí las entradas nuevas se rechazan (OVERLOADED)
+    private static final int MAX_QUEUED_PER_CORE = Integer.getInteger("darray.worker.maxQueuedPerCore", 16);
 
     public Worker(String host, int tcpPort, String maestroHost, int maestroPort) {
         this.tcpPort = tcpPort;
@@ -26,129 +74,565 @@ public class Worker {
         this.maestroAddr = new InetSocketAddress(maestroHost, maestroPort);
         this.numCores = Runtime.getRuntime().availableProcessors();
         this.taskExecutor = Executors.newFixedThreadPool(numCores);
+        this.connectionExecutor = ConnectionExecutors.perConnection("Worker-Conn-" + id);
         this.memoryBean = ManagementFactory.getMemoryMXBean(); // Inicializamos el bean
+        this.dataStore = new ChunkStore(id, STORE_MAX_BYTES,
+                Paths.get(System.getProperty("darray.store.spillDir", System.getProperty("java.io.tmpdir")), "darray-" + id));
+        this.durableStore = MAPPED_STORE ? openDurableStore() : null;
+
+        this.metrics = MetricsRegistry.create(id);
+        this.tasksReceived = metrics.counter("tasks.received");
+        this.tasksCancelled = metrics.counter("tasks.cancelled");
+        this.tasksRejected = metrics.counter("tasks.rejected.memory");
+        this.tasksOverloaded = metrics.counter("tasks.rejected.overload");
+        this.tasksInvalid = metrics.counter("tasks.invalid");
+        this.replicaForwarder = new ReplicaForwarder(id, metrics);
+        this.queueWait = metrics.histogram("task.queue_wait");   // desde que llega hasta que un hilo la toma
+        this.computeTime = metrics.histogram("task.compute");    // processChunkLocally
+        this.replyTime = metrics.histogram("task.reply");        // serializar y escribir la respuesta
+        metrics.gauge("tasks.pending", pendingTasks::get);
+        metrics.gauge("store.heap_bytes", dataStore::memoryBytes);
+        metrics.gauge("heap.used_bytes", () -> memoryBean.getHeapMemoryUsage().getUsed());
+    }
+
+    // El directorio depende sólo del id (y por tanto del puerto): un worker reiniciado encuentra sus chunks.
+    private MappedChunkStore openDurableStore() {
+        try {
+            return new MappedChunkStore(id, Paths.get(System.getProperty("darray.store.dir", System.getProperty("java.io.tmpdir")), "darray-store-" + id));
+        } catch (IOException e) {
+            Log.warn("[%s] [STORE] Almacén mapeado no disponible, se usa sólo el heap: %s", id, e.getMessage());
+            return null;
+        }
     }
 
     public void start() {
-        System.out.printf("[%s] Iniciando con %d núcleos lógicos...\n", id, numCores);
+        Log.info("[%s] Iniciando con %d núcleos lógicos (E/S: %s)...", id, numCores, ConnectionExecutors.mode());
         new Thread(this::sendHeartbeats, "Worker-Heartbeat-" + id).start();
         new Thread(this::listenForTasks, "Worker-TaskListener-" + id).start();
     }
     
     private void sendHeartbeats() {
-        Map<String, String> registerMsgMap = new HashMap<>();
-        registerMsgMap.put("TYPE", "REGISTER_WORKER");
-        registerMsgMap.put("WORKER_ID", id);
-        registerMsgMap.put("TCP_PORT", String.valueOf(tcpPort));
-        sendUdpMessage(ProtocolParser.create(registerMsgMap));
-        System.out.printf("[%s] Mensaje de registro enviado al Maestro.\n", id);
+        register();
 
         Map<String, String> heartbeatMsgMap = new HashMap<>();
         heartbeatMsgMap.put("TYPE", "HEARTBEAT");
         heartbeatMsgMap.put("WORKER_ID", id);
-        String heartbeatMsg = ProtocolParser.create(heartbeatMsgMap);
+        heartbeatMsgMap.put("CORES", String.valueOf(numCores));
 
         try (DatagramSocket socket = new DatagramSocket()) {
             while (!Thread.currentThread().isInterrupted()) {
-                byte[] buffer = heartbeatMsg.getBytes();
+                if (reregister.getAndSet(false)) register();
+                heartbeatMsgMap.put("QUEUE", String.valueOf(pendingTasks.get()));
+                heartbeatMsgMap.put("THROUGHPUT", String.format(Locale.ROOT, "%.0f", throughput));
+                byte[] buffer = ProtocolParser.create(heartbeatMsgMap).getBytes();
                 DatagramPacket packet = new DatagramPacket(buffer, buffer.length, maestroAddr);
                 socket.send(packet);
-                Thread.sleep(3000);
+                Thread.sleep(HEARTBEAT_INTERVAL_MS);
             }
         } catch (Exception e) {
-            System.err.printf("[%s] Error en el hilo de heartbeats: %s\n", id, e.getMessage());
+            Log.warn("[%s] Error en el hilo de heartbeats: %s", id, e.getMessage());
+        }
+    }
+
+    private void register() {
+        Map<String, String> registerMsgMap = new HashMap<>();
+        registerMsgMap.put("TYPE", "REGISTER_WORKER");
+        registerMsgMap.put("WORKER_ID", id);
+        registerMsgMap.put("TCP_PORT", String.valueOf(tcpPort));
+        registerMsgMap.put("PROTOCOL", "BINARY"); // Acepta frames binarios además de texto
+        registerMsgMap.put("CORES", String.valueOf(numCores));
+        registerMsgMap.put("HEARTBEAT_MS", String.valueOf(HEARTBEAT_INTERVAL_MS));
+        String stored = storedChunkList();
+        if (!stored.isEmpty()) registerMsgMap.put("STORED_CHUNKS", stored); // para que el Maestro los vuelva a usar
+        sendUdpMessage(ProtocolParser.create(registerMsgMap));
+        Log.info("[%s] Mensaje de registro enviado al Maestro %s.", id, maestroAddr);
+    }
+
+    // Un Maestro de reserva tomó el relevo: se le envían los heartbeats y un registro nuevo con los chunks
+    // guardados, con los que reanuda los trabajos que el anterior dejó a medias.
+    private void switchMaestro(Message message) {
+        try {
+            maestroAddr = new InetSocketAddress(message.get("HOST"), Integer.parseInt(message.get("UDP_PORT")));
+        } catch (IllegalArgumentException e) {
+            Log.warn("[%s] MAESTRO_CHANGED inválido: %s", id, e.getMessage());
+            return;
         }
+        Log.info("[%s] Nuevo Maestro en %s", id, maestroAddr);
+        reregister.set(true);
+    }
+
+    private String storedChunkList() {
+        if (durableStore == null) return "";
+        StringBuilder list = new StringBuilder();
+        for (String chunkId : durableStore.ids()) {
+            if (list.length() + chunkId.length() + 1 > MAX_STORED_CHUNKS_CHARS) {
+                Log.warn("[%s] [STORE] Demasiados chunks recuperados: sólo se anuncian algunos", id);
+                break;
+            }
+            if (list.length() > 0) list.append(',');
+            list.append(chunkId);
+        }
+        return list.toString();
     }
 
     private void listenForTasks() {
         try (ServerSocket serverSocket = new ServerSocket(tcpPort)) {
-            System.out.printf("[%s] Escuchando tareas en TCP:%d\n", id, tcpPort);
+            Log.info("[%s] Escuchando tareas en TCP:%d", id, tcpPort);
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                taskExecutor.submit(() -> handleTask(clientSocket));
+                connectionExecutor.submit(() -> handleConnection(clientSocket));
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error(e, "[%s] Error en el socket de tareas", id);
         }
     }
 
-    private void handleTask(Socket clientSocket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
+    // El Maestro mantiene la conexión abierta y multiplexa peticiones: cada una se procesa en
+    // taskExecutor y su respuesta lleva el mismo REQUEST_ID.
+    private void handleConnection(Socket clientSocket) {
+        try (MessageChannel channel = MessageChannel.accept(clientSocket)) {
+            Message message;
+            while ((message = channel.read()) != null) {
+                final Message request = message;
+                if ("CANCEL_TASK".equals(request.type())) {
+                    // Se atiende en el hilo lector para que surta efecto aunque el pool esté ocupado.
+                    AtomicBoolean flag = cancellableTasks.get(request.get("CHUNK_ID"));
+                    if (flag != null) flag.set(true);
+                    continue;
+                }
+                if ("MAESTRO_CHANGED".equals(request.type())) {
+                    switchMaestro(request);
+                    continue;
+                }
+                tasksReceived.inc();
+                if (isAdmissionControlled(request)) {
+                    if (pendingTasks.get() >= MAX_QUEUED_PER_CORE * numCores) {
+                        tasksOverloaded.inc();
+                        reject(channel, request, "OVERLOADED");
+                        continue;
+                    }
+                    if (underMemoryPressure()) {
+                        tasksRejected.inc();
+                        reject(channel, request, "MEMORY_PRESSURE");
+                        continue;
+                    }
+                }
+                // La copia sigue por la cadena de réplicas en cuanto llega, sin esperar turno en taskExecutor.
+                replicaForwarder.forward(request);
+                final String chunkId = request.get("CHUNK_ID");
+                final AtomicBoolean cancelled = isCancellable(request) ? new AtomicBoolean() : null;
+                if (cancelled != null) cancellableTasks.put(chunkId, cancelled);
+                pendingTasks.incrementAndGet();
+                long receivedAt = System.nanoTime();
+                taskExecutor.submit(() -> {
+                    queueWait.recordSince(receivedAt);
+                    try {
+                        if (cancelled == null || !cancelled.get()) handleTask(channel, request, cancelled);
+                        else replyCancelled(channel, request);
+                    } finally {
+                        if (cancelled != null) cancellableTasks.remove(chunkId, cancelled);
+                        pendingTasks.decrementAndGet();
+                    }
+                });
+            }
+        } catch (IOException e) {
+            // Silencioso para desconexiones normales, ej. cuando una réplica no necesita responder.
+        }
+    }
 
-            String line = in.readLine();
-            if (line == null) return;
+    // Sólo los cálculos cuyo resultado viaja al Maestro: los que guardan un array residente deben terminar.
+    private static boolean isCancellable(Message message) {
+        if (message.get("STORE_CHUNK") != null) return false;
+        return "PROMOTE_AND_EXECUTE".equals(message.type())
+                || ("DISTRIBUTE_TASK".equals(message.type()) && "PRIMARY".equals(message.get("ROLE")));
+    }
+
+    // Sólo se rechazan entradas nuevas: el Maestro aún tiene los datos y puede reenviarlos a otro worker.
+    // Las réplicas y los arrays residentes se aceptan siempre y, si no caben, acaban volcados a disco;
+    // así la cola de taskExecutor sólo crece sin límite con trabajo que no se puede mandar a otro sitio.
+    private static boolean isAdmissionControlled(Message message) {
+        return "DISTRIBUTE_TASK".equals(message.type()) && "PRIMARY".equals(message.get("ROLE"))
+                && message.get("STORE_CHUNK") == null && message.get("SOURCE_CHUNK") == null;
+    }
+
+    private boolean underMemoryPressure() {
+        MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+        long max = (heap.getMax() > 0) ? heap.getMax() : Runtime.getRuntime().maxMemory();
+        if ((double) heap.getUsed() / max < MEMORY_HIGH_WATERMARK) return false;
+        // Se vuelca la mitad del almacén para que el heap se recupere antes de la próxima tarea
+        long freed = dataStore.trimTo(dataStore.memoryBytes() / 2);
+        Log.info("[%s] [MONITOR] Heap al %.0f%%: tarea rechazada, %.2f MB volcados a disco",
+                id, 100.0 * heap.getUsed() / max, freed / (1024.0 * 1024));
+        return true;
+    }
+
+    private void reject(MessageChannel channel, Message request, String reason) throws IOException {
+        channel.write(new Message("TASK_RESULT").inReplyTo(request)
+                .put("CHUNK_ID", request.get("CHUNK_ID")).put("STATUS", "FAILED").put("REASON", reason));
+    }
 
-            Map<String, String> message = ProtocolParser.parse(line);
-            String type = message.get("TYPE");
+    private void replyCancelled(MessageChannel channel, Message request) {
+        tasksCancelled.inc();
+        Log.info("[%s] [CANCEL] Tarea %s cancelada por el Maestro", id, request.get("CHUNK_ID"));
+        try {
+            channel.write(new Message("TASK_RESULT").inReplyTo(request)
+                    .put("CHUNK_ID", request.get("CHUNK_ID")).put("STATUS", "FAILED").put("REASON", "CANCELLED"));
+        } catch (IOException ignored) { /* el Maestro ya no escucha */ }
+    }
+
+    private void handleTask(MessageChannel channel, Message message, AtomicBoolean cancelled) {
+        try {
+            String type = message.type();
             String chunkId = message.get("CHUNK_ID");
 
             if ("DISTRIBUTE_TASK".equals(type)) {
                 String role = message.get("ROLE");
-                List<Double> data = ProtocolParser.parseData(message.get("DATA"));
-                
-                System.out.printf("[%s] Recibido '%s' (tamaño: %d), rol: %s\n", id, chunkId, data.size(), role);
-                dataStore.put(chunkId, data);
-                
-                // --- INICIO DE LA MEJORA DE MONITOREO DE MEMORIA ---
-                long heapMemoryUsed = memoryBean.getHeapMemoryUsage().getUsed();
-                System.out.printf("[%s] [MONITOR] Uso de memoria (Heap) después de recibir datos: %.2f MB\n", id, (double) heapMemoryUsed / (1024 * 1024));
-                // --- FIN DE LA MEJORA DE MONITOREO DE MEMORIA ---
+                // Con SOURCE_CHUNK la entrada ya reside en este worker y el mensaje no trae datos.
+                String sourceChunk = message.get("SOURCE_CHUNK");
+                DataChunk data = (sourceChunk != null) ? lookupChunk(sourceChunk) : message.getPayload();
+                if (data == null) {
+                    Log.error("[%s] [ERROR] No se encontró el chunk residente %s", id, sourceChunk);
+                    if ("PRIMARY".equals(role)) sendChunkNotFound(channel, message, chunkId);
+                    return;
+                }
+
+                Log.debug("[%s] Recibido '%s' (tamaño: %d), rol: %s", id, chunkId, data.length(), role);
+                String storeChunk = message.get("STORE_CHUNK");
+                if (storeChunk != null) {
+                    // Array residente: primario y réplica calculan y guardan el resultado, así no viaja por la red.
+                    DoubleChunk stored = storeResult(storeChunk, data, message);
+                    if ("PRIMARY".equals(role)) sendStored(channel, message, chunkId, stored);
+                    return;
+                }
+                if (sourceChunk == null) {
+                    // La réplica sólo se lee si hay promoción: se guarda fuera del heap. Los almacenes son de
+                    // doubles: una réplica int se guarda convertida (sin pérdida) y INPUT_TYPE=INT la recupera.
+                    // La entrada int de un primario no se guarda: si hay que repetirla, el Maestro la reenvía.
+                    if ("PRIMARY".equals(role)) {
+                        if (data instanceof DoubleChunk) dataStore.put(chunkId, (DoubleChunk) data);
+                    } else {
+                        storeDurable(chunkId, asDoubles(data), false);
+                    }
+                    logHeapUsage();
+                }
 
                 if ("PRIMARY".equals(role)) {
-                    List<Double> resultData = processChunkLocally(data, message.get("OPERATION"));
-                    sendResult(out, message.get("JOB_ID"), chunkId, resultData);
+                    computeAndReply(channel, message, chunkId, data, cancelled);
                 }
             } else if ("PROMOTE_AND_EXECUTE".equals(type)) {
-                 System.out.printf("[%s] [RECOVERY] Promovido a PRIMARIO para '%s'. Ejecutando...\n", id, chunkId);
-                 List<Double> data = dataStore.get(chunkId);
-                 if (data != null) {
-                    List<Double> resultData = processChunkLocally(data, message.get("OPERATION"));
-                    sendResult(out, message.get("JOB_ID"), chunkId, resultData);
+                 Log.info("[%s] [RECOVERY] Promovido a PRIMARIO para '%s'. Ejecutando...", id, chunkId);
+                 String storeChunk = message.get("STORE_CHUNK");
+                 DoubleChunk stored = (storeChunk != null) ? lookupChunk(storeChunk) : null;
+                 DoubleChunk data = lookupChunk(message.getOrDefault("SOURCE_CHUNK", chunkId));
+                 if (stored != null) {
+                    // Como réplica ya se calculó y guardó el resultado: sólo falta confirmarlo.
+                    sendStored(channel, message, chunkId, stored);
+                 } else if (data != null && storeChunk != null) {
+                    sendStored(channel, message, chunkId, storeResult(storeChunk, data, message));
+                 } else if (data != null) {
+                    computeAndReply(channel, message, chunkId, data, cancelled);
                  } else {
-                     System.err.printf("[%s] [ERROR] No se encontraron datos para el chunk promovido %s\n", id, chunkId);
+                     Log.error("[%s] [ERROR] No se encontraron datos para el chunk promovido %s", id, chunkId);
+                     sendChunkNotFound(channel, message, chunkId);
                  }
+            } else if ("DROP_ARRAY".equals(type)) {
+                int removed = removeChunks(ChunkKey.prefixOf(message.get("ARRAY_ID")));
+                Log.info("[%s] Array %s liberado (%d chunks)", id, message.get("ARRAY_ID"), removed);
+            } else if ("RELEASE_JOB".equals(type)) {
+                // El trabajo terminó: sus entradas (como primario o réplica) ya no se necesitan.
+                int removed = removeChunks(ChunkKey.prefixOf(message.get("JOB_ID")));
+                if (removed > 0) Log.debug("[%s] Trabajo %s liberado (%d chunks)", id, message.get("JOB_ID"), removed);
             }
+        } catch (IllegalArgumentException e) {
+            // Operación o agregación mal especificada: se informa en vez de dejar la petición sin respuesta.
+            tasksInvalid.inc();
+            Log.error("[%s] [ERROR] Petición inválida: %s", id, e.getMessage());
+            try {
+                channel.write(new Message("TASK_RESULT").inReplyTo(message)
+                        .put("CHUNK_ID", message.getOrDefault("CHUNK_ID", "")).put("STATUS", "FAILED").put("REASON", "INVALID_REQUEST"));
+            } catch (IOException ignored) { /* el Maestro ya no escucha */ }
         } catch (IOException e) {
-            // Silencioso para desconexiones normales, ej. cuando una réplica no necesita responder.
-        } finally {
-            try { clientSocket.close(); } catch (IOException e) { /* ignorar */ }
+            Log.warn("[%s] No se pudo responder a la petición: %s", id, e.getMessage());
         }
     }
     
-    private void sendResult(PrintWriter out, String jobId, String chunkId, List<Double> resultData) {
-        Map<String, String> responseMap = new HashMap<>();
-        responseMap.put("TYPE", "TASK_RESULT");
-        responseMap.put("JOB_ID", jobId);
-        responseMap.put("CHUNK_ID", chunkId);
-        responseMap.put("STATUS", "SUCCESS");
-        responseMap.put("DATA", resultData.stream().map(String::valueOf).collect(Collectors.joining(",")));
-        out.println(ProtocolParser.create(responseMap));
-    }
-
-    private List<Double> processChunkLocally(List<Double> data, String operationId) {
-        final Function<Double, Double> operation;
-
-        if ("COMPLEX_OP".equals(operationId)) {
-            operation = (x) -> (Math.pow(Math.sin(x) + Math.cos(x), 2)) / (Math.sqrt(Math.abs(x)) + 1);
-        } else if ("CONDITIONAL_OP_INT".equals(operationId)) {
-            operation = (x) -> (x % 3 == 0 || (x >= 500 && x <= 1000)) ? (x * Math.log(x)) % 7 : x;
+    private void computeAndReply(MessageChannel channel, Message message, String chunkId, DataChunk data, AtomicBoolean cancelled) throws IOException {
+        long start = System.nanoTime();
+        DataChunk resultData = compute(data, message, Aggregation.fromHeaders(message.headers()), cancelled);
+        long computeNanos = System.nanoTime() - start;
+        if (cancelled != null && cancelled.get()) {
+            replyCancelled(channel, message);
         } else {
-            operation = (x) -> x; // Operación por defecto
+            sendResult(channel, message, chunkId, resultData, computeNanos);
         }
+    }
 
-        // Envoltura de la operación para Resiliencia Local
-        Function<Double, Double> resilientOperation = (x) -> {
+    private DoubleChunk storeResult(String storeChunk, DataChunk data, Message message) {
+        DoubleChunk result = asDoubles(compute(data, message, null, null));
+        storeDurable(storeChunk, result, true);
+        logHeapUsage();
+        return result;
+    }
+
+    // Si el almacén mapeado no está disponible o falla la escritura, el chunk se queda en el heap.
+    // Sólo los chunks de arrays residentes, que se readoptan al volver a registrarse, se fuerzan a disco
+    // (sync); una réplica de entrada se descarta al terminar el trabajo y no lo necesita.
+    private void storeDurable(String chunkId, DoubleChunk data, boolean sync) {
+        if (durableStore != null) {
             try {
-                return operation.apply(x);
-            } catch (Exception e) {
-                System.err.printf("[%s] [RESILIENCIA LOCAL] Error procesando valor %.2f: %s. Devolviendo -1.0\n", id, x, e.getMessage());
-                return -1.0; // Valor de error estándar
+                durableStore.put(chunkId, data, sync);
+                return;
+            } catch (IOException e) {
+                Log.warn("[%s] [STORE] No se pudo mapear %s, se guarda en heap: %s", id, chunkId, e.getMessage());
+            }
+        }
+        dataStore.put(chunkId, data);
+    }
+
+    private DoubleChunk lookupChunk(String chunkId) {
+        DoubleChunk chunk = dataStore.get(chunkId);
+        return (chunk == null && durableStore != null) ? durableStore.get(chunkId) : chunk;
+    }
+
+    private int removeChunks(String prefix) {
+        return dataStore.removePrefix(prefix) + ((durableStore != null) ? durableStore.removePrefix(prefix) : 0);
+    }
+
+    // Con el nivel por defecto ni siquiera se consulta el bean: el uso de heap se publica como métrica.
+    private void logHeapUsage() {
+        if (!Log.isEnabled(Log.Level.DEBUG)) return;
+        // --- INICIO DE LA MEJORA DE MONITOREO DE MEMORIA ---
+        long heapMemoryUsed = memoryBean.getHeapMemoryUsage().getUsed();
+        Log.debug("[%s] [MONITOR] Uso de memoria (Heap) después de recibir datos: %.2f MB", id, (double) heapMemoryUsed / (1024 * 1024));
+        // --- FIN DE LA MEJORA DE MONITOREO DE MEMORIA ---
+    }
+
+    // El resultado queda en el worker: sólo se confirma su longitud, sin datos.
+    private void sendStored(MessageChannel channel, Message request, String chunkId, DoubleChunk stored) throws IOException {
+        channel.write(new Message("TASK_RESULT").inReplyTo(request)
+                .put("JOB_ID", request.get("JOB_ID"))
+                .put("CHUNK_ID", chunkId)
+                .put("STATUS", "SUCCESS")
+                .put("LENGTH", String.valueOf(stored.length())));
+    }
+
+    private void sendChunkNotFound(MessageChannel channel, Message request, String chunkId) throws IOException {
+        channel.write(new Message("TASK_RESULT").inReplyTo(request)
+                .put("CHUNK_ID", chunkId).put("STATUS", "FAILED").put("REASON", "CHUNK_NOT_FOUND"));
+    }
+
+    // COMPUTE_MICROS permite al Maestro separar el cálculo del tiempo en red y en colas.
+    private void sendResult(MessageChannel channel, Message request, String chunkId, DataChunk resultData, long computeNanos) throws IOException {
+        Message response = new Message("TASK_RESULT").inReplyTo(request)
+                .put("JOB_ID", request.get("JOB_ID"))
+                .put("CHUNK_ID", chunkId)
+                .put("STATUS", "SUCCESS")
+                .put("COMPUTE_MICROS", String.valueOf(computeNanos / 1000))
+                .setPayload(resultData);
+        long start = System.nanoTime();
+        channel.write(response);
+        replyTime.recordSince(start);
+    }
+
+    // Sin cabecera PLAN el mensaje describe un único MAP con OPERATION, como en el protocolo original.
+    private static Pipeline planOf(Message message) {
+        String plan = message.get("PLAN");
+        return (plan != null) ? Pipeline.parse(plan) : Pipeline.of(message.getOrDefault("OPERATION", "IDENTITY"));
+    }
+
+    // Con RESULT_TYPE=INT, sin PLAN ni agregación y con un IntKernel para la operación, el cálculo es entero
+    // de principio a fin. En otro caso se calcula en double (una entrada int se convierte sin pérdida) y, con
+    // RESULT_TYPE=INT, el resultado se trunca. INPUT_TYPE=INT indica que una entrada leída del almacén
+    // (que guarda doubles) era int y se puede volver a convertir. Una REDUCE sobre ints sin operación previa
+    // se reduce en long con el IntReducer, si lo hay.
+    private DataChunk compute(DataChunk data, Message message, Aggregation aggregation, AtomicBoolean cancelled) {
+        boolean intResult = "INT".equals(message.get("RESULT_TYPE")) && aggregation == null;
+        boolean intInput = data instanceof IntChunk || "INT".equals(message.get("INPUT_TYPE"));
+        boolean identity = message.get("PLAN") == null && "IDENTITY".equals(message.getOrDefault("OPERATION", "IDENTITY"));
+        IntReducer intReducer = (aggregation != null && intInput && identity) ? aggregation.intReducer() : null;
+        if (intReducer != null) {
+            return reduceIntChunk((data instanceof IntChunk) ? (IntChunk) data : ((DoubleChunk) data).toInts(), intReducer, cancelled);
+        }
+        IntKernel intKernel = (intResult && intInput && message.get("PLAN") == null)
+                ? operationRegistry.lookupInt(message.getOrDefault("OPERATION", "IDENTITY")) : null;
+        if (intKernel != null) {
+            return processIntChunk((data instanceof IntChunk) ? (IntChunk) data : ((DoubleChunk) data).toInts(), intKernel, cancelled);
+        }
+        DoubleChunk result = processChunkLocally(asDoubles(data), planOf(message), aggregation, cancelled);
+        return intResult ? result.toInts() : result;
+    }
+
+    private static DoubleChunk asDoubles(DataChunk data) {
+        return (data instanceof IntChunk) ? ((IntChunk) data).toDoubles() : (DoubleChunk) data;
+    }
+
+    // Mismo reparto en bloques paralelos que processChunkLocally, con un único kernel entero.
+    private IntChunk processIntChunk(IntChunk data, IntKernel kernel, AtomicBoolean cancelled) {
+        int[] in = (data.offset() == 0) ? data.array() : data.toArray();
+        int n = data.length();
+        int[] out = new int[n];
+        int blocks = Math.max(1, Math.min(numCores * 4, n / MIN_BLOCK_SIZE));
+        int blockSize = (n + blocks - 1) / blocks;
+
+        Log.debug("[%s] Procesando chunk int de tamaño %d con '%s' en %d bloques...", id, n, kernel.name(), blocks);
+        long startNanos = System.nanoTime();
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = Math.min(n, b * blockSize);
+            int to = Math.min(n, from + blockSize);
+            if (from < to && (cancelled == null || !cancelled.get())) applyResilient(kernel, in, out, from, to);
+        });
+        long elapsedNanos = System.nanoTime() - startNanos;
+        computeTime.record(elapsedNanos);
+        recordThroughput(n, elapsedNanos);
+        return new IntChunk(out);
+    }
+
+    private IntChunk reduceIntChunk(IntChunk data, IntReducer reducer, AtomicBoolean cancelled) {
+        int[] in = data.array();
+        int base = data.offset(), n = data.length();
+        int blocks = Math.max(1, Math.min(numCores * 4, n / MIN_BLOCK_SIZE));
+        int blockSize = (n + blocks - 1) / blocks;
+        long startNanos = System.nanoTime();
+        long result = IntStream.range(0, blocks).parallel().mapToLong(b -> {
+            int from = Math.min(n, b * blockSize);
+            int to = Math.min(n, from + blockSize);
+            return (from < to && (cancelled == null || !cancelled.get())) ? reducer.reduce(in, base + from, base + to) : reducer.identity();
+        }).reduce(reducer.identity(), reducer::combine);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        computeTime.record(elapsedNanos);
+        recordThroughput(n, elapsedNanos);
+        return Aggregation.longPartial(result);
+    }
+
+    // Todas las etapas del plan se aplican seguidas sobre cada bloque mientras está en caché, en lugar
+    // de recorrer el chunk completo una vez por etapa. Con una agregación, cada bloque calcula además
+    // su parcial y sólo se devuelve la combinación de esos parciales en lugar del chunk transformado.
+    // Si cancelled se activa a mitad, los bloques pendientes se saltan y el resultado no sirve.
+    private DoubleChunk processChunkLocally(DoubleChunk data, Pipeline plan, Aggregation aggregation, AtomicBoolean cancelled) {
+        // Cada kernel y filtro se resuelve una vez por chunk, no por elemento
+        List<Pipeline.Stage> stages = plan.stages();
+        DoubleKernel[] kernels = new DoubleKernel[stages.size()];
+        DoubleFilter[] filters = new DoubleFilter[stages.size()];
+        for (int s = 0; s < stages.size(); s++) {
+            Pipeline.Stage stage = stages.get(s);
+            if (stage.kind() == Pipeline.Kind.MAP) kernels[s] = operationRegistry.lookup(stage.name());
+            else if (stage.kind() == Pipeline.Kind.FILTER) filters[s] = operationRegistry.lookupFilter(stage.name());
+        }
+
+        double[] in = (data.offset() == 0) ? data.array() : data.toArray();
+        double[] out = new double[data.length()];
+        // Con varias etapas se alterna entre out y scratch para que ningún kernel escriba sobre su entrada.
+        double[] scratch = (stages.size() > 1) ? new double[data.length()] : null;
+
+        // Un bloque contiguo por tarea paralela; cada etapa recorre su rango en un bucle sin boxing.
+        int n = out.length;
+        int blocks = Math.max(1, Math.min(numCores * 4, n / MIN_BLOCK_SIZE));
+        int blockSize = (n + blocks - 1) / blocks;
+
+        int[] blockEnds = new int[blocks];
+        double[][] partials = (aggregation != null) ? new double[blocks][] : null;
+
+        Log.debug("[%s] Procesando chunk de tamaño %d con plan '%s' en %d bloques...", id, n, plan, blocks);
+        long startNanos = System.nanoTime();
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = Math.min(n, b * blockSize);
+            int to = Math.min(n, from + blockSize);
+            if (cancelled != null && cancelled.get()) to = from;
+            int end = (from < to) ? applyStages(stages, kernels, filters, in, out, scratch, from, to) : from;
+            blockEnds[b] = end;
+            if (partials != null) partials[b] = aggregation.partial(out, from, end);
+        });
+        long elapsedNanos = System.nanoTime() - startNanos;
+        computeTime.record(elapsedNanos);
+        recordThroughput(n, elapsedNanos);
+        if (aggregation != null) {
+            return new DoubleChunk(aggregation.combineArrays(Arrays.asList(partials)));
+        }
+        if (plan.preservesSize()) return new DoubleChunk(out);
+
+        // Los filtros dejan cada bloque compactado al principio de su rango: se juntan los tramos.
+        int total = 0;
+        for (int b = 0; b < blocks; b++) total += blockEnds[b] - Math.min(n, b * blockSize);
+        double[] compacted = new double[total];
+        int pos = 0;
+        for (int b = 0; b < blocks; b++) {
+            int from = Math.min(n, b * blockSize);
+            System.arraycopy(out, from, compacted, pos, blockEnds[b] - from);
+            pos += blockEnds[b] - from;
+        }
+        return new DoubleChunk(compacted);
+    }
+
+    // Los chunks muy pequeños están dominados por costes fijos y no dicen nada de la velocidad del nodo.
+    private void recordThroughput(int elements, long elapsedNanos) {
+        if (elements < MIN_BLOCK_SIZE || elapsedNanos <= 0) return;
+        double rate = elements * 1e9 / elapsedNanos;
+        double previous = throughput;
+        throughput = (previous == 0) ? rate : 0.7 * previous + 0.3 * rate;
+    }
+
+    // Aplica las etapas sobre [from, to) y deja el resultado en out[from, end); devuelve end.
+    private int applyStages(List<Pipeline.Stage> stages, DoubleKernel[] kernels, DoubleFilter[] filters,
+                            double[] in, double[] out, double[] scratch, int from, int to) {
+        double[] src = in;
+        // El número de etapas restantes decide el destino para que la última escriba siempre en out.
+        int end = to;
+        for (int s = 0; s < stages.size(); s++) {
+            double[] dst = ((stages.size() - 1 - s) % 2 == 0) ? out : scratch;
+            switch (stages.get(s).kind()) {
+                case MAP:
+                    applyResilient(kernels[s], src, dst, from, end);
+                    break;
+                case FILTER: {
+                    DoubleFilter filter = filters[s];
+                    int w = from;
+                    for (int i = from; i < end; i++) {
+                        double x = src[i];
+                        if (filter.test(x)) dst[w++] = x;
+                    }
+                    end = w;
+                    break;
+                }
+                case TO_INT:
+                    for (int i = from; i < end; i++) dst[i] = (int) src[i];
+                    break;
+            }
+            src = dst;
+        }
+        if (src == in) System.arraycopy(in, from, out, from, end - from); // plan vacío
+        return end;
+    }
+
+    // Resiliencia local: si el kernel falla en un bloque, se reintenta elemento a elemento y los
+    // valores que sigan fallando se sustituyen por -1.0, sin coste en el camino normal.
+    private void applyResilient(DoubleKernel kernel, double[] in, double[] out, int from, int to) {
+        try {
+            kernel.apply(in, out, from, to);
+        } catch (RuntimeException blockError) {
+            for (int i = from; i < to; i++) {
+                try {
+                    kernel.apply(in, out, i, i + 1);
+                } catch (RuntimeException e) {
+                    Log.warn("[%s] [RESILIENCIA LOCAL] Error procesando valor %.2f: %s. Devolviendo -1.0", id, in[i], e.getMessage());
+                    out[i] = -1.0; // Valor de error estándar
+                }
             }
-        };
+        }
+    }
 
-        System.out.printf("[%s] Procesando chunk de tamaño %d con op '%s' en paralelo...\n", id, data.size(), operationId);
-        return data.parallelStream().map(resilientOperation).collect(Collectors.toList());
+    private void applyResilient(IntKernel kernel, int[] in, int[] out, int from, int to) {
+        try {
+            kernel.apply(in, out, from, to);
+        } catch (RuntimeException blockError) {
+            for (int i = from; i < to; i++) {
+                try {
+                    kernel.apply(in, out, i, i + 1);
+                } catch (RuntimeException e) {
+                    Log.warn("[%s] [RESILIENCIA LOCAL] Error procesando valor %d: %s. Devolviendo -1", id, in[i], e.getMessage());
+                    out[i] = -1;
+                }
+            }
+        }
     }
 
     private void sendUdpMessage(String message) {
@@ -157,7 +641,7 @@ public class Worker {
             DatagramPacket packet = new DatagramPacket(buffer, buffer.length, maestroAddr);
             socket.send(packet);
         } catch (IOException e) {
-            System.err.printf("[%s] Error enviando UDP: %s\n", id, e.getMessage());
+            Log.warn("[%s] Error enviando UDP: %s", id, e.getMessage());
         }
     }
 }
\ No newline at end of file
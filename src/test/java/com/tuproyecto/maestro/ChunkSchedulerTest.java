@@ -0,0 +1,39 @@
+package com.tuproyecto.maestro;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChunkSchedulerTest {
+    // Con los valores por defecto: chunks de al menos 16 K elementos, hasta 4 por worker.
+    @Test
+    void smallArraysStillGetOneChunkPerWorker() {
+        assertEquals(4, ChunkScheduler.chunkCount(2_000, 4));
+        assertEquals(4, ChunkScheduler.chunkCount(10_000, 4));
+        assertEquals(3, ChunkScheduler.chunkCount(3, 4));
+        assertEquals(1, ChunkScheduler.chunkCount(0, 4));
+        assertEquals(1, ChunkScheduler.chunkCount(5_000, 1));
+    }
+
+    @Test
+    void minimumSizeOnlyLimitsExtraSplitting() {
+        assertEquals(7, ChunkScheduler.chunkCount(100_000, 4));
+        assertEquals(16, ChunkScheduler.chunkCount(10_000_000, 4));
+        assertEquals(4, ChunkScheduler.chunkCount(16 * 1024 * 3, 4));
+    }
+
+    @Test
+    void chunksGoToTheWorkerThatWouldFinishFirst() {
+        List<String> workers = List.of("fast", "slow");
+        ChunkScheduler<String> scheduler = new ChunkScheduler<>(w -> "fast".equals(w) ? 3 : 1, w -> 0);
+        List<String> assignment = scheduler.assign(workers, 4);
+        assertEquals(3, Collections.frequency(assignment, "fast"));
+        assertEquals(1, Collections.frequency(assignment, "slow"));
+
+        ChunkScheduler<String> busy = new ChunkScheduler<>(w -> 1, w -> "fast".equals(w) ? 5 : 0);
+        assertEquals("slow", busy.pick(workers));
+    }
+}
@@ -0,0 +1,143 @@
+package com.tuproyecto.maestro;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(20)
+class JobAdmissionTest {
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    private CompletableFuture<Boolean> acquireAsync(JobAdmission admission, int priority) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return admission.acquire(priority);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, pool);
+    }
+
+    private static void awaitQueued(JobAdmission admission, int expected) throws InterruptedException {
+        while (admission.queued() != expected) Thread.sleep(5);
+    }
+
+    private static void runJobs(JobAdmission admission, int jobs, long durationNanos) throws InterruptedException {
+        for (int i = 0; i < jobs; i++) {
+            assertTrue(admission.acquire(0));
+            admission.release(durationNanos);
+        }
+    }
+
+    @Test
+    void admitsUpToMaxActiveAndRejectsWithAFullQueue() throws Exception {
+        JobAdmission admission = new JobAdmission(2, 0, 10_000);
+        assertTrue(admission.acquire(0));
+        assertTrue(admission.acquire(0));
+        assertFalse(admission.acquire(0));
+        assertEquals(2, admission.active());
+        admission.release(0);
+        assertTrue(admission.acquire(0));
+    }
+
+    // Con la cola llena sólo entra una prioridad mayor, desplazando al último de menos.
+    @Test
+    void higherPriorityEvictsTheLowestWaiter() throws Exception {
+        JobAdmission admission = new JobAdmission(1, 2, 10_000);
+        assertTrue(admission.acquire(0));
+        CompletableFuture<Boolean> first = acquireAsync(admission, 1);
+        awaitQueued(admission, 1);
+        CompletableFuture<Boolean> low = acquireAsync(admission, 0);
+        awaitQueued(admission, 2);
+
+        assertFalse(admission.acquire(0));
+        CompletableFuture<Boolean> high = acquireAsync(admission, 5);
+        assertFalse(low.get(5, TimeUnit.SECONDS));
+        awaitQueued(admission, 2);
+
+        // El de prioridad 5 sale antes que el de prioridad 1, aunque llegó después
+        admission.release(0);
+        assertTrue(high.get(5, TimeUnit.SECONDS));
+        assertThrows(TimeoutException.class, () -> first.get(100, TimeUnit.MILLISECONDS));
+        admission.release(0);
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    void equalPrioritiesAreServedInArrivalOrder() throws Exception {
+        JobAdmission admission = new JobAdmission(1, 10, 10_000);
+        assertTrue(admission.acquire(0));
+        List<CompletableFuture<Boolean>> waiters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiters.add(acquireAsync(admission, 3));
+            awaitQueued(admission, i + 1);
+        }
+        for (CompletableFuture<Boolean> waiter : waiters) {
+            admission.release(0);
+            assertTrue(waiter.get(5, TimeUnit.SECONDS));
+            for (CompletableFuture<Boolean> other : waiters) {
+                if (other != waiter && !other.isDone()) {
+                    assertThrows(TimeoutException.class, () -> other.get(20, TimeUnit.MILLISECONDS));
+                }
+            }
+        }
+    }
+
+    @Test
+    void waitersTimeOutAndLeaveTheQueue() throws Exception {
+        JobAdmission admission = new JobAdmission(1, 4, 100);
+        assertTrue(admission.acquire(0));
+        long start = System.nanoTime();
+        assertFalse(admission.acquire(0));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+        assertEquals(0, admission.queued());
+        assertEquals(1, admission.active());
+    }
+
+    @Test
+    void interruptedWaiterLeavesTheQueue() throws Exception {
+        JobAdmission admission = new JobAdmission(1, 4, 10_000);
+        assertTrue(admission.acquire(0));
+        Thread waiter = new Thread(() -> assertThrows(InterruptedException.class, () -> admission.acquire(0)));
+        waiter.start();
+        awaitQueued(admission, 1);
+        waiter.interrupt();
+        waiter.join();
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    void retryAfterGrowsWithTheQueueAndHasAFloor() throws Exception {
+        JobAdmission admission = new JobAdmission(1, 4, 10_000);
+        assertEquals(100, admission.retryAfterMillis());
+        runJobs(admission, 20, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(50, admission.retryAfterMillis());
+        runJobs(admission, 40, TimeUnit.SECONDS.toNanos(1));
+        long idle = admission.retryAfterMillis();
+        assertTrue(idle > 900, "retry=" + idle);
+
+        assertTrue(admission.acquire(0));
+        acquireAsync(admission, 0);
+        awaitQueued(admission, 1);
+        assertTrue(admission.retryAfterMillis() > idle);
+    }
+}
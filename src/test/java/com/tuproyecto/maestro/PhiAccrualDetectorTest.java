@@ -0,0 +1,78 @@
+package com.tuproyecto.maestro;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhiAccrualDetectorTest {
+    // Heartbeats exactos cada intervalMillis a partir de start; devuelve el instante del último.
+    private static long beat(PhiAccrualDetector detector, long start, long intervalMillis, int beats) {
+        long now = start;
+        for (int i = 0; i < beats; i++) {
+            now += intervalMillis;
+            detector.heartbeat(now);
+        }
+        return now;
+    }
+
+    @Test
+    void phiGrowsWithSilence() {
+        PhiAccrualDetector detector = new PhiAccrualDetector(1_000, 0);
+        long last = beat(detector, 0, 1_000, 20);
+        double previous = -1;
+        for (long silence = 0; silence <= 5_000; silence += 250) {
+            double phi = detector.phi(last + silence);
+            assertTrue(phi >= previous, "phi(" + silence + ")=" + phi + " < " + previous);
+            previous = phi;
+        }
+        assertEquals(4_000, detector.millisSinceLastHeartbeat(last + 4_000));
+    }
+
+    // En la media del intervalo la probabilidad de que llegue aún más tarde es 1/2: phi = log10(2).
+    @Test
+    void phiAtTheMeanIsLog10OfTwo() {
+        PhiAccrualDetector detector = new PhiAccrualDetector(1_000, 0);
+        long last = beat(detector, 0, 1_000, 50);
+        assertEquals(Math.log10(2), detector.phi(last + 1_000), 1e-3);
+    }
+
+    @Test
+    void regularHeartbeatsKeepPhiLowAndAMissedOneRaisesIt() {
+        PhiAccrualDetector detector = new PhiAccrualDetector(500, 0);
+        long last = beat(detector, 0, 500, 100);
+        assertTrue(detector.phi(last + 500) < 1);
+        assertTrue(detector.phi(last + 1_500) > 8);
+        assertEquals(Double.POSITIVE_INFINITY, detector.phi(last + 60_000));
+    }
+
+    // Con llegadas irregulares se tolera más silencio que con llegadas regulares de la misma media.
+    @Test
+    void jitterRaisesTheTolerance() {
+        PhiAccrualDetector steady = new PhiAccrualDetector(1_000, 0);
+        PhiAccrualDetector jittery = new PhiAccrualDetector(1_000, 0);
+        long steadyLast = beat(steady, 0, 1_000, 100);
+        long jitteryLast = 0;
+        for (int i = 0; i < 100; i++) {
+            jitteryLast += (i % 2 == 0) ? 200 : 1_800;
+            jittery.heartbeat(jitteryLast);
+        }
+        assertTrue(jittery.phi(jitteryLast + 2_500) < steady.phi(steadyLast + 2_500));
+    }
+
+    // La ventana es de 100 intervalos: tras 100 heartbeats rápidos se olvida la siembra lenta.
+    @Test
+    void theWindowAdaptsToANewInterval() {
+        PhiAccrualDetector detector = new PhiAccrualDetector(10_000, 0);
+        long last = beat(detector, 0, 200, 100);
+        assertTrue(detector.phi(last + 1_500) > 8, "phi=" + detector.phi(last + 1_500));
+    }
+
+    // El mínimo de desviación evita que unos heartbeats perfectos conviertan cualquier retraso en un fallo.
+    @Test
+    void minimumDeviationAbsorbsSmallDelays() {
+        PhiAccrualDetector detector = new PhiAccrualDetector(1_000, 0);
+        long last = beat(detector, 0, 1_000, 200);
+        assertTrue(detector.phi(last + 1_150) < 3, "phi=" + detector.phi(last + 1_150));
+    }
+}
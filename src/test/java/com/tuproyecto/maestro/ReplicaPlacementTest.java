@@ -0,0 +1,80 @@
+package com.tuproyecto.maestro;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaPlacementTest {
+    private static final List<String> WORKERS = List.of("worker-9001", "worker-9002", "worker-9003", "worker-9004", "worker-9005");
+
+    private static List<String> select(String chunkId, List<String> candidates, int count) {
+        return ReplicaPlacement.select(chunkId, candidates, Function.identity(), count);
+    }
+
+    @Test
+    void selectionDoesNotDependOnCandidateOrder() {
+        List<String> shuffled = new ArrayList<>(WORKERS);
+        Collections.shuffle(shuffled, new Random(3));
+        for (int c = 0; c < 200; c++) {
+            String chunkId = "job-7-c" + c;
+            assertEquals(select(chunkId, WORKERS, 3), select(chunkId, shuffled, 3));
+        }
+    }
+
+    // "Aa" y "BB" tienen el mismo hashCode: el orden entre ellos lo fija el id, no la lista.
+    @Test
+    void hashCollisionsAreBrokenById() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(select("job-1-c0", List.of("Aa", "BB"), 2), select("job-1-c0", List.of("BB", "Aa"), 2));
+    }
+
+    @Test
+    void countIsClampedAndSmallerSelectionsArePrefixes() {
+        assertEquals(0, select("job-1-c0", WORKERS, -1).size());
+        assertEquals(WORKERS.size(), select("job-1-c0", WORKERS, 99).size());
+        assertTrue(select("job-1-c0", List.of(), 2).isEmpty());
+        List<String> all = select("job-1-c0", WORKERS, WORKERS.size());
+        assertEquals(all.subList(0, 2), select("job-1-c0", WORKERS, 2));
+        assertEquals(WORKERS.size(), all.stream().distinct().count());
+    }
+
+    @Test
+    void primariesAreSpreadEvenly() {
+        Map<String, Integer> primaries = new HashMap<>();
+        int chunks = 10_000;
+        for (int c = 0; c < chunks; c++) primaries.merge(select("job-3-c" + c, WORKERS, 1).get(0), 1, Integer::sum);
+        assertEquals(WORKERS.size(), primaries.size());
+        int expected = chunks / WORKERS.size();
+        for (int count : primaries.values()) assertTrue(Math.abs(count - expected) < expected / 5, primaries.toString());
+    }
+
+    // Al salir un worker sólo se mueven los chunks que tenían copia en él.
+    @Test
+    void removingAWorkerOnlyMovesItsChunks() {
+        List<String> remaining = WORKERS.subList(0, WORKERS.size() - 1);
+        String removed = WORKERS.get(WORKERS.size() - 1);
+        int moved = 0;
+        for (int c = 0; c < 1_000; c++) {
+            String chunkId = "job-5-c" + c;
+            List<String> before = select(chunkId, WORKERS, 2);
+            List<String> after = select(chunkId, remaining, 2);
+            if (before.contains(removed)) {
+                moved++;
+                assertNotEquals(before, after);
+            } else {
+                assertEquals(before, after);
+            }
+        }
+        assertTrue(moved > 0);
+    }
+}
@@ -0,0 +1,122 @@
+package com.tuproyecto.maestro;
+
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultCacheTest {
+    // 100 doubles: 800 bytes de datos + 64 de cabecera estimada
+    private static final long ENTRY_BYTES = 100 * Double.BYTES + 64;
+
+    private static DoubleChunk filled(double value) {
+        double[] values = new double[100];
+        Arrays.fill(values, value);
+        return new DoubleChunk(values);
+    }
+
+    @Test
+    void keysDependOnContentNotOnTheView() {
+        double[] big = {9, 1, 2, 3, 9};
+        ResultCache.Key view = ResultCache.keyOf(new DoubleChunk(big, 1, 3), "OPERATION=SQUARE");
+        assertEquals(view, ResultCache.keyOf(new DoubleChunk(new double[]{1, 2, 3}), "OPERATION=SQUARE"));
+        assertEquals(view.hashCode(), ResultCache.keyOf(new DoubleChunk(new double[]{1, 2, 3}), "OPERATION=SQUARE").hashCode());
+        assertNotEquals(view, ResultCache.keyOf(new DoubleChunk(new double[]{1, 2, 3}), "OPERATION=SQRT"));
+        assertNotEquals(view, ResultCache.keyOf(new DoubleChunk(new double[]{1, 2, 4}), "OPERATION=SQUARE"));
+        assertNotEquals(view, ResultCache.keyOf(new DoubleChunk(new double[]{1, 2, 3, 0}), "OPERATION=SQUARE"));
+        assertNotEquals(view, ResultCache.keyOf(new DoubleChunk(new double[]{2, 1, 3}), "OPERATION=SQUARE"));
+    }
+
+    // Se comparan bits: 0.0 y -0.0 dan resultados distintos (1/x), y NaN coincide consigo mismo.
+    @Test
+    void doubleKeysUseRawBits() {
+        assertNotEquals(ResultCache.keyOf(new DoubleChunk(new double[]{0.0}), "T"), ResultCache.keyOf(new DoubleChunk(new double[]{-0.0}), "T"));
+        assertEquals(ResultCache.keyOf(new DoubleChunk(new double[]{Double.NaN}), "T"), ResultCache.keyOf(new DoubleChunk(new double[]{Double.NaN}), "T"));
+        assertEquals(ResultCache.keyOf(new IntChunk(new int[]{Integer.MIN_VALUE, 5}), "T"), ResultCache.keyOf(new IntChunk(new int[]{Integer.MIN_VALUE, 5}), "T"));
+        assertNotEquals(ResultCache.keyOf(new IntChunk(new int[]{Integer.MIN_VALUE, 5}), "T"), ResultCache.keyOf(new IntChunk(new int[]{Integer.MAX_VALUE, 5}), "T"));
+    }
+
+    @Test
+    void residentKeysUseTheChunkId() {
+        assertEquals(ResultCache.keyOf("array-1-c0", "T"), ResultCache.keyOf("array-1-c0", "T"));
+        assertNotEquals(ResultCache.keyOf("array-1-c0", "T"), ResultCache.keyOf("array-1-c1", "T"));
+        assertNotEquals(ResultCache.keyOf("array-1-c0", "T"), ResultCache.keyOf("array-1-c0", "U"));
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        ResultCache cache = new ResultCache(0);
+        assertFalse(cache.enabled());
+        ResultCache.Key key = ResultCache.keyOf(filled(1), "T");
+        cache.put(key, filled(2));
+        assertNull(cache.get(key));
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void oversizedResultsAreNotCached() {
+        ResultCache cache = new ResultCache(4 * ENTRY_BYTES - 1);
+        assertTrue(cache.enabled());
+        ResultCache.Key key = ResultCache.keyOf(filled(1), "T");
+        cache.put(key, filled(2));
+        assertNull(cache.get(key));
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedFirst() {
+        ResultCache cache = new ResultCache(4 * ENTRY_BYTES);
+        ResultCache.Key[] keys = new ResultCache.Key[5];
+        for (int i = 0; i < 4; i++) {
+            keys[i] = ResultCache.keyOf(filled(i), "T");
+            cache.put(keys[i], filled(-i));
+        }
+        assertEquals(4 * ENTRY_BYTES, cache.bytes());
+        assertNotNull(cache.get(keys[0])); // ahora el más antiguo es keys[1]
+        keys[4] = ResultCache.keyOf(filled(4), "T");
+        cache.put(keys[4], filled(-4));
+
+        assertNull(cache.get(keys[1]));
+        for (int i : new int[]{0, 2, 3, 4}) assertEquals(-i, ((DoubleChunk) cache.get(keys[i])).get(0));
+        assertEquals(4 * ENTRY_BYTES, cache.bytes());
+    }
+
+    @Test
+    void replacingAnEntryKeepsTheByteCount() {
+        ResultCache cache = new ResultCache(1 << 20);
+        ResultCache.Key key = ResultCache.keyOf(filled(1), "T");
+        cache.put(key, filled(2));
+        cache.put(key, new IntChunk(new int[10]));
+        assertEquals(10 * Integer.BYTES + 64, cache.bytes());
+        assertEquals(10, cache.get(key).length());
+    }
+
+    // Una vista de un buffer mayor se guarda compactada; un array entero se guarda tal cual.
+    @Test
+    void viewsAreCompactedBeforeCaching() {
+        ResultCache cache = new ResultCache(1 << 20);
+        double[] buffer = new double[1_000];
+        for (int i = 0; i < buffer.length; i++) buffer[i] = i;
+        ResultCache.Key viewKey = ResultCache.keyOf(filled(1), "view");
+        cache.put(viewKey, new DoubleChunk(buffer, 10, 5));
+        DoubleChunk cached = (DoubleChunk) cache.get(viewKey);
+        assertEquals(5, cached.array().length);
+        assertArrayEquals(new double[]{10, 11, 12, 13, 14}, cached.toArray());
+        assertEquals(5 * Double.BYTES + 64, cache.bytes());
+
+        DoubleChunk whole = filled(3);
+        ResultCache.Key wholeKey = ResultCache.keyOf(filled(2), "whole");
+        cache.put(wholeKey, whole);
+        assertSame(whole, cache.get(wholeKey));
+    }
+}
@@ -0,0 +1,27 @@
+package com.tuproyecto.operation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class AggregationTest {
+    // NaN no está en ningún rango: se ignora como los valores fuera de [HIST_MIN, HIST_MAX], no cae en el bin 0.
+    @Test
+    void histogramIgnoresNaNAndOutOfRangeValues() {
+        Aggregation histogram = Aggregation.histogram(4, 0, 8);
+        double[] values = {Double.NaN, 0, 1.9, 2, 7.99, 8, -0.1, 8.1, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        assertArrayEquals(new double[]{2, 1, 0, 2}, histogram.partial(values, 0, values.length));
+        assertArrayEquals(new double[]{0, 0, 0, 0}, histogram.partial(new double[]{Double.NaN, Double.NaN}, 0, 2));
+    }
+
+    @Test
+    void histogramPartialsCombineByBin() {
+        Aggregation histogram = Aggregation.histogram(2, -1, 1);
+        double[] values = {-1, -0.5, 0, 0.5, 1, Double.NaN};
+        List<double[]> partials = Arrays.asList(histogram.partial(values, 0, 3), histogram.partial(values, 3, values.length));
+        assertArrayEquals(new double[]{2, 3}, histogram.combineArrays(partials));
+    }
+}
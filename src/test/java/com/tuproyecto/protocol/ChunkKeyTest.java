@@ -0,0 +1,55 @@
+package com.tuproyecto.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkKeyTest {
+    @Test
+    void parseAndToStringRoundTrip() {
+        ChunkKey key = ChunkKey.parse("job-42-c7");
+        assertEquals("job-42", key.owner());
+        assertEquals(7, key.index());
+        assertEquals("job-42-c7", key.toString());
+        assertEquals(key, ChunkKey.parse(key.toString()));
+    }
+
+    // El dueño puede contener el separador: manda el último "-c".
+    @Test
+    void ownerMayContainTheSeparator() {
+        ChunkKey key = ChunkKey.parse("array-calc-c-c12");
+        assertEquals("array-calc-c", key.owner());
+        assertEquals(12, key.index());
+    }
+
+    @Test
+    void malformedIdsAreRejected() {
+        for (String bad : new String[]{"", "job", "-c3", "job-c", "job-cx", "job-c-1", "job-c+1", "job-c 1", "job-c99999999999"}) {
+            assertThrows(IllegalArgumentException.class, () -> ChunkKey.parse(bad), bad);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ChunkKey(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ChunkKey("job", -1));
+    }
+
+    @Test
+    void equalityUsesOwnerAndIndex() {
+        ChunkKey key = new ChunkKey("job-1", 3);
+        assertEquals(key, new ChunkKey("job-1", 3));
+        assertEquals(key.hashCode(), new ChunkKey("job-1", 3).hashCode());
+        assertNotEquals(key, new ChunkKey("job-1", 4));
+        assertNotEquals(key, new ChunkKey("job-2", 3));
+        assertNotEquals(key, "job-1-c3");
+    }
+
+    @Test
+    void withOwnerKeepsTheIndexAndPrefixMatchesEveryChunk() {
+        ChunkKey input = new ChunkKey("job-1", 5).withOwner("array-9");
+        assertEquals(new ChunkKey("array-9", 5), input);
+        assertTrue(input.toString().startsWith(ChunkKey.prefixOf("array-9")));
+        assertFalse(new ChunkKey("array-90", 0).toString().startsWith(ChunkKey.prefixOf("array-9")));
+    }
+}
@@ -0,0 +1,155 @@
+package com.tuproyecto.protocol;
+
+import com.tuproyecto.data.DoubleChunk;
+import com.tuproyecto.data.IntChunk;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameCodecTest {
+    private static final double[] SPECIAL = {
+            0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_NORMAL,
+            Double.longBitsToDouble(0x7ff8000000000001L) // NaN con otra carga: debe conservar sus bits
+    };
+
+    private static byte[] encode(Message message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameCodec.write(out, message);
+        return out.toByteArray();
+    }
+
+    private static Message roundTrip(Message message) throws IOException {
+        return FrameCodec.read(new DataInputStream(new ByteArrayInputStream(encode(message))));
+    }
+
+    // Comparación bit a bit: assertArrayEquals(double[]) da por iguales 0.0 y -0.0, y NaN con distinta carga.
+    static void assertSameBits(double[] expected, double[] actual) {
+        assertEquals(expected.length, actual.length, "longitud");
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]), "elemento " + i);
+        }
+    }
+
+    @Test
+    void headersOnly() throws IOException {
+        Message decoded = roundTrip(new Message("HEARTBEAT").put("WORKER_ID", "worker-9001").put("CORES", "8"));
+        assertEquals("HEARTBEAT", decoded.type());
+        assertEquals("worker-9001", decoded.get("WORKER_ID"));
+        assertEquals("8", decoded.get("CORES"));
+        assertNull(decoded.getPayload());
+    }
+
+    @Test
+    void emptyPayloads() throws IOException {
+        assertEquals(0, roundTrip(new Message("JOB").setData(new double[0])).getData().length());
+        assertEquals(0, roundTrip(new Message("JOB").setIntData(new int[0])).getIntData().length());
+    }
+
+    @Test
+    void specialDoublesKeepTheirBits() throws IOException {
+        assertSameBits(SPECIAL, roundTrip(new Message("JOB").setData(SPECIAL)).getData().toArray());
+    }
+
+    @Test
+    void intExtremes() throws IOException {
+        int[] values = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1};
+        assertArrayEquals(values, roundTrip(new Message("JOB").setIntData(values)).getIntData().toArray());
+    }
+
+    // Más de un bloque de copia (64 KB) y una vista que no empieza en 0.
+    @Test
+    void largeViewsAreWrittenFromTheirOffset() throws IOException {
+        double[] doubles = new double[50_000];
+        int[] ints = new int[50_000];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = i * 0.5 - 7;
+            ints[i] = i * 31 - 1_000_000;
+        }
+        double[] doubleView = roundTrip(new Message("JOB").setData(new DoubleChunk(doubles, 123, 40_000))).getData().toArray();
+        assertSameBits(Arrays.copyOfRange(doubles, 123, 40_123), doubleView);
+        int[] intView = roundTrip(new Message("JOB").setIntData(new IntChunk(ints, 77, 30_001))).getIntData().toArray();
+        assertArrayEquals(Arrays.copyOfRange(ints, 77, 30_078), intView);
+    }
+
+    @Test
+    void endOfStreamReturnsNull() throws IOException {
+        assertNull(FrameCodec.read(new DataInputStream(new ByteArrayInputStream(new byte[0]))));
+    }
+
+    @Test
+    void invalidFramesAreRejected() throws IOException {
+        assertThrows(IOException.class, () -> FrameCodec.read(new DataInputStream(new ByteArrayInputStream("TYPE=X\n".getBytes()))));
+
+        byte[] frame = encode(new Message("JOB").setData(new double[]{1, 2, 3}));
+        byte[] badVersion = frame.clone();
+        badVersion[1] = (byte) (FrameCodec.VERSION + 1);
+        assertThrows(IOException.class, () -> FrameCodec.read(new DataInputStream(new ByteArrayInputStream(badVersion))));
+
+        byte[] truncated = Arrays.copyOf(frame, frame.length - 5);
+        assertThrows(EOFException.class, () -> FrameCodec.read(new DataInputStream(new ByteArrayInputStream(truncated))));
+    }
+
+    // Por encima de la reserva inicial (8 MB) el array crece mientras llegan los bloques.
+    @Test
+    void payloadsLargerThanTheInitialReserve() throws IOException {
+        double[] doubles = new double[1_500_001];
+        int[] ints = new int[2_500_003];
+        for (int i = 0; i < doubles.length; i++) doubles[i] = i * 0.5;
+        for (int i = 0; i < ints.length; i++) ints[i] = Integer.MIN_VALUE + i;
+        assertSameBits(doubles, roundTrip(new Message("JOB").setData(doubles)).getData().toArray());
+        assertArrayEquals(ints, roundTrip(new Message("JOB").setIntData(ints)).getIntData().toArray());
+    }
+
+    // Un COUNT enorme con unos pocos bytes detrás acaba en EOF, no en un OutOfMemoryError al reservar el array.
+    @Test
+    void hugeCountWithoutDataIsAnEofNotAnAllocation() throws IOException {
+        Message[] messages = {
+                new Message("JOB").setData(new double[]{1, 2}),
+                new Message("JOB").setIntData(new int[]{1, 2}),
+                new Message("JOB").setData(new double[1_000])
+        };
+        for (Message message : messages) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            boolean compressed = FrameCodec.write(out, message, PayloadCodecs.SUPPORTED, null) > 0;
+            byte[] frame = out.toByteArray();
+            // COUNT (sin comprimir) o BYTES (comprimido) es el último entero antes del payload
+            int payload = message.getData() != null ? message.getData().length() * Double.BYTES : message.getIntData().length() * Integer.BYTES;
+            int field = compressed ? frame.length - compressedBytes(frame) - 4 : frame.length - payload - 4;
+            frame[field] = 0x7f; frame[field + 1] = (byte) 0xff; frame[field + 2] = (byte) 0xff; frame[field + 3] = (byte) 0xf0;
+            assertThrows(EOFException.class, () -> FrameCodec.read(new DataInputStream(new ByteArrayInputStream(frame))));
+        }
+    }
+
+    private static int compressedBytes(byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        in.skipBytes(2);
+        in.readUTF();
+        in.readByte();
+        in.readInt();
+        return in.readInt();
+    }
+
+    @Test
+    void consecutiveFramesOnOneStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameCodec.write(out, new Message("A").setData(new double[]{1.5}));
+        FrameCodec.write(out, new Message("B").setIntData(new int[]{-3}));
+        FrameCodec.write(out, new Message("C"));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(1.5, FrameCodec.read(in).getData().get(0));
+        assertEquals(-3, FrameCodec.read(in).getIntData().get(0));
+        assertEquals("C", FrameCodec.read(in).type());
+        assertNull(FrameCodec.read(in));
+    }
+}
@@ -0,0 +1,115 @@
+package com.tuproyecto.protocol;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@Timeout(10)
+class MessageChannelTest {
+    private ServerSocket server;
+
+    @BeforeEach
+    void listen() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        server.close();
+    }
+
+    private CompletableFuture<MessageChannel> acceptAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return MessageChannel.accept(server.accept());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private MessageChannel connect(MessageChannel.Format format) throws IOException {
+        return MessageChannel.connect(server.getInetAddress().getHostAddress(), server.getLocalPort(), format);
+    }
+
+    @Test
+    void acceptedChannelDetectsBinaryAndAnswersInBinary() throws Exception {
+        CompletableFuture<MessageChannel> accepted = acceptAsync();
+        try (MessageChannel client = connect(MessageChannel.Format.BINARY); MessageChannel peer = accepted.get()) {
+            client.write(new Message("CLIENT_JOB").put("OPERATION", "SQUARE").setIntData(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE}));
+            Message request = peer.read();
+            assertEquals(MessageChannel.Format.BINARY, peer.format());
+            assertEquals("SQUARE", request.get("OPERATION"));
+            assertArrayEquals(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE}, request.getIntData().toArray());
+
+            peer.write(new Message("JOB_COMPLETE").inReplyTo(request).setData(new double[]{-0.0, Double.NaN}));
+            FrameCodecTest.assertSameBits(new double[]{-0.0, Double.NaN}, client.read().getData().toArray());
+        }
+    }
+
+    // Un cliente de texto (p. ej. el de Python) escribe líneas KEY=VALUE;...;DATA=1.0,2.0 sin MessageChannel.
+    @Test
+    void acceptedChannelFallsBackToTextAndAnswersInText() throws Exception {
+        CompletableFuture<MessageChannel> accepted = acceptAsync();
+        try (Socket raw = new Socket(server.getInetAddress(), server.getLocalPort()); MessageChannel peer = accepted.get()) {
+            OutputStream out = raw.getOutputStream();
+            out.write("TYPE=CLIENT_JOB;OPERATION=SQUARE;DATA=1.5,-0.0,NaN,Infinity,-Infinity\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            Message request = peer.read();
+            assertEquals(MessageChannel.Format.TEXT, peer.format());
+            assertEquals("CLIENT_JOB", request.type());
+            FrameCodecTest.assertSameBits(new double[]{1.5, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY},
+                    request.getData().toArray());
+
+            peer.write(new Message("JOB_COMPLETE").put("STATUS", "SUCCESS").setData(new double[]{2.25}));
+            byte[] reply = new byte[256];
+            int n = raw.getInputStream().read(reply);
+            String line = new String(reply, 0, n, StandardCharsets.UTF_8);
+            assertEquals('\n', line.charAt(line.length() - 1));
+            Message parsed = new Message(ProtocolParser.parse(line.trim()));
+            assertEquals("JOB_COMPLETE", parsed.type());
+            assertEquals("2.25", parsed.get("DATA"));
+        }
+    }
+
+    @Test
+    void textChannelsRoundTripEmptyAndIntPayloads() throws Exception {
+        CompletableFuture<MessageChannel> accepted = acceptAsync();
+        try (MessageChannel client = connect(MessageChannel.Format.TEXT); MessageChannel peer = accepted.get()) {
+            client.write(new Message("A").setData(new double[0]));
+            client.write(new Message("B").setIntData(new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE}));
+            client.write(new Message("C"));
+            assertEquals(0, peer.read().getData().length());
+            // En texto no hay tipo de elemento: los ints llegan como doubles, sin pérdida.
+            assertArrayEquals(new double[]{Integer.MIN_VALUE, Integer.MAX_VALUE}, peer.read().getData().toArray());
+            Message headersOnly = peer.read();
+            assertEquals("C", headersOnly.type());
+            assertNull(headersOnly.getPayload());
+        }
+    }
+
+    @Test
+    void readReturnsNullWhenThePeerCloses() throws IOException, ExecutionException, InterruptedException {
+        CompletableFuture<MessageChannel> accepted = acceptAsync();
+        MessageChannel client = connect(MessageChannel.Format.BINARY);
+        try (MessageChannel peer = accepted.get()) {
+            client.close();
+            assertNull(peer.read());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.tuproyecto.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCodecsTest {
+    private static double[] roundTrip(double[] values, int offset, int length) {
+        PayloadCodecs.Encoded encoded = PayloadCodecs.encodeDoubles(values, offset, length, Integer.MAX_VALUE - 8);
+        assertNotNull(encoded);
+        return PayloadCodecs.decodeDoubles(Arrays.copyOf(encoded.bytes, encoded.length), length);
+    }
+
+    private static int[] roundTrip(int[] values, int offset, int length) {
+        PayloadCodecs.Encoded encoded = PayloadCodecs.encodeInts(values, offset, length, Integer.MAX_VALUE - 8);
+        assertNotNull(encoded);
+        return PayloadCodecs.decodeInts(Arrays.copyOf(encoded.bytes, encoded.length), length);
+    }
+
+    @Test
+    void emptyPayloads() {
+        assertEquals(0, roundTrip(new double[0], 0, 0).length);
+        assertEquals(0, roundTrip(new int[0], 0, 0).length);
+    }
+
+    // Los especiales rompen la predicción lineal (NaN - NaN, Inf - Inf, MAX * 2): deben volver con sus bits.
+    @Test
+    void specialDoubles() {
+        double[] values = {
+                Double.NaN, Double.NaN, 1.0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                -0.0, 0.0, -0.0, -0.0, Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_VALUE,
+                Double.longBitsToDouble(0x7ff0000000000001L), Double.longBitsToDouble(0xfff8000000000123L), 3.5, Double.NaN, 3.5
+        };
+        FrameCodecTest.assertSameBits(values, roundTrip(values, 0, values.length));
+    }
+
+    @Test
+    void randomDoublesAndViews() {
+        Random random = new Random(42);
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 7 == 0) ? Double.longBitsToDouble(random.nextLong()) : random.nextGaussian() * 1e6;
+        }
+        FrameCodecTest.assertSameBits(values, roundTrip(values, 0, values.length));
+        FrameCodecTest.assertSameBits(Arrays.copyOfRange(values, 333, 5_333), roundTrip(values, 333, 5_000));
+    }
+
+    // Progresiones y valores repetidos se predicen exactamente: 1 bit por elemento.
+    @Test
+    void rampsAndRepeatsCompressToAboutOneBitPerValue() {
+        double[] ramp = new double[8_000];
+        for (int i = 0; i < ramp.length; i++) ramp[i] = 10 + 3 * i;
+        PayloadCodecs.Encoded encoded = PayloadCodecs.encodeDoubles(ramp, 0, ramp.length, ramp.length * Double.BYTES);
+        assertNotNull(encoded);
+        assertTrue(encoded.length < ramp.length / 8 + 32, "bytes=" + encoded.length);
+        FrameCodecTest.assertSameBits(ramp, PayloadCodecs.decodeDoubles(Arrays.copyOf(encoded.bytes, encoded.length), ramp.length));
+    }
+
+    @Test
+    void intExtremesAndWrappingDeltas() {
+        int[] values = {Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, 0, -1, 1, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1, 0};
+        assertArrayEquals(values, roundTrip(values, 0, values.length));
+        assertArrayEquals(Arrays.copyOfRange(values, 3, 9), roundTrip(values, 3, 6));
+    }
+
+    @Test
+    void randomInts() {
+        Random random = new Random(7);
+        int[] values = random.ints(20_000).toArray();
+        assertArrayEquals(values, roundTrip(values, 0, values.length));
+    }
+
+    // Datos incompresibles con un presupuesto ajustado: el codificador se rinde y el frame va en crudo.
+    @Test
+    void encodersGiveUpPastTheBudget() {
+        Random random = new Random(1);
+        double[] doubles = new double[4_096];
+        for (int i = 0; i < doubles.length; i++) doubles[i] = Double.longBitsToDouble(random.nextLong());
+        assertNull(PayloadCodecs.encodeDoubles(doubles, 0, doubles.length, doubles.length * Double.BYTES * 7 / 8));
+        int[] ints = random.ints(4_096).toArray();
+        assertNull(PayloadCodecs.encodeInts(ints, 0, ints.length, ints.length * Integer.BYTES * 7 / 8));
+    }
+
+    @Test
+    void acceptsMatchesWholeCodecNames() {
+        assertTrue(PayloadCodecs.accepts(PayloadCodecs.SUPPORTED, PayloadCodecs.DXOR));
+        assertTrue(PayloadCodecs.accepts(PayloadCodecs.SUPPORTED, PayloadCodecs.VARINT));
+        assertFalse(PayloadCodecs.accepts(null, PayloadCodecs.DXOR));
+        assertFalse(PayloadCodecs.accepts("", PayloadCodecs.DXOR));
+        assertFalse(PayloadCodecs.accepts("DXO,VARINTS", PayloadCodecs.DXOR));
+        assertFalse(PayloadCodecs.accepts("DXO,VARINTS", PayloadCodecs.VARINT));
+    }
+
+    // A través de FrameCodec: se comprime sólo si el otro extremo anunció el códec y el payload es grande.
+    @Test
+    void framesAreCompressedOnlyForPeersThatAdvertisedTheCodec() throws IOException {
+        double[] ramp = new double[1_000];
+        int[] counter = new int[1_000];
+        for (int i = 0; i < ramp.length; i++) {
+            ramp[i] = i * 0.25;
+            counter[i] = Integer.MIN_VALUE + i;
+        }
+        Message doubles = new Message("JOB").setData(ramp);
+        Message ints = new Message("JOB").setIntData(counter);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(FrameCodec.write(out, doubles, PayloadCodecs.SUPPORTED, null) > 0);
+        assertTrue(FrameCodec.write(out, ints, PayloadCodecs.VARINT, null) > 0);
+        assertEquals(0, FrameCodec.write(out, ints, PayloadCodecs.DXOR, null));
+        assertEquals(0, FrameCodec.write(out, doubles, null, PayloadCodecs.SUPPORTED));
+        assertEquals(0, FrameCodec.write(out, new Message("JOB").setData(new double[10]), PayloadCodecs.SUPPORTED, null));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        FrameCodecTest.assertSameBits(ramp, FrameCodec.read(in).getData().toArray());
+        assertArrayEquals(counter, FrameCodec.read(in).getIntData().toArray());
+        assertArrayEquals(counter, FrameCodec.read(in).getIntData().toArray());
+        Message advertised = FrameCodec.read(in);
+        assertEquals(PayloadCodecs.SUPPORTED, advertised.get(FrameCodec.CODECS_HEADER));
+        FrameCodecTest.assertSameBits(ramp, advertised.getData().toArray());
+        assertEquals(10, FrameCodec.read(in).getData().length());
+    }
+
+    @Test
+    void truncatedCompressedPayloadIsAnIoError() throws IOException {
+        double[] ramp = rampOf(1_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(FrameCodec.write(out, new Message("JOB").setData(ramp), PayloadCodecs.SUPPORTED, null) > 0);
+        byte[] frame = out.toByteArray();
+        // Se acorta el campo BYTES (los 4 bytes antes del payload) sin tocar COUNT: el decodificador se queda sin datos.
+        int bytesField = frame.length - compressedLength(frame) - 4;
+        int shortened = 3;
+        frame[bytesField] = 0; frame[bytesField + 1] = 0; frame[bytesField + 2] = 0; frame[bytesField + 3] = (byte) shortened;
+        byte[] cut = Arrays.copyOf(frame, bytesField + 4 + shortened);
+        assertThrows(IOException.class, () -> FrameCodec.read(new DataInputStream(new ByteArrayInputStream(cut))));
+    }
+
+    // Un COUNT que no cabe en los bytes codificados se rechaza antes de reservar new double[COUNT].
+    @Test
+    void countLargerThanTheEncodingCanHoldIsRejected() throws IOException {
+        for (Message message : new Message[]{new Message("JOB").setData(rampOf(1_000)), new Message("JOB").setIntData(new int[1_000])}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertTrue(FrameCodec.write(out, message, PayloadCodecs.SUPPORTED, null) > 0);
+            byte[] frame = out.toByteArray();
+            int countField = frame.length - compressedLength(frame) - 8;
+            frame[countField] = 0x7f; frame[countField + 1] = (byte) 0xff; frame[countField + 2] = (byte) 0xff; frame[countField + 3] = (byte) 0xff;
+            IOException e = assertThrows(IOException.class, () -> FrameCodec.read(new DataInputStream(new ByteArrayInputStream(frame))));
+            assertTrue(e.getMessage().contains("inválido"), e.getMessage());
+        }
+    }
+
+    private static double[] rampOf(int length) {
+        double[] ramp = new double[length];
+        for (int i = 0; i < length; i++) ramp[i] = i * 0.5;
+        return ramp;
+    }
+
+    private static int compressedLength(byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        in.skipBytes(2);
+        in.readUTF();
+        in.readByte();
+        in.readInt();
+        return in.readInt();
+    }
+}